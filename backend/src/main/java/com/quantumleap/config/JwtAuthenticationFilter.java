@@ -30,9 +30,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (header != null && header.startsWith("Bearer ")) {
             token = header.substring(7);
         }
-        if (token != null && jwtTokenProvider.validateToken(token)) {
-            // Extract user ID from the token and set it as the principal
-            UUID userId = jwtTokenProvider.getUserIdFromToken(token);
+        UUID userId = null;
+        if (token != null) {
+            try {
+                userId = jwtTokenProvider.getUserId(jwtTokenProvider.parseClaims(token));
+            } catch (Exception e) {
+                // Invalid or expired; the request continues unauthenticated
+            }
+        }
+        if (userId != null) {
+            // Set the user ID from the token as the principal
             UsernamePasswordAuthenticationToken authentication =
                     new UsernamePasswordAuthenticationToken(userId.toString(), null, Collections.emptyList());
             authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
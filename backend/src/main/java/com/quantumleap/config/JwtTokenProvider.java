@@ -1,6 +1,8 @@
 package com.quantumleap.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -24,6 +26,8 @@ public class JwtTokenProvider {
 
     private SecretKey key;
 
+    private JwtParser parser;
+
     @PostConstruct
     protected void init() {
         // Ensure the secret key is at least 32 characters (256 bits) for security
@@ -33,6 +37,7 @@ public class JwtTokenProvider {
         }
         byte[] keyBytes = Base64.getEncoder().encode(secretKey.getBytes());
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser().verifyWith(key).build();
     }
 
     public String generateToken(String userId) {
@@ -58,9 +63,20 @@ public class JwtTokenProvider {
                 .compact();
     }
 
+    /**
+     * Verify the token and return its claims. Callers that need several claims should parse once with this
+     * instead of calling {@link #validateToken} and the getters, which each verify the signature again.
+     *
+     * @throws JwtException if the token is malformed, not signed by us or expired
+     * @throws IllegalArgumentException if the token is empty
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
     public boolean validateToken(String token) {
         try {
-            Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
+            parseClaims(token);
             return true;
         } catch (Exception e) {
             return false;
@@ -68,13 +84,18 @@ public class JwtTokenProvider {
     }
 
     public UUID getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
-        String userId = claims.getSubject();
-        return UUID.fromString(userId);
+        return getUserId(parseClaims(token));
     }
 
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+        return getUsername(parseClaims(token));
+    }
+
+    public UUID getUserId(Claims claims) {
+        return UUID.fromString(claims.getSubject());
+    }
+
+    public String getUsername(Claims claims) {
         return claims.get("username", String.class);
     }
 
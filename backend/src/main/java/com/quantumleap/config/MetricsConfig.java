@@ -1,18 +1,56 @@
 package com.quantumleap.config;
 
 import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Metrics configuration for Micrometer observability
  */
 @Configuration
 public class MetricsConfig {
 
+    static final String OVERFLOW_BOARD = "other";
+
     @Bean
     public TimedAspect timedAspect(MeterRegistry registry) {
         return new TimedAspect(registry);
     }
+
+    /**
+     * Application meters tagged with a board ID keep their own series for the first boards seen on this
+     * node; later boards are counted under {@code board="other"} so a busy node cannot blow up the scrape.
+     */
+    @Bean
+    public MeterFilter boardTagLimit(@Value("${quantumleap.metrics.max-board-tags:100}") int maxBoardTags) {
+        return boardTagLimitFilter(maxBoardTags);
+    }
+
+    static MeterFilter boardTagLimitFilter(int maxBoardTags) {
+        Set<String> boards = ConcurrentHashMap.newKeySet();
+        return new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                String board = id.getTag("board");
+                if (board == null || !id.getName().startsWith("quantumleap.") || boards.contains(board)) {
+                    return id;
+                }
+                synchronized (boards) {
+                    if (boards.contains(board) || boards.size() < maxBoardTags) {
+                        boards.add(board);
+                        return id;
+                    }
+                }
+                return id.replaceTags(Tags.of(id.getTagsAsIterable()).and("board", OVERFLOW_BOARD));
+            }
+        };
+    }
 }
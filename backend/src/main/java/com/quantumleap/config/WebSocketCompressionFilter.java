@@ -0,0 +1,129 @@
+package com.quantumleap.config;
+
+import com.quantumleap.ws.BinaryFrameCodec;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Applies the permessage-deflate policy to WebSocket upgrade requests.
+ * <p>
+ * The servlet container negotiates permessage-deflate itself from the {@code Sec-WebSocket-Extensions}
+ * request header, so the policy is enforced by rewriting that header before the upgrade: the offer is
+ * dropped when compression is disabled (or the client asked for the binary subprotocol, whose frames are
+ * mostly too small to benefit), and context-takeover parameters are added as configured.
+ */
+@Component
+public class WebSocketCompressionFilter extends OncePerRequestFilter {
+
+    static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+    static final String PROTOCOL_HEADER = "Sec-WebSocket-Protocol";
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    @Value("${quantumleap.websocket.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quantumleap.websocket.compression.server-context-takeover:true}")
+    private boolean serverContextTakeover;
+
+    @Value("${quantumleap.websocket.compression.client-context-takeover:true}")
+    private boolean clientContextTakeover;
+
+    @Value("${quantumleap.websocket.compression.compress-binary-clients:false}")
+    private boolean compressBinaryClients;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"websocket".equalsIgnoreCase(request.getHeader("Upgrade"))
+                || request.getHeader(EXTENSIONS_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean binaryClient = !compressBinaryClients && requestsBinaryProtocol(request);
+        String extensions = rewriteExtensions(Collections.list(request.getHeaders(EXTENSIONS_HEADER)),
+                enabled && !binaryClient);
+        filterChain.doFilter(new ExtensionsRequestWrapper(request, extensions), response);
+    }
+
+    private static boolean requestsBinaryProtocol(HttpServletRequest request) {
+        Enumeration<String> protocols = request.getHeaders(PROTOCOL_HEADER);
+        while (protocols != null && protocols.hasMoreElements()) {
+            for (String protocol : protocols.nextElement().split(",")) {
+                if (BinaryFrameCodec.PROTOCOL.equals(protocol.trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rewrite the extension offers; returns {@code null} when nothing is left to offer.
+     */
+    String rewriteExtensions(List<String> headerValues, boolean allowDeflate) {
+        List<String> offers = new ArrayList<>();
+        for (String headerValue : headerValues) {
+            for (String offer : headerValue.split(",")) {
+                String trimmed = offer.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                String name = trimmed.split(";", 2)[0].trim();
+                if (!PERMESSAGE_DEFLATE.equalsIgnoreCase(name)) {
+                    offers.add(trimmed);
+                } else if (allowDeflate) {
+                    offers.add(withContextTakeover(trimmed));
+                }
+            }
+        }
+        return offers.isEmpty() ? null : String.join(", ", offers);
+    }
+
+    private String withContextTakeover(String offer) {
+        StringBuilder rewritten = new StringBuilder(offer);
+        if (!serverContextTakeover && !offer.contains("server_no_context_takeover")) {
+            rewritten.append("; server_no_context_takeover");
+        }
+        if (!clientContextTakeover && !offer.contains("client_no_context_takeover")) {
+            rewritten.append("; client_no_context_takeover");
+        }
+        return rewritten.toString();
+    }
+
+    private static final class ExtensionsRequestWrapper extends HttpServletRequestWrapper {
+        private final String extensions;
+
+        ExtensionsRequestWrapper(HttpServletRequest request, String extensions) {
+            super(request);
+            this.extensions = extensions;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? extensions : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                return extensions == null
+                        ? Collections.emptyEnumeration()
+                        : Collections.enumeration(List.of(extensions));
+            }
+            return super.getHeaders(name);
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.quantumleap.config;
 
+import com.quantumleap.ws.AdmissionHandshakeInterceptor;
+import com.quantumleap.ws.BinaryFrameCodec;
+import com.quantumleap.ws.JwtHandshakeInterceptor;
 import com.quantumleap.ws.WhiteboardWebSocketHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
-import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 import jakarta.annotation.PostConstruct;
 
 /**
@@ -19,7 +23,12 @@ import jakarta.annotation.PostConstruct;
 @Slf4j
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    /** Explicit name for the JSON framing; clients that request no subprotocol get JSON as well. */
+    public static final String JSON_PROTOCOL = "quantumleap.json.v1";
+
     private final WhiteboardWebSocketHandler whiteboardWebSocketHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+    private final AdmissionHandshakeInterceptor admissionHandshakeInterceptor;
 
     @PostConstruct
     public void init() {
@@ -37,17 +46,31 @@ public class WebSocketConfig implements WebSocketConfigurer {
         // So we need to register at: /api/v1/ws/whiteboard/{boardId}
         log.info("[WS Config] Registering WebSocket handler at /api/v1/ws/whiteboard/{boardId}");
         
-        // Try both paths to see which one works
+        // Try both paths to see which one works.
+        // Authentication comes first so that admission only counts authenticated users; no HTTP session is created.
         registry.addHandler(whiteboardWebSocketHandler, "/api/v1/ws/whiteboard/{boardId}")
+                .setHandshakeHandler(handshakeHandler())
                 .setAllowedOrigins("*")
-                .addInterceptors(new HttpSessionHandshakeInterceptor());
+                .addInterceptors(jwtHandshakeInterceptor, admissionHandshakeInterceptor);
         
         // Also register at root path as fallback
         registry.addHandler(whiteboardWebSocketHandler, "/ws/whiteboard/{boardId}")
+                .setHandshakeHandler(handshakeHandler())
                 .setAllowedOrigins("*")
-                .addInterceptors(new HttpSessionHandshakeInterceptor());
+                .addInterceptors(jwtHandshakeInterceptor, admissionHandshakeInterceptor);
         
         log.info("[WS Config] WebSocket handlers registered successfully");
         log.info("[WS Config] Registry: {}", registry);
     }
+
+    /**
+     * Negotiates the framing via Sec-WebSocket-Protocol: binary for clients that ask for it,
+     * JSON for everyone else.
+     */
+    @Bean
+    public DefaultHandshakeHandler handshakeHandler() {
+        DefaultHandshakeHandler handshakeHandler = new DefaultHandshakeHandler();
+        handshakeHandler.setSupportedProtocols(BinaryFrameCodec.PROTOCOL, JSON_PROTOCOL);
+        return handshakeHandler;
+    }
 }
@@ -2,6 +2,7 @@ package com.quantumleap.controller;
 
 import com.quantumleap.dto.whiteboard.CreateWhiteboardRequest;
 import com.quantumleap.dto.whiteboard.WhiteboardResponse;
+import com.quantumleap.dto.whiteboard.WriteModeRequest;
 import com.quantumleap.service.WhiteboardService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -80,6 +81,18 @@ public class WhiteboardController {
         return ResponseEntity.noContent().build();
     }
 
+    @PutMapping("/{boardId}/write-mode")
+    @Operation(summary = "Set write mode", description = "Broadcast events before (optimistic) or after (durable) they are persisted (owner only)")
+    public ResponseEntity<WhiteboardResponse> updateWriteMode(
+            @Parameter(description = "Whiteboard ID") @PathVariable UUID boardId,
+            @Valid @RequestBody WriteModeRequest request,
+            Authentication authentication) {
+        UUID userId = UUID.fromString(authentication.getName());
+        log.info("User {} setting write mode of whiteboard {} to optimistic={}", userId, boardId, request.getOptimistic());
+        WhiteboardResponse whiteboard = whiteboardService.updateWriteMode(boardId, userId, request.getOptimistic());
+        return ResponseEntity.ok(whiteboard);
+    }
+
     @GetMapping("/{boardId}/members")
     @Operation(summary = "Get whiteboard members", description = "Retrieve all members of a whiteboard")
     public ResponseEntity<List<String>> getWhiteboardMembers(
@@ -15,4 +15,5 @@ public class WhiteboardResponse {
     private OffsetDateTime createdAt;
     private boolean owner;
     private boolean isPublic;
+    private boolean optimisticWrites;
 }
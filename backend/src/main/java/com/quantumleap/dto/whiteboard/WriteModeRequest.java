@@ -0,0 +1,25 @@
+package com.quantumleap.dto.whiteboard;
+
+import jakarta.validation.constraints.NotNull;
+
+public class WriteModeRequest {
+
+    @NotNull(message = "optimistic is required")
+    private Boolean optimistic;
+
+    // Constructors
+    public WriteModeRequest() {}
+
+    public WriteModeRequest(Boolean optimistic) {
+        this.optimistic = optimistic;
+    }
+
+    // Getters and Setters
+    public Boolean getOptimistic() {
+        return optimistic;
+    }
+
+    public void setOptimistic(Boolean optimistic) {
+        this.optimistic = optimistic;
+    }
+}
@@ -13,6 +13,7 @@ public class EventEnvelope {
     private OffsetDateTime ts;
     private Object data;
     private String tempId;
+    private Long seq;
 
     // Constructors
     public EventEnvelope() {}
@@ -93,6 +94,14 @@ public class EventEnvelope {
         this.tempId = tempId;
     }
 
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
     @Override
     public String toString() {
         return "EventEnvelope{" +
@@ -103,6 +112,7 @@ public class EventEnvelope {
                 ", ts=" + ts +
                 ", data=" + data +
                 ", tempId='" + tempId + '\'' +
+                ", seq=" + seq +
                 '}';
     }
 }
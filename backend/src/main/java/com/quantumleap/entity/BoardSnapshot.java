@@ -0,0 +1,46 @@
+package com.quantumleap.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A board's shapes folded from its events up to and including {@code seq}. Keyed by board and sequence
+ * number; a snapshot older than the board's last clear no longer applies.
+ */
+@Entity
+@Table(name = "board_snapshots")
+@IdClass(BoardSnapshot.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BoardSnapshot {
+    @Id
+    @Column(name = "whiteboard_id")
+    private UUID whiteboardId;
+
+    @Id
+    private long seq;
+
+    // JSON array of the creation events of the board's shapes, in drawing order
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String shapes;
+
+    @Column(nullable = false)
+    private int shapeCount;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID whiteboardId;
+        private long seq;
+    }
+}
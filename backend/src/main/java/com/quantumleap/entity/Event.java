@@ -7,7 +7,7 @@ import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "events")
+@Table(name = "events", indexes = @Index(name = "idx_events_board_seq", columnList = "whiteboard_id, seq"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,4 +33,8 @@ public class Event {
 
     @Column(nullable = false)
     private OffsetDateTime ts;
+
+    // Position in the board's history, gap-free per board; rows written before sequencing have 0
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long seq;
 }
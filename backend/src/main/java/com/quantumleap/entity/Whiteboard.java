@@ -27,4 +27,24 @@ public class Whiteboard {
 
     @CreationTimestamp
     private OffsetDateTime createdAt;
+
+    // Broadcast strokes before they are persisted; see WhiteboardWebSocketHandler
+    @Builder.Default
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean optimisticWrites = false;
+
+    // Last sequence number given to the board's events, and the one its latest clear took.
+    // Only WriteBehindEventWriter advances them, in SQL, so JPA never writes them back.
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long lastSeq = 0;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long clearedSeq = 0;
+
+    // Events up to here were rewritten by EventLogCompactor, which alone advances it
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long compactedSeq = 0;
 }
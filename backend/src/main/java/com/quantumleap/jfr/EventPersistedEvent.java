@@ -0,0 +1,50 @@
+package com.quantumleap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * One board event from its hand-off to the write-behind writer until its batch committed or failed.
+ * Begins on the ingesting thread and is committed on the writer thread, so it includes the wait in the queue.
+ */
+@Name("quantumleap.EventPersisted")
+@Label("Event Persisted")
+@Description("Board event from hand-off to the write-behind writer until its batch commits")
+@Category({"QuantumLeap", "Persistence"})
+@StackTrace(false)
+public final class EventPersistedEvent extends Event {
+    @Label("Board")
+    String boardId;
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    int payloadSize;
+
+    @Label("Sequence")
+    long seq;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    public void finish(UUID boardId, String eventType, int payloadSize, Long seq) {
+        end();
+        if (shouldCommit()) {
+            this.boardId = boardId != null ? boardId.toString() : null;
+            this.eventType = eventType;
+            this.payloadSize = payloadSize;
+            this.seq = seq != null ? seq : 0;
+            this.succeeded = seq != null;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.quantumleap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * One broadcast on a board loop: encoding the frame once and queueing it for every local session.
+ * The socket writes themselves happen later, see {@link SendBlockedEvent}.
+ */
+@Name("quantumleap.FanOut")
+@Label("Fan-out")
+@Description("Board event encoded and queued for every local session")
+@Category({"QuantumLeap", "WebSocket"})
+@StackTrace(false)
+public final class FanOutEvent extends Event {
+    @Label("Board")
+    String boardId;
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Recipients")
+    int recipients;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    int payloadSize;
+
+    public void finish(UUID boardId, String eventType, int recipients, int payloadSize) {
+        end();
+        if (shouldCommit()) {
+            this.boardId = boardId != null ? boardId.toString() : null;
+            this.eventType = eventType;
+            this.recipients = recipients;
+            this.payloadSize = payloadSize;
+            commit();
+        }
+    }
+}
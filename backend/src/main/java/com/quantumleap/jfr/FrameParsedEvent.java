@@ -0,0 +1,39 @@
+package com.quantumleap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Decoding of one inbound frame into an event envelope, JSON or binary.
+ */
+@Name("quantumleap.FrameParsed")
+@Label("Frame Parsed")
+@Description("Decoding of an inbound WebSocket frame")
+@Category({"QuantumLeap", "WebSocket"})
+@StackTrace(false)
+public final class FrameParsedEvent extends Event {
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Binary")
+    boolean binary;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    int payloadSize;
+
+    public void finish(String eventType, boolean binary, int payloadSize) {
+        end();
+        if (shouldCommit()) {
+            this.eventType = eventType;
+            this.binary = binary;
+            this.payloadSize = payloadSize;
+            commit();
+        }
+    }
+}
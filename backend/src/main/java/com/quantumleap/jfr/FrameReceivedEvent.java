@@ -0,0 +1,50 @@
+package com.quantumleap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * An inbound frame on the container's reader thread, from receipt until it was handed off to a board
+ * loop or ingestion lane. Covers the parse, validation and rate limiting.
+ */
+@Name("quantumleap.FrameReceived")
+@Label("Frame Received")
+@Description("Inbound WebSocket frame, from receipt to hand-off")
+@Category({"QuantumLeap", "WebSocket"})
+@StackTrace(false)
+public final class FrameReceivedEvent extends Event {
+    @Label("Board")
+    String boardId;
+
+    @Label("Session")
+    String sessionId;
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Binary")
+    boolean binary;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    int payloadSize;
+
+    public void finish(UUID boardId, String sessionId, String eventType, boolean binary, int payloadSize) {
+        end();
+        if (shouldCommit()) {
+            this.boardId = boardId != null ? boardId.toString() : null;
+            this.sessionId = sessionId;
+            this.eventType = eventType;
+            this.binary = binary;
+            this.payloadSize = payloadSize;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.quantumleap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One write-behind transaction: sequence reservation, batched insert and commit.
+ */
+@Name("quantumleap.PersistFlush")
+@Label("Persist Flush")
+@Description("Write-behind batch written and committed in one transaction")
+@Category({"QuantumLeap", "Persistence"})
+@StackTrace(false)
+public final class PersistFlushEvent extends Event {
+    @Label("Operations")
+    int operations;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    public void finish(int operations, boolean succeeded) {
+        end();
+        if (shouldCommit()) {
+            this.operations = operations;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.quantumleap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A {@code sendMessage} call on a session's drain task. Only calls slower than the threshold are recorded,
+ * which in practice means the socket's send buffer was full.
+ */
+@Name("quantumleap.SendBlocked")
+@Label("Send Blocked")
+@Description("WebSocket send that blocked on the socket")
+@Category({"QuantumLeap", "WebSocket"})
+@Threshold("5 ms")
+@StackTrace(false)
+public final class SendBlockedEvent extends Event {
+    @Label("Session")
+    String sessionId;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    int payloadSize;
+
+    public void finish(String sessionId, int payloadSize) {
+        end();
+        if (shouldCommit()) {
+            this.sessionId = sessionId;
+            this.payloadSize = payloadSize;
+            commit();
+        }
+    }
+}
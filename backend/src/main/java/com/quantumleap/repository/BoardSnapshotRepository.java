@@ -0,0 +1,47 @@
+package com.quantumleap.repository;
+
+import com.quantumleap.entity.BoardSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository interface for BoardSnapshot entity
+ */
+@Repository
+public interface BoardSnapshotRepository extends JpaRepository<BoardSnapshot, BoardSnapshot.Key> {
+
+    /**
+     * Find the most recent snapshot of a whiteboard
+     *
+     * @param whiteboardId whiteboard ID
+     * @return snapshot with the highest sequence number, if any
+     */
+    Optional<BoardSnapshot> findFirstByWhiteboardIdOrderBySeqDesc(UUID whiteboardId);
+
+    /**
+     * Delete the snapshots of a whiteboard taken before a sequence number
+     *
+     * @param whiteboardId whiteboard ID
+     * @param seq          sequence number of the snapshot to keep
+     * @return number of deleted snapshots
+     */
+    @Modifying
+    @Query("DELETE FROM BoardSnapshot s WHERE s.whiteboardId = :whiteboardId AND s.seq < :seq")
+    int deleteByWhiteboardIdAndSeqLessThan(@Param("whiteboardId") UUID whiteboardId, @Param("seq") long seq);
+
+    /**
+     * Delete all snapshots of a whiteboard
+     *
+     * @param whiteboardId whiteboard ID
+     * @return number of deleted snapshots
+     */
+    @Modifying
+    @Query("DELETE FROM BoardSnapshot s WHERE s.whiteboardId = :whiteboardId")
+    int deleteByWhiteboardId(@Param("whiteboardId") UUID whiteboardId);
+}
@@ -1,17 +1,22 @@
 package com.quantumleap.repository;
 
 import com.quantumleap.entity.Event;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Event entity
@@ -19,6 +24,11 @@ import java.util.UUID;
 @Repository
 public interface EventRepository extends JpaRepository<Event, UUID> {
 
+    /**
+     * Rows fetched per round trip when streaming a board's history
+     */
+    String STREAM_FETCH_SIZE = "500";
+
     /**
      * Find events by whiteboard ID ordered by timestamp (newest first)
      *
@@ -37,6 +47,41 @@ public interface EventRepository extends JpaRepository<Event, UUID> {
      */
     Page<Event> findByWhiteboardIdOrderByTsAsc(UUID whiteboardId, Pageable pageable);
 
+    /**
+     * Find events by whiteboard ID in sequence order for replay; rows from before sequencing share
+     * sequence 0 and fall back to timestamp order
+     *
+     * @param whiteboardId whiteboard ID
+     * @param pageable     pagination parameters
+     * @return slice of events, without a count query
+     */
+    Slice<Event> findByWhiteboardIdOrderBySeqAscTsAsc(UUID whiteboardId, Pageable pageable);
+
+    /**
+     * Stream the events of a whiteboard after a sequence number in replay order through a forward-only cursor.
+     * Must be consumed inside a transaction and closed; rows are fetched {@link #STREAM_FETCH_SIZE} at a time.
+     *
+     * @param whiteboardId whiteboard ID
+     * @param afterSeq     exclusive lower bound; -1 includes events stored before sequencing (seq 0)
+     * @return stream of events
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Event e WHERE e.whiteboard.id = :whiteboardId AND e.seq > :afterSeq ORDER BY e.seq ASC, e.ts ASC")
+    Stream<Event> streamByWhiteboardIdAfter(@Param("whiteboardId") UUID whiteboardId, @Param("afterSeq") long afterSeq);
+
+    /**
+     * Find events of a whiteboard after a sequence number, oldest first, for resuming clients
+     *
+     * @param whiteboardId whiteboard ID
+     * @param seq          last sequence number the client has
+     * @param pageable     pagination parameters
+     * @return list of events
+     */
+    List<Event> findByWhiteboardIdAndSeqGreaterThanOrderBySeqAsc(UUID whiteboardId, long seq, Pageable pageable);
+
     /**
      * Find events by whiteboard ID and event type ordered by timestamp (newest first)
      *
@@ -0,0 +1,35 @@
+package com.quantumleap.service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service interface for board snapshots: a board's shapes folded from its event log, so joining
+ * clients get the current state and only the events after it
+ */
+public interface BoardSnapshotService {
+
+    /**
+     * Get the latest snapshot of a whiteboard that is still valid
+     *
+     * @param boardId whiteboard ID
+     * @return the board's state as of the snapshot, or empty if there is none or the board was cleared after it
+     */
+    Optional<BoardState> getLatestSnapshot(UUID boardId);
+
+    /**
+     * Note that an event of the whiteboard has been committed; snapshots are taken in the background
+     * once enough events or enough time has accumulated
+     *
+     * @param boardId whiteboard ID
+     */
+    void eventPersisted(UUID boardId);
+
+    /**
+     * Fold the whiteboard's events since its latest snapshot into a new one, now
+     *
+     * @param boardId whiteboard ID
+     * @return the new snapshot's state, or empty if there was nothing new to fold
+     */
+    Optional<BoardState> takeSnapshot(UUID boardId);
+}
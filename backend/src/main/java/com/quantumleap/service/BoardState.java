@@ -0,0 +1,140 @@
+package com.quantumleap.service;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The shapes on a board as of a sequence number. Each shape is held as the event that created it, with later
+ * moves and style updates folded into its data, so replaying {@link #shapes()} draws what replaying the whole
+ * history would. Not thread-safe.
+ */
+public final class BoardState {
+    /** Event types that create a shape; the shape's ID is the event's ID. */
+    public static final Set<String> CREATION_TYPES = Set.of("LINE_DRAWN", "SHAPE_ADDED", "TEXT_ADDED");
+
+    // Insertion order is drawing order
+    private final Map<String, EventEnvelope> shapes = new LinkedHashMap<>();
+    private long seq;
+
+    public BoardState() {
+    }
+
+    /**
+     * Rebuild a state from the creation events a snapshot holds.
+     */
+    public BoardState(long seq, List<EventEnvelope> shapes) {
+        this.seq = seq;
+        for (EventEnvelope shape : shapes) {
+            this.shapes.put(shape.getId(), shape);
+        }
+    }
+
+    /**
+     * Apply the board's next event. Events that do not change shapes only advance the sequence number.
+     */
+    public void apply(EventEnvelope event) {
+        if (event.getSeq() != null) {
+            seq = Math.max(seq, event.getSeq());
+        }
+        String type = event.getType();
+        if (type == null) {
+            return;
+        }
+        if (CREATION_TYPES.contains(type)) {
+            if (event.getId() != null) {
+                shapes.put(event.getId(), event);
+            }
+            return;
+        }
+        switch (type) {
+            case "SHAPE_MOVED" -> fold(event, "x", "y");
+            case "SHAPE_UPDATED" -> fold(event, "style");
+            case "SHAPE_DELETED" -> {
+                String target = target(event);
+                if (target != null) {
+                    shapes.remove(target);
+                }
+            }
+            case "CLEAR_CANVAS" -> shapes.clear();
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Copy the given fields from an edit into the creation event of the shape it targets. The creation
+     * event is replaced rather than changed, since the original may still be shared with broadcasts.
+     */
+    private void fold(EventEnvelope edit, String... fields) {
+        String target = target(edit);
+        EventEnvelope shape = target != null ? shapes.get(target) : null;
+        if (shape == null || !(edit.getData() instanceof Map<?, ?> changes)) {
+            return;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (shape.getData() instanceof Map<?, ?> current) {
+            current.forEach((key, value) -> data.put(String.valueOf(key), value));
+        }
+        for (String field : fields) {
+            Object value = changes.get(field);
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Map<?, ?> patch && data.get(field) instanceof Map<?, ?> existing) {
+                // Style updates are partial: later keys win, the rest is kept
+                Map<Object, Object> merged = new LinkedHashMap<>(existing);
+                merged.putAll(patch);
+                value = merged;
+            }
+            data.put(field, value);
+        }
+        EventEnvelope folded = new EventEnvelope(shape.getId(), shape.getBoardId(), shape.getUserId(),
+                shape.getType(), shape.getTs(), data, shape.getTempId());
+        folded.setSeq(shape.getSeq());
+        shapes.put(target, folded);
+    }
+
+    /**
+     * The shape an event creates or edits: a creation's own ID, else {@code data.id} as SHAPE_DELETED gives it.
+     */
+    public static String target(EventEnvelope event) {
+        if (CREATION_TYPES.contains(event.getType())) {
+            return event.getId();
+        }
+        return event.getData() instanceof Map<?, ?> data && data.get("id") instanceof String id ? id : null;
+    }
+
+    public boolean contains(String shapeId) {
+        return shapes.containsKey(shapeId);
+    }
+
+    /**
+     * The creation event of a shape on the board, with its edits folded in, or null.
+     */
+    public EventEnvelope shape(String shapeId) {
+        return shapes.get(shapeId);
+    }
+
+    /**
+     * Sequence number of the last event applied.
+     */
+    public long seq() {
+        return seq;
+    }
+
+    public int size() {
+        return shapes.size();
+    }
+
+    /**
+     * The creation events of the shapes on the board, in drawing order.
+     */
+    public List<EventEnvelope> shapes() {
+        return new ArrayList<>(shapes.values());
+    }
+}
@@ -4,7 +4,10 @@ import com.quantumleap.dto.ws.EventEnvelope;
 import com.quantumleap.entity.Event;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Service interface for event processing operations
@@ -12,14 +15,15 @@ import java.util.UUID;
 public interface EventService {
 
     /**
-     * Process and persist an event
+     * Queue an event for batched persistence. The envelope's ID is used if set, otherwise one is assigned;
+     * the future completes with the stored envelope, carrying its sequence number, once the batch holding it has committed.
+     * Access is not re-checked here: callers pass writes from sessions authorized at connect time.
      *
-     * @param eventEnvelope event envelope to process
+     * @param eventEnvelope event envelope to persist, with its timestamp already set
      * @param userId        user ID who triggered the event
-     * @return processed event envelope
-     * @throws RuntimeException if event processing fails
+     * @return future completing with the persisted envelope, or exceptionally if the write failed
      */
-    EventEnvelope processEvent(EventEnvelope eventEnvelope, UUID userId);
+    CompletableFuture<EventEnvelope> appendEvent(EventEnvelope eventEnvelope, UUID userId);
 
     /**
      * Get events for a specific whiteboard
@@ -40,6 +44,32 @@ public interface EventService {
      */
     List<EventEnvelope> getEventsForBoard(UUID boardId, int offset, int limit);
 
+    /**
+     * Stream a whiteboard's history after a sequence number in replay order, handing it to {@code sink} in chunks.
+     * Rows are read through a database cursor and chunks are not kept after {@code sink} returns, so memory
+     * use does not grow with the board. The cursor stays open while {@code sink} runs; a sink that throws
+     * ends the stream.
+     *
+     * @param boardId   whiteboard ID
+     * @param afterSeq  stream only events with a greater sequence number; -1 for the whole history,
+     *                  including events stored before sequencing
+     * @param chunkSize maximum number of events per chunk
+     * @param sink      receives each chunk in order
+     */
+    void streamEventsForBoard(UUID boardId, long afterSeq, int chunkSize, Consumer<List<EventEnvelope>> sink);
+
+    /**
+     * Get the events a client missed since a sequence number it has seen.
+     * Empty when the events alone would not bring the client up to date: the board was cleared or compacted
+     * after {@code sinceSeq}, more than {@code limit} events are missing, or {@code sinceSeq} is unknown to the board.
+     *
+     * @param boardId  whiteboard ID
+     * @param sinceSeq last sequence number the client has applied
+     * @param limit    maximum number of missing events to return
+     * @return the missing events in sequence order, or empty if the client needs a full replay
+     */
+    Optional<List<EventEnvelope>> getEventsSince(UUID boardId, long sinceSeq, int limit);
+
     /**
      * Get event by ID
      *
@@ -66,6 +96,14 @@ public interface EventService {
      */
     void deleteEventsForBoard(UUID boardId);
 
+    /**
+     * Delete events for a whiteboard after every event queued by {@link #appendEvent} before this call
+     *
+     * @param boardId whiteboard ID
+     * @return future completing with the sequence number the clear took, once the deletion has committed
+     */
+    CompletableFuture<Long> clearEventsForBoard(UUID boardId);
+
     /**
      * Get event count for a whiteboard
      *
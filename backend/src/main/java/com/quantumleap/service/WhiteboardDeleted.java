@@ -0,0 +1,9 @@
+package com.quantumleap.service;
+
+import java.util.UUID;
+
+/**
+ * Published when a whiteboard and its events have been deleted
+ */
+public record WhiteboardDeleted(UUID boardId) {
+}
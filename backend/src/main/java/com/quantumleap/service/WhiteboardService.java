@@ -85,4 +85,24 @@ public interface WhiteboardService {
      * @throws RuntimeException if whiteboard not found
      */
     Whiteboard getWhiteboardById(UUID boardId);
+
+    /**
+     * Switch a whiteboard between durable and optimistic writes (owner only)
+     *
+     * @param boardId    whiteboard ID
+     * @param userId     requesting user ID
+     * @param optimistic true to broadcast events before they are persisted
+     * @return updated whiteboard response
+     * @throws RuntimeException if whiteboard not found or user is not the owner
+     */
+    WhiteboardResponse updateWriteMode(UUID boardId, UUID userId, boolean optimistic);
+
+    /**
+     * Check if a whiteboard broadcasts events before they are persisted
+     *
+     * @param boardId whiteboard ID
+     * @return true if optimistic writes are enabled
+     * @throws RuntimeException if whiteboard not found
+     */
+    boolean isOptimisticWrites(UUID boardId);
 }
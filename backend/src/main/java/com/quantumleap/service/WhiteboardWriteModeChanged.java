@@ -0,0 +1,9 @@
+package com.quantumleap.service;
+
+import java.util.UUID;
+
+/**
+ * Published when a whiteboard switches between durable and optimistic writes
+ */
+public record WhiteboardWriteModeChanged(UUID boardId, boolean optimistic) {
+}
@@ -0,0 +1,206 @@
+package com.quantumleap.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quantumleap.dto.ws.EventEnvelope;
+import com.quantumleap.entity.BoardSnapshot;
+import com.quantumleap.repository.BoardSnapshotRepository;
+import com.quantumleap.service.BoardSnapshotService;
+import com.quantumleap.service.BoardState;
+import com.quantumleap.service.EventService;
+import com.quantumleap.service.WhiteboardService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Takes board snapshots in the background on a single thread, so at most one board is being folded at a time.
+ * <p>
+ * A board is due once {@code every-events} events have been committed since its last snapshot, or
+ * {@code max-age-seconds} after the first of them. Each snapshot starts from the previous one and folds only
+ * the events after it; older snapshots of the board are then deleted. Events are counted where they are
+ * committed, on the board's owner, so only one node snapshots a board.
+ */
+@Service
+@Slf4j
+public class BoardSnapshotServiceImpl implements BoardSnapshotService {
+
+    private static final TypeReference<List<EventEnvelope>> SHAPES = new TypeReference<>() {
+    };
+
+    private final BoardSnapshotRepository snapshotRepository;
+    private final EventService eventService;
+    private final WhiteboardService whiteboardService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int everyEvents;
+    private final long maxAgeNanos;
+    private final int streamChunkSize;
+    private final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final Timer snapshotTimer;
+    private final DistributionSummary snapshotShapes;
+    private final Counter failedSnapshots;
+
+    public BoardSnapshotServiceImpl(BoardSnapshotRepository snapshotRepository,
+                                    EventService eventService,
+                                    WhiteboardService whiteboardService,
+                                    ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${quantumleap.snapshots.enabled:true}") boolean enabled,
+                                    @Value("${quantumleap.snapshots.every-events:500}") int everyEvents,
+                                    @Value("${quantumleap.snapshots.max-age-seconds:60}") long maxAgeSeconds,
+                                    @Value("${quantumleap.websocket.event-replay-chunk-size:200}") int streamChunkSize) {
+        this.snapshotRepository = snapshotRepository;
+        this.eventService = eventService;
+        this.whiteboardService = whiteboardService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.everyEvents = everyEvents;
+        this.maxAgeNanos = TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+        this.streamChunkSize = streamChunkSize;
+
+        this.snapshotTimer = Timer.builder("quantumleap.snapshots.taken")
+                .description("Time to fold a board's new events into a snapshot and store it")
+                .register(meterRegistry);
+        this.snapshotShapes = DistributionSummary.builder("quantumleap.snapshots.shapes")
+                .description("Shapes held by each snapshot taken")
+                .register(meterRegistry);
+        this.failedSnapshots = Counter.builder("quantumleap.snapshots.failed")
+                .description("Snapshots that could not be taken")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.snapshots.pending", pending, Map::size)
+                .description("Boards with events committed since their last snapshot")
+                .register(meterRegistry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("board-snapshotter").daemon(true).factory());
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.SECONDS);
+            log.info("Board snapshots every {} events or {} s", everyEvents, maxAgeSeconds);
+        }
+    }
+
+    @Override
+    public Optional<BoardState> getLatestSnapshot(UUID boardId) {
+        Optional<BoardSnapshot> latest = snapshotRepository.findFirstByWhiteboardIdOrderBySeqDesc(boardId);
+        if (latest.isEmpty() || latest.get().getSeq() < whiteboardService.getWhiteboardById(boardId).getClearedSeq()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new BoardState(latest.get().getSeq(), objectMapper.readValue(latest.get().getShapes(), SHAPES)));
+        } catch (Exception e) {
+            log.warn("Unreadable snapshot {} of whiteboard {}: {}", latest.get().getSeq(), boardId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void eventPersisted(UUID boardId) {
+        if (!enabled) {
+            return;
+        }
+        Pending due = pending.computeIfAbsent(boardId, id -> new Pending(System.nanoTime()));
+        if (due.events.incrementAndGet() == everyEvents) {
+            scheduler.execute(() -> snapshotIfPending(boardId));
+        }
+    }
+
+    @Override
+    public Optional<BoardState> takeSnapshot(UUID boardId) {
+        long start = System.nanoTime();
+        BoardState state = getLatestSnapshot(boardId).orElseGet(BoardState::new);
+        long base = state.seq();
+        // Without a snapshot, fold from the start, including rows from before sequencing
+        eventService.streamEventsForBoard(boardId, base > 0 ? base : -1, streamChunkSize, chunk -> chunk.forEach(state::apply));
+        if (state.seq() <= base) {
+            return Optional.empty();
+        }
+
+        String shapes;
+        try {
+            shapes = objectMapper.writeValueAsString(state.shapes());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize snapshot", e);
+        }
+        BoardSnapshot snapshot = BoardSnapshot.builder()
+                .whiteboardId(boardId)
+                .seq(state.seq())
+                .shapes(shapes)
+                .shapeCount(state.size())
+                .createdAt(OffsetDateTime.now())
+                .build();
+        transactionTemplate.executeWithoutResult(status -> {
+            snapshotRepository.save(snapshot);
+            snapshotRepository.deleteByWhiteboardIdAndSeqLessThan(boardId, snapshot.getSeq());
+        });
+
+        snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        snapshotShapes.record(state.size());
+        log.debug("Snapshot of whiteboard {} at seq {} with {} shapes", boardId, state.seq(), state.size());
+        return Optional.of(state);
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        pending.forEach((boardId, due) -> {
+            if (now - due.since >= maxAgeNanos) {
+                snapshotIfPending(boardId);
+            }
+        });
+    }
+
+    // Only on the scheduler thread
+    private void snapshotIfPending(UUID boardId) {
+        if (pending.remove(boardId) == null) {
+            // Already taken
+            return;
+        }
+        try {
+            takeSnapshot(boardId);
+        } catch (Exception e) {
+            failedSnapshots.increment();
+            log.warn("Failed to snapshot whiteboard {}: {}", boardId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Events committed for a board since its last snapshot, and when the first of them was.
+     */
+    private static final class Pending {
+        private final long since;
+        private final AtomicInteger events = new AtomicInteger();
+
+        private Pending(long since) {
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.quantumleap.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quantumleap.dto.ws.EventEnvelope;
+import com.quantumleap.service.BoardSnapshotService;
+import com.quantumleap.service.BoardState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewrites the part of a board's event log that its latest snapshot covers into the fewest events that
+ * replay to the same board: the creation event of each shape still on it, with moves and style updates
+ * folded into its payload. Moves, updates and deletes up to the snapshot, and the creations of shapes it no
+ * longer has, are deleted. Rows after the snapshot are left alone.
+ * <p>
+ * Appends only ever take sequence numbers above the board's last one, so they never touch the rows being
+ * rewritten and are not blocked. A clear that commits first makes the snapshot stale and the board is
+ * skipped; one that commits after deletes the rewritten rows anyway. The board's {@code compacted_seq} is
+ * raised in the same transaction, and resumes from before it get a full replay.
+ * <p>
+ * Runs on one thread, every {@code interval-seconds}, for at most {@code max-boards-per-run} boards with
+ * {@code pause-ms} between them.
+ */
+@Component
+@Slf4j
+public class EventLogCompactor {
+
+    static final String FIND_CANDIDATES =
+            "SELECT s.whiteboard_id FROM board_snapshots s JOIN whiteboards w ON w.id = s.whiteboard_id "
+                    + "WHERE s.seq >= w.cleared_seq AND s.seq - w.compacted_seq >= ? "
+                    + "ORDER BY s.seq - w.compacted_seq DESC LIMIT ?";
+    static final String SELECT_CREATIONS =
+            "SELECT id, payload FROM events WHERE whiteboard_id = ? AND seq <= ? AND event_type IN ('LINE_DRAWN', 'SHAPE_ADDED', 'TEXT_ADDED')";
+    static final String DELETE_EDITS =
+            "WITH gone AS (DELETE FROM events WHERE whiteboard_id = ? AND seq <= ? "
+                    + "AND event_type IN ('SHAPE_MOVED', 'SHAPE_UPDATED', 'SHAPE_DELETED') RETURNING octet_length(payload) AS bytes) "
+                    + "SELECT count(*), coalesce(sum(bytes), 0) FROM gone";
+    static final String DELETE_EVENT = "DELETE FROM events WHERE id = ?";
+    static final String REWRITE_PAYLOAD = "UPDATE events SET payload = ? WHERE id = ?";
+    static final String MARK_COMPACTED =
+            "UPDATE whiteboards SET compacted_seq = ? WHERE id = ? AND compacted_seq < ? AND cleared_seq <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BoardSnapshotService boardSnapshots;
+    private final ObjectMapper objectMapper;
+    private final int minEvents;
+    private final int maxBoardsPerRun;
+    private final long pauseMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private final Timer compactionTimer;
+    private final Counter rowsReclaimed;
+    private final Counter bytesReclaimed;
+    private final Counter failedCompactions;
+
+    public EventLogCompactor(DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             BoardSnapshotService boardSnapshots,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${quantumleap.compaction.enabled:true}") boolean enabled,
+                             @Value("${quantumleap.compaction.interval-seconds:300}") long intervalSeconds,
+                             @Value("${quantumleap.compaction.min-events:1000}") int minEvents,
+                             @Value("${quantumleap.compaction.max-boards-per-run:10}") int maxBoardsPerRun,
+                             @Value("${quantumleap.compaction.pause-ms:200}") long pauseMillis) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.boardSnapshots = boardSnapshots;
+        this.objectMapper = objectMapper;
+        this.minEvents = minEvents;
+        this.maxBoardsPerRun = maxBoardsPerRun;
+        this.pauseMillis = pauseMillis;
+
+        this.compactionTimer = Timer.builder("quantumleap.compaction.board")
+                .description("Time to rewrite one board's compacted history")
+                .register(meterRegistry);
+        this.rowsReclaimed = Counter.builder("quantumleap.compaction.rows.reclaimed")
+                .description("Event rows deleted by compaction")
+                .register(meterRegistry);
+        this.bytesReclaimed = Counter.builder("quantumleap.compaction.bytes.reclaimed")
+                .description("Event payload bytes deleted or shrunk by compaction; freed on disk by vacuum")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.failedCompactions = Counter.builder("quantumleap.compaction.failed")
+                .description("Boards whose compaction failed and was rolled back")
+                .register(meterRegistry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("event-log-compactor").daemon(true).factory());
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::run, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+            log.info("Event log compaction every {} s for up to {} boards with {} compactable events",
+                    intervalSeconds, maxBoardsPerRun, minEvents);
+        }
+    }
+
+    private void run() {
+        try {
+            List<UUID> boards = jdbcTemplate.queryForList(FIND_CANDIDATES, UUID.class, minEvents, maxBoardsPerRun);
+            for (UUID boardId : boards) {
+                try {
+                    boardSnapshots.getLatestSnapshot(boardId).ifPresent(state -> compact(boardId, state));
+                } catch (Exception e) {
+                    failedCompactions.increment();
+                    log.warn("Failed to compact whiteboard {}: {}", boardId, e.getMessage());
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Event log compaction run failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Compact the board's history up to {@code state}, which must be the board folded from its whole history
+     * up to {@code state.seq()}.
+     *
+     * @return what was reclaimed, or empty if the board was cleared after the state or already compacted past it
+     */
+    public Optional<Reclaimed> compact(UUID boardId, BoardState state) {
+        long start = System.nanoTime();
+        long upTo = state.seq();
+        Map<String, EventEnvelope> live = new HashMap<>();
+        for (EventEnvelope shape : state.shapes()) {
+            live.put(shape.getId(), shape);
+        }
+
+        Reclaimed reclaimed = transactionTemplate.execute(status -> {
+            long[] edits = jdbcTemplate.queryForObject(DELETE_EDITS,
+                    (rs, row) -> new long[]{rs.getLong(1), rs.getLong(2)}, boardId, upTo);
+            int rows = (int) edits[0];
+            long bytes = edits[1];
+
+            List<Object[]> deletes = new ArrayList<>();
+            List<Object[]> rewrites = new ArrayList<>();
+            for (Map<String, Object> creation : jdbcTemplate.queryForList(SELECT_CREATIONS, boardId, upTo)) {
+                UUID id = (UUID) creation.get("id");
+                String payload = (String) creation.get("payload");
+                int size = payload.getBytes(StandardCharsets.UTF_8).length;
+                EventEnvelope shape = live.get(id.toString());
+                if (shape == null) {
+                    deletes.add(new Object[]{id});
+                    rows++;
+                    bytes += size;
+                    continue;
+                }
+                String folded = foldedPayload(payload, shape);
+                if (folded != null) {
+                    rewrites.add(new Object[]{folded, id});
+                    bytes += size - folded.getBytes(StandardCharsets.UTF_8).length;
+                }
+            }
+            jdbcTemplate.batchUpdate(DELETE_EVENT, deletes);
+            jdbcTemplate.batchUpdate(REWRITE_PAYLOAD, rewrites);
+
+            // Also the check against a clear or another compaction that committed in the meantime
+            if (jdbcTemplate.update(MARK_COMPACTED, upTo, boardId, upTo, upTo) == 0) {
+                status.setRollbackOnly();
+                return null;
+            }
+            return new Reclaimed(rows, bytes);
+        });
+
+        if (reclaimed == null) {
+            return Optional.empty();
+        }
+        compactionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        rowsReclaimed.increment(reclaimed.rows());
+        bytesReclaimed.increment(reclaimed.bytes());
+        log.debug("Compacted whiteboard {} up to seq {}: {} rows, {} bytes", boardId, upTo, reclaimed.rows(), reclaimed.bytes());
+        return Optional.of(reclaimed);
+    }
+
+    /**
+     * The shape's folded payload if it differs from what its creation row holds, else null.
+     */
+    private String foldedPayload(String stored, EventEnvelope shape) {
+        try {
+            JsonNode folded = objectMapper.valueToTree(shape.getData());
+            if (folded.equals(objectMapper.readTree(stored))) {
+                return null;
+            }
+            return objectMapper.writeValueAsString(folded);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize compacted payload", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Event rows deleted, and payload bytes deleted or saved by rewriting, for one compaction.
+     */
+    public record Reclaimed(int rows, long bytes) {
+    }
+}
@@ -4,22 +4,35 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quantumleap.dto.ws.EventEnvelope;
 import com.quantumleap.entity.Event;
 import com.quantumleap.entity.Whiteboard;
-import com.quantumleap.entity.User;
+import com.quantumleap.jfr.EventPersistedEvent;
 import com.quantumleap.repository.EventRepository;
 import com.quantumleap.service.EventService;
 import com.quantumleap.service.WhiteboardService;
-import com.quantumleap.service.AuthService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementation of EventService
@@ -32,50 +45,80 @@ public class EventServiceImpl implements EventService {
 
     private final EventRepository eventRepository;
     private final WhiteboardService whiteboardService;
-    private final AuthService authService;
     private final ObjectMapper objectMapper;
+    private final WriteBehindEventWriter writeBehindEventWriter;
+    private final MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Timer persisted;
+    private Timer persistFailed;
+    private Timer replayFull;
+    private Timer replaySince;
+
+    @PostConstruct
+    void registerMeters() {
+        persisted = persistTimer("committed");
+        persistFailed = persistTimer("failed");
+        replayFull = replayTimer("full");
+        replaySince = replayTimer("since");
+    }
 
-    @Override
-    public EventEnvelope processEvent(EventEnvelope eventEnvelope, UUID userId) {
-        try {
-            log.debug("Processing event of type: {} for user: {}", eventEnvelope.getType(), userId);
-            
-            UUID boardId = UUID.fromString(eventEnvelope.getBoardId());
-            
-            // Verify user has access to whiteboard
-            if (!whiteboardService.hasAccessToWhiteboard(boardId, userId)) {
-                throw new RuntimeException("User does not have access to this whiteboard");
-            }
-
-            // Create and persist event
-            Event event = new Event();
-            event.setWhiteboard(whiteboardService.getWhiteboardById(boardId));
-            event.setUser(authService.getUserById(userId));
-            event.setEventType(eventEnvelope.getType());
-            event.setPayload(objectMapper.writeValueAsString(eventEnvelope.getData()));
-            event.setTs(eventEnvelope.getTs());
-
-            Event savedEvent = eventRepository.save(event);
-
-            // Convert back to envelope
-            EventEnvelope processedEvent = convertToEventEnvelope(savedEvent);
-            processedEvent.setTempId(eventEnvelope.getTempId());
+    private Timer persistTimer(String outcome) {
+        return Timer.builder("quantumleap.events.persist")
+                .description("Time from handing an event to the write-behind writer until its batch commits or fails")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
 
-            log.info("Event processed successfully: {} for whiteboard: {}", eventEnvelope.getType(), boardId);
-            return processedEvent;
+    private Timer replayTimer(String kind) {
+        return Timer.builder("quantumleap.events.replay.query")
+                .description("Time spent reading a board's events from the database for replay")
+                .tag("kind", kind)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<EventEnvelope> appendEvent(EventEnvelope eventEnvelope, UUID userId) {
+        UUID eventId = eventEnvelope.getId() != null ? UUID.fromString(eventEnvelope.getId()) : UUID.randomUUID();
+        UUID boardId = UUID.fromString(eventEnvelope.getBoardId());
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(eventEnvelope.getData());
         } catch (Exception e) {
-            log.error("Failed to process event: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to process event", e);
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to serialize event payload", e));
         }
+
+        EventEnvelope envelope = new EventEnvelope(eventId.toString(), boardId.toString(), userId.toString(),
+                eventEnvelope.getType(), eventEnvelope.getTs(), eventEnvelope.getData(), eventEnvelope.getTempId());
+        EventPersistedEvent persistedEvent = new EventPersistedEvent();
+        persistedEvent.begin();
+        long start = System.nanoTime();
+        return writeBehindEventWriter.append(eventId, boardId, userId, eventEnvelope.getType(), payload, eventEnvelope.getTs())
+                .whenComplete((seq, e) -> {
+                    (e == null ? persisted : persistFailed).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    persistedEvent.finish(boardId, envelope.getType(), payload.length(), e == null ? seq : null);
+                })
+                .thenApply(seq -> {
+                    envelope.setSeq(seq);
+                    return envelope;
+                });
     }
 
     @Override
     public List<EventEnvelope> getEventsForBoard(UUID boardId, int limit) {
         log.debug("Fetching {} events for whiteboard: {}", limit, boardId);
         
-        Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.ASC, "ts"));
-        List<Event> events = eventRepository.findByWhiteboardIdOrderByTsAsc(boardId, pageable).getContent();
+        Pageable pageable = PageRequest.of(0, limit);
+        List<Event> events = eventRepository.findByWhiteboardIdOrderBySeqAscTsAsc(boardId, pageable).getContent();
         
         return events.stream()
                 .map(this::convertToEventEnvelope)
@@ -86,14 +129,61 @@ public class EventServiceImpl implements EventService {
     public List<EventEnvelope> getEventsForBoard(UUID boardId, int offset, int limit) {
         log.debug("Fetching {} events for whiteboard: {} starting from offset: {}", limit, boardId, offset);
         
-        Pageable pageable = PageRequest.of(offset / limit, limit, Sort.by(Sort.Direction.ASC, "ts"));
-        List<Event> events = eventRepository.findByWhiteboardIdOrderByTsAsc(boardId, pageable).getContent();
+        Pageable pageable = PageRequest.of(offset / limit, limit);
+        List<Event> events = eventRepository.findByWhiteboardIdOrderBySeqAscTsAsc(boardId, pageable).getContent();
         
         return events.stream()
                 .map(this::convertToEventEnvelope)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void streamEventsForBoard(UUID boardId, long afterSeq, int chunkSize, Consumer<List<EventEnvelope>> sink) {
+        log.debug("Streaming events for whiteboard: {} after sequence: {} in chunks of {}", boardId, afterSeq, chunkSize);
+
+        List<EventEnvelope> chunk = new ArrayList<>(chunkSize);
+        // Only the time spent reading rows counts; the sink may be pacing itself to a slow client
+        long queryNanos = 0;
+        long start = System.nanoTime();
+        try (Stream<Event> events = eventRepository.streamByWhiteboardIdAfter(boardId, afterSeq)) {
+            Iterator<Event> rows = events.iterator();
+            while (rows.hasNext()) {
+                chunk.add(convertToEventEnvelope(rows.next()));
+                if (chunk.size() == chunkSize) {
+                    // Converted rows are not needed again; keep the persistence context from growing with the board
+                    entityManager.clear();
+                    queryNanos += System.nanoTime() - start;
+                    sink.accept(chunk);
+                    start = System.nanoTime();
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+        queryNanos += System.nanoTime() - start;
+        replayFull.record(queryNanos, TimeUnit.NANOSECONDS);
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+    }
+
+    @Override
+    // One snapshot for the board row and the events, so a compaction committing in between cannot go unseen
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Optional<List<EventEnvelope>> getEventsSince(UUID boardId, long sinceSeq, int limit) {
+        log.debug("Fetching events for whiteboard: {} after sequence: {}", boardId, sinceSeq);
+
+        Whiteboard whiteboard = whiteboardService.getWhiteboardById(boardId);
+        long lastSeq = whiteboard.getLastSeq();
+        if (sinceSeq < Math.max(whiteboard.getClearedSeq(), whiteboard.getCompactedSeq()) || sinceSeq > lastSeq || lastSeq - sinceSeq > limit) {
+            return Optional.empty();
+        }
+        List<Event> events = replaySince.record(() -> eventRepository.findByWhiteboardIdAndSeqGreaterThanOrderBySeqAsc(boardId, sinceSeq, PageRequest.of(0, limit)));
+        return Optional.of(events.stream()
+                .map(this::convertToEventEnvelope)
+                .collect(Collectors.toList()));
+    }
+
     @Override
     public EventEnvelope getEventById(UUID eventId) {
         log.debug("Fetching event by ID: {}", eventId);
@@ -124,6 +214,13 @@ public class EventServiceImpl implements EventService {
         log.info("Deleted {} events for whiteboard: {}", deletedCount, boardId);
     }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<Long> clearEventsForBoard(UUID boardId) {
+        log.debug("Queueing deletion of all events for whiteboard: {}", boardId);
+        return writeBehindEventWriter.clearBoard(boardId);
+    }
+
     @Override
     public long getEventCountForBoard(UUID boardId) {
         return eventRepository.countByWhiteboardId(boardId);
@@ -139,6 +236,9 @@ public class EventServiceImpl implements EventService {
         envelope.setBoardId(event.getWhiteboard().getId().toString());
         envelope.setUserId(event.getUser().getId().toString());
         envelope.setTs(event.getTs());
+        if (event.getSeq() > 0) {
+            envelope.setSeq(event.getSeq());
+        }
         
         try {
             // Parse the JSON payload back to Object
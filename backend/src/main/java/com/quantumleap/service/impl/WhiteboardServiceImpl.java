@@ -8,9 +8,13 @@ import com.quantumleap.repository.WhiteboardRepository;
 import com.quantumleap.repository.WhiteboardMemberRepository;
 import com.quantumleap.repository.UserRepository;
 import com.quantumleap.repository.EventRepository;
+import com.quantumleap.repository.BoardSnapshotRepository;
+import com.quantumleap.service.WhiteboardDeleted;
 import com.quantumleap.service.WhiteboardService;
+import com.quantumleap.service.WhiteboardWriteModeChanged;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,6 +36,8 @@ public class WhiteboardServiceImpl implements WhiteboardService {
     private final WhiteboardMemberRepository whiteboardMemberRepository;
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
+    private final BoardSnapshotRepository boardSnapshotRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<WhiteboardResponse> getUserWhiteboards(UUID userId) {
@@ -154,12 +160,14 @@ public class WhiteboardServiceImpl implements WhiteboardService {
             // Delete all events first (they reference the whiteboard)
             int deletedEvents = eventRepository.deleteByWhiteboardId(boardId);
             log.debug("Deleted {} events for whiteboard: {}", deletedEvents, boardId);
+            boardSnapshotRepository.deleteByWhiteboardId(boardId);
             
             // Delete all memberships
             whiteboardMemberRepository.deleteByWhiteboardId(boardId);
             
             // Finally delete the whiteboard
             whiteboardRepository.deleteById(boardId);
+            eventPublisher.publishEvent(new WhiteboardDeleted(boardId));
 
             log.info("Whiteboard {} deleted successfully by user: {}", boardId, userId);
         } catch (Exception e) {
@@ -195,6 +203,35 @@ public class WhiteboardServiceImpl implements WhiteboardService {
                 .orElseThrow(() -> new RuntimeException("Whiteboard not found"));
     }
 
+    @Override
+    public WhiteboardResponse updateWriteMode(UUID boardId, UUID userId, boolean optimistic) {
+        log.debug("User {} setting optimistic writes to {} for whiteboard: {}", userId, optimistic, boardId);
+        
+        Whiteboard whiteboard = whiteboardRepository.findById(boardId)
+                .orElseThrow(() -> new RuntimeException("Whiteboard not found"));
+        
+        WhiteboardMember membership = whiteboardMemberRepository.findByWhiteboardIdAndUserId(boardId, userId)
+                .orElseThrow(() -> new RuntimeException("Access denied to whiteboard"));
+
+        if (!membership.isOwner()) {
+            throw new RuntimeException("Only whiteboard owner can change the write mode");
+        }
+
+        whiteboard.setOptimisticWrites(optimistic);
+        Whiteboard savedWhiteboard = whiteboardRepository.save(whiteboard);
+        // Picked up by the WebSocket layer once this transaction commits
+        eventPublisher.publishEvent(new WhiteboardWriteModeChanged(boardId, optimistic));
+
+        log.info("Whiteboard {} write mode set to {} by user: {}", boardId, optimistic ? "optimistic" : "durable", userId);
+        return convertToWhiteboardResponse(savedWhiteboard, true);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isOptimisticWrites(UUID boardId) {
+        return getWhiteboardById(boardId).isOptimisticWrites();
+    }
+
     /**
      * Convert Whiteboard entity to WhiteboardResponse
      */
@@ -206,6 +243,7 @@ public class WhiteboardServiceImpl implements WhiteboardService {
         response.setCreatedAt(whiteboard.getCreatedAt());
         response.setOwner(isOwner);
         response.setPublic(true); // All whiteboards are public
+        response.setOptimisticWrites(whiteboard.isOptimisticWrites());
         return response;
     }
 }
@@ -0,0 +1,250 @@
+package com.quantumleap.service.impl;
+
+import com.quantumleap.jfr.PersistFlushEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for board events with group commit.
+ * <p>
+ * Appends from all boards go into one bounded ring buffer. A single flusher thread takes up to
+ * {@code batch-size} of them, waiting at most {@code max-loss-window-ms} after the first one, and writes them
+ * as one JDBC batch in one transaction. Each append's future completes only after that commit, so callers
+ * acknowledge durable events only; what a crash can lose is what was accepted but not yet acknowledged.
+ * <p>
+ * Board clears travel through the same buffer, so they apply after every append queued before them.
+ * If a batch fails, its operations are retried one per transaction so one bad row fails alone.
+ * <p>
+ * Every operation takes the board's next sequence number inside the transaction that writes it. The numbers
+ * are reserved on the board's row, so a rolled-back batch gives them back and the sequence has no gaps.
+ */
+@Component
+@Slf4j
+public class WriteBehindEventWriter {
+
+    static final String INSERT_EVENT =
+            "INSERT INTO events (id, whiteboard_id, user_id, event_type, payload, ts, seq) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    static final String DELETE_BOARD_EVENTS = "DELETE FROM events WHERE whiteboard_id = ?";
+    static final String RESERVE_SEQ = "UPDATE whiteboards SET last_seq = last_seq + ? WHERE id = ? RETURNING last_seq";
+    static final String MARK_CLEARED = "UPDATE whiteboards SET cleared_seq = ? WHERE id = ?";
+    private static final int SEQ_COLUMN = 6;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Op> ring;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long enqueueTimeoutMillis;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSizes;
+    private final Timer flushTimer;
+    private final Counter failedOps;
+
+    public WriteBehindEventWriter(DataSource dataSource,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${quantumleap.persistence.write-behind.capacity:8192}") int capacity,
+                                  @Value("${quantumleap.persistence.write-behind.batch-size:256}") int batchSize,
+                                  @Value("${quantumleap.persistence.write-behind.max-loss-window-ms:5}") long maxLossWindowMillis,
+                                  @Value("${quantumleap.persistence.write-behind.enqueue-timeout-ms:1000}") long enqueueTimeoutMillis) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ring = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLossWindowMillis);
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+
+        Gauge.builder("quantumleap.persist.pending", ring, BlockingQueue::size)
+                .description("Events accepted and not yet committed")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("quantumleap.persist.batch.size")
+                .description("Operations written per group commit")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("quantumleap.persist.flush")
+                .description("Time to write and commit one batch")
+                .register(meterRegistry);
+        this.failedOps = Counter.builder("quantumleap.persist.failed")
+                .description("Queued operations that could not be committed")
+                .register(meterRegistry);
+
+        this.flusher = Thread.ofPlatform().name("event-write-behind").daemon(true).start(this::run);
+        log.info("Write-behind event writer: capacity {}, batch size {}, max loss window {} ms",
+                capacity, batchSize, maxLossWindowMillis);
+    }
+
+    /**
+     * Queue an insert. The future completes with the event's sequence number after the batch holding it has committed.
+     */
+    public CompletableFuture<Long> append(UUID id, UUID boardId, UUID userId, String eventType, String payload, OffsetDateTime ts) {
+        return enqueue(new Op(boardId, new Object[]{id, boardId, userId, eventType, payload, ts, null}));
+    }
+
+    /**
+     * Queue deletion of a board's events, ordered after every append queued before it.
+     * The clear takes a sequence number of its own, so resuming clients can tell they missed it.
+     */
+    public CompletableFuture<Long> clearBoard(UUID boardId) {
+        return enqueue(new Op(boardId, null));
+    }
+
+    private CompletableFuture<Long> enqueue(Op op) {
+        try {
+            // A full ring pushes back on the ingestion lanes instead of growing without bound
+            if (running && ring.offer(op, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return op.done;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failedOps.increment();
+        return CompletableFuture.failedFuture(new RuntimeException("Event write buffer is full"));
+    }
+
+    private void run() {
+        List<Op> batch = new ArrayList<>(batchSize);
+        while (running || !ring.isEmpty()) {
+            try {
+                Op first = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Op next = remaining > 0 ? ring.poll(remaining, TimeUnit.NANOSECONDS) : ring.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: fall through, write what we hold and drain the rest without waiting
+                ring.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    void flush(List<Op> batch) {
+        PersistFlushEvent flushEvent = new PersistFlushEvent();
+        flushEvent.begin();
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+            flushEvent.finish(batch.size(), true);
+            batchSizes.record(batch.size());
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (Op op : batch) {
+                op.done.complete(op.seq);
+            }
+        } catch (DataAccessException e) {
+            flushEvent.finish(batch.size(), false);
+            log.warn("Batch of {} event operations failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Op op : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(List.of(op)));
+                    op.done.complete(op.seq);
+                } catch (Exception single) {
+                    log.error("Failed to persist event operation: {}", single.getMessage());
+                    failedOps.increment();
+                    op.done.completeExceptionally(single);
+                }
+            }
+        } catch (Exception e) {
+            flushEvent.finish(batch.size(), false);
+            log.error("Failed to persist batch of {} event operations: {}", batch.size(), e.getMessage(), e);
+            failedOps.increment(batch.size());
+            for (Op op : batch) {
+                op.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void write(List<Op> ops) {
+        // One reservation per board; boards are locked in UUID order so concurrent writers cannot deadlock
+        Map<UUID, Integer> counts = new TreeMap<>();
+        for (Op op : ops) {
+            counts.merge(op.boardId, 1, Integer::sum);
+        }
+        Map<UUID, Long> nextSeq = new HashMap<>();
+        counts.forEach((boardId, count) -> {
+            Long last = jdbcTemplate.queryForObject(RESERVE_SEQ, Long.class, count, boardId);
+            nextSeq.put(boardId, last - count + 1);
+        });
+
+        List<Object[]> inserts = new ArrayList<>(ops.size());
+        for (Op op : ops) {
+            op.seq = nextSeq.merge(op.boardId, 1L, Long::sum) - 1;
+            if (op.insert != null) {
+                op.insert[SEQ_COLUMN] = op.seq;
+                inserts.add(op.insert);
+            } else {
+                // Rows queued before the clear must land first so the clear removes them too
+                batchInsert(inserts);
+                jdbcTemplate.update(DELETE_BOARD_EVENTS, op.boardId);
+                jdbcTemplate.update(MARK_CLEARED, op.seq, op.boardId);
+            }
+        }
+        batchInsert(inserts);
+    }
+
+    private void batchInsert(List<Object[]> inserts) {
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_EVENT, inserts);
+            inserts.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * One queued operation: an insert's column values, or a clear of the board when there are none.
+     */
+    static final class Op {
+        private final UUID boardId;
+        private final Object[] insert;
+        private final CompletableFuture<Long> done = new CompletableFuture<>();
+        // Assigned inside the writing transaction; reassigned if the operation is retried alone
+        private long seq;
+
+        private Op(UUID boardId, Object[] insert) {
+            this.boardId = boardId;
+            this.insert = insert;
+        }
+    }
+}
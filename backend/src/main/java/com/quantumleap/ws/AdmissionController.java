@@ -0,0 +1,170 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Session budgets checked at handshake time: per node, per user and per board.
+ * <p>
+ * A board that is full can still take a number of read-only sessions, which receive content and
+ * low-frequency cursor snapshots but cannot draw. Everything beyond that is rejected with a
+ * jittered retry-after hint so that rejected clients do not all come back at once.
+ */
+@Component
+public class AdmissionController {
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+    public static final String TICKET_ATTRIBUTE = AdmissionController.class.getName() + ".TICKET";
+
+    public enum Mode { FULL, READ_ONLY }
+
+    /**
+     * A reserved session slot; must be released exactly once.
+     */
+    public record Ticket(UUID boardId, UUID userId, Mode mode) {
+    }
+
+    public record Rejection(HttpStatus status, String reason, int retryAfterSeconds) {
+    }
+
+    /**
+     * Either a ticket or a rejection.
+     */
+    public record Admission(Ticket ticket, Rejection rejection) {
+        public boolean admitted() {
+            return ticket != null;
+        }
+    }
+
+    private static final class BoardSlots {
+        private int full;
+        private int readOnly;
+    }
+
+    private final int maxSessionsPerBoard;
+    private final int maxReadOnlyPerBoard;
+    private final int maxSessionsPerNode;
+    private final int maxSessionsPerUser;
+    private final int retryAfterSeconds;
+
+    private final AtomicInteger nodeSessions = new AtomicInteger();
+    private final Map<UUID, AtomicInteger> userSessions = new ConcurrentHashMap<>();
+    private final Map<UUID, BoardSlots> boards = new ConcurrentHashMap<>();
+
+    private final Counter admittedFull;
+    private final Counter admittedReadOnly;
+    private final Counter rejectedBoard;
+    private final Counter rejectedNode;
+    private final Counter rejectedUser;
+
+    public AdmissionController(MeterRegistry meterRegistry,
+                               @Value("${quantumleap.websocket.max-sessions-per-board:100}") int maxSessionsPerBoard,
+                               @Value("${quantumleap.websocket.admission.read-only-sessions-per-board:400}") int maxReadOnlyPerBoard,
+                               @Value("${quantumleap.websocket.admission.max-sessions-per-node:10000}") int maxSessionsPerNode,
+                               @Value("${quantumleap.websocket.admission.max-sessions-per-user:10}") int maxSessionsPerUser,
+                               @Value("${quantumleap.websocket.admission.retry-after-seconds:5}") int retryAfterSeconds) {
+        this.maxSessionsPerBoard = maxSessionsPerBoard;
+        this.maxReadOnlyPerBoard = maxReadOnlyPerBoard;
+        this.maxSessionsPerNode = maxSessionsPerNode;
+        this.maxSessionsPerUser = maxSessionsPerUser;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+
+        this.admittedFull = decisionCounter(meterRegistry, "full");
+        this.admittedReadOnly = decisionCounter(meterRegistry, "read_only");
+        this.rejectedBoard = decisionCounter(meterRegistry, "rejected_board");
+        this.rejectedNode = decisionCounter(meterRegistry, "rejected_node");
+        this.rejectedUser = decisionCounter(meterRegistry, "rejected_user");
+        Gauge.builder("quantumleap.ws.admission.sessions", nodeSessions, AtomicInteger::get)
+                .description("Sessions holding an admission ticket on this node")
+                .register(meterRegistry);
+
+        log.info("[WS] Admission limits: board={} (+{} read-only), node={}, user={}",
+                maxSessionsPerBoard, maxReadOnlyPerBoard, maxSessionsPerNode, maxSessionsPerUser);
+    }
+
+    /**
+     * Reserve a slot for the user on the board, falling back to read-only when the board is full.
+     */
+    public Admission admit(UUID boardId, UUID userId) {
+        if (nodeSessions.incrementAndGet() > maxSessionsPerNode) {
+            nodeSessions.decrementAndGet();
+            rejectedNode.increment();
+            return reject(HttpStatus.SERVICE_UNAVAILABLE, "Server is at capacity");
+        }
+        // Counted inside compute so that a concurrent release cannot drop the entry under us
+        int[] perUser = new int[1];
+        userSessions.compute(userId, (id, count) -> {
+            AtomicInteger target = count != null ? count : new AtomicInteger();
+            perUser[0] = target.incrementAndGet();
+            return target;
+        });
+        if (perUser[0] > maxSessionsPerUser) {
+            releaseUser(userId);
+            nodeSessions.decrementAndGet();
+            rejectedUser.increment();
+            return reject(HttpStatus.TOO_MANY_REQUESTS, "Too many connections for this user");
+        }
+        Mode[] mode = new Mode[1];
+        boards.compute(boardId, (id, slots) -> {
+            BoardSlots target = slots != null ? slots : new BoardSlots();
+            if (target.full < maxSessionsPerBoard) {
+                target.full++;
+                mode[0] = Mode.FULL;
+            } else if (target.readOnly < maxReadOnlyPerBoard) {
+                target.readOnly++;
+                mode[0] = Mode.READ_ONLY;
+            }
+            return target.full + target.readOnly > 0 ? target : null;
+        });
+        if (mode[0] == null) {
+            releaseUser(userId);
+            nodeSessions.decrementAndGet();
+            rejectedBoard.increment();
+            return reject(HttpStatus.SERVICE_UNAVAILABLE, "Board is full");
+        }
+        (mode[0] == Mode.FULL ? admittedFull : admittedReadOnly).increment();
+        return new Admission(new Ticket(boardId, userId, mode[0]), null);
+    }
+
+    public void release(Ticket ticket) {
+        boards.computeIfPresent(ticket.boardId(), (id, slots) -> {
+            if (ticket.mode() == Mode.FULL) {
+                slots.full--;
+            } else {
+                slots.readOnly--;
+            }
+            return slots.full + slots.readOnly > 0 ? slots : null;
+        });
+        releaseUser(ticket.userId());
+        nodeSessions.decrementAndGet();
+    }
+
+    private void releaseUser(UUID userId) {
+        userSessions.computeIfPresent(userId, (id, count) -> count.decrementAndGet() > 0 ? count : null);
+    }
+
+    private Rejection reject(HttpStatus status, String reason) {
+        // Full jitter on top of the base so that a burst of rejected clients spreads out
+        int retryAfter = retryAfterSeconds + ThreadLocalRandom.current().nextInt(retryAfterSeconds + 1);
+        return new Rejection(status, reason, retryAfter);
+    }
+
+    private static Counter decisionCounter(MeterRegistry registry, String result) {
+        return Counter.builder("quantumleap.ws.admission.decisions")
+                .description("Handshake admission decisions")
+                .tag("result", result)
+                .register(registry);
+    }
+}
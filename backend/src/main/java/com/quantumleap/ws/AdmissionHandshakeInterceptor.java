@@ -0,0 +1,70 @@
+package com.quantumleap.ws;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Applies {@link AdmissionController} before the upgrade, so that a rejected client costs one HTTP
+ * response instead of a WebSocket session. Rejections are answered with 503 or 429 and a Retry-After header.
+ * Runs after {@link JwtHandshakeInterceptor} and uses the identity it established.
+ */
+@Component
+public class AdmissionHandshakeInterceptor implements HandshakeInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(AdmissionHandshakeInterceptor.class);
+
+    private final AdmissionController admissionController;
+
+    public AdmissionHandshakeInterceptor(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (!(attributes.get(JwtHandshakeInterceptor.IDENTITY_ATTRIBUTE) instanceof JwtHandshakeInterceptor.Identity identity)) {
+            // Not authenticated; the handler refuses the session
+            return true;
+        }
+        UUID boardId = identity.boardId();
+        UUID userId = identity.userId();
+        AdmissionController.Admission admission = admissionController.admit(boardId, userId);
+        if (admission.admitted()) {
+            attributes.put(AdmissionController.TICKET_ATTRIBUTE, admission.ticket());
+            if (request instanceof ServletServerHttpRequest servletRequest) {
+                // afterHandshake has no access to the session attributes
+                servletRequest.getServletRequest().setAttribute(AdmissionController.TICKET_ATTRIBUTE, admission.ticket());
+            }
+            return true;
+        }
+        AdmissionController.Rejection rejection = admission.rejection();
+        log.warn("[WS] Rejected user {} on board {}: {} (retry after {}s)",
+                userId, boardId, rejection.reason(), rejection.retryAfterSeconds());
+        response.setStatusCode(rejection.status());
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Integer.toString(rejection.retryAfterSeconds()));
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+        // A failed or refused upgrade never reaches afterConnectionClosed, so its slot is returned here
+        boolean failed = exception != null || response instanceof ServletServerHttpResponse servletResponse
+                && servletResponse.getServletResponse().getStatus() >= 400;
+        if (failed && request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(AdmissionController.TICKET_ATTRIBUTE)
+                        instanceof AdmissionController.Ticket ticket) {
+            admissionController.release(ticket);
+        }
+    }
+}
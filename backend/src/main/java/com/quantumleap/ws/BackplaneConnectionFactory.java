@@ -0,0 +1,37 @@
+package com.quantumleap.ws;
+
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Opens unpooled connections for the Postgres backplane.
+ * <p>
+ * LISTEN registrations and session-level advisory locks belong to the physical connection, so they must not
+ * go back to the application pool when closed. Connections carry the node ID as {@code application_name}.
+ */
+@Component
+@ConditionalOnProperty(name = "quantumleap.websocket.bus.type", havingValue = "postgres")
+public class BackplaneConnectionFactory {
+
+    private final PGSimpleDataSource dataSource = new PGSimpleDataSource();
+
+    public BackplaneConnectionFactory(DataSourceProperties properties, NodeIdentity node) {
+        dataSource.setUrl(properties.determineUrl());
+        dataSource.setUser(properties.determineUsername());
+        dataSource.setPassword(properties.determinePassword());
+        dataSource.setApplicationName(node.id());
+        // Lets both sides notice a dead peer, which is what frees a crashed node's leases
+        dataSource.setTcpKeepAlive(true);
+    }
+
+    public Connection open() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(true);
+        return connection;
+    }
+}
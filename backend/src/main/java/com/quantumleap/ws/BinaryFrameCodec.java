@@ -0,0 +1,325 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.CursorUpdateEvent;
+import com.quantumleap.dto.ws.EventEnvelope;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Codec for the compact binary subprotocol ({@value #PROTOCOL}).
+ * <p>
+ * Only the two hot message kinds have a binary form; everything else stays JSON in text frames.
+ * All fixed-width numbers are little-endian. Stroke coordinates are quantized to 1/100 px and
+ * written as zigzag varint deltas from the previous coordinate of the same axis.
+ * <pre>
+ * client -> server
+ *   0x01 CURSOR_MOVE   f32 x, f32 y
+ *   0x02 LINE_DRAWN    stroke
+ * server -> client
+ *   0x81 CURSORS_FRAME varint n, n * (uuid userId, f32 x, f32 y)
+ *   0x82 LINE_DRAWN    uuid eventId, uuid userId, i64 tsMillis, varint seq (0 if none), stroke
+ * stroke = string tempId, string color, f32 strokeWidth, varint coordCount, coordCount * zigzag varint delta
+ * string = varint byteLength, UTF-8 bytes
+ * uuid   = i64 mostSigBits, i64 leastSigBits
+ * </pre>
+ */
+public final class BinaryFrameCodec {
+
+    public static final String PROTOCOL = "quantumleap.bin.v2";
+
+    static final byte CURSOR_MOVE = 0x01;
+    static final byte LINE_DRAWN = 0x02;
+    static final byte CURSORS_FRAME_OUT = (byte) 0x81;
+    static final byte LINE_DRAWN_OUT = (byte) 0x82;
+
+    private static final double COORD_SCALE = 100.0;
+    private static final Set<String> STROKE_KEYS = Set.of("points", "color", "strokeWidth");
+
+    private BinaryFrameCodec() {
+    }
+
+    /**
+     * Decode a client frame into the envelope the JSON path would have produced.
+     *
+     * @throws IllegalArgumentException if the frame is malformed or of an unknown kind
+     */
+    public static EventEnvelope decode(ByteBuffer frame) {
+        ByteBuffer in = frame.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            byte kind = in.get();
+            EventEnvelope envelope = new EventEnvelope();
+            Map<String, Object> data = new HashMap<>();
+            switch (kind) {
+                case CURSOR_MOVE -> {
+                    envelope.setType("CURSOR_MOVE");
+                    data.put("x", (double) in.getFloat());
+                    data.put("y", (double) in.getFloat());
+                }
+                case LINE_DRAWN -> {
+                    envelope.setType("LINE_DRAWN");
+                    envelope.setTempId(readString(in));
+                    readStroke(in, data);
+                }
+                default -> throw new IllegalArgumentException("Unknown binary frame kind: " + kind);
+            }
+            envelope.setData(data);
+            return envelope;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated binary frame", e);
+        }
+    }
+
+    public static byte[] encodeCursorMove(double x, double y) {
+        Out out = new Out(9);
+        out.put(CURSOR_MOVE);
+        out.putFloat((float) x);
+        out.putFloat((float) y);
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeLineDrawn(String tempId, String color, double strokeWidth, List<? extends Number> points) {
+        Out out = new Out(32 + points.size() * 2);
+        out.put(LINE_DRAWN);
+        out.putString(tempId);
+        writeStroke(out, color, strokeWidth, points);
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeCursorsFrame(List<CursorUpdateEvent> cursors) {
+        Out out = new Out(2 + cursors.size() * 24);
+        out.put(CURSORS_FRAME_OUT);
+        out.putVarint(cursors.size());
+        for (CursorUpdateEvent cursor : cursors) {
+            out.putUuid(cursor.getUserId());
+            out.putFloat((float) cursor.getX());
+            out.putFloat((float) cursor.getY());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode a persisted event for binary clients.
+     *
+     * @return the binary frame, or {@code null} if the event has no exact binary form
+     */
+    public static byte[] encodeAppend(EventEnvelope event) {
+        if (!"LINE_DRAWN".equals(event.getType()) || event.getId() == null || event.getUserId() == null
+                || !(event.getData() instanceof Map<?, ?> data) || !STROKE_KEYS.containsAll(data.keySet())
+                || !(data.get("points") instanceof List<?> points) || !(data.get("color") instanceof String color)
+                || !(data.get("strokeWidth") instanceof Number strokeWidth)) {
+            return null;
+        }
+        List<Number> coords = new ArrayList<>(points.size());
+        for (Object point : points) {
+            if (!(point instanceof Number number)) {
+                return null;
+            }
+            coords.add(number);
+        }
+        UUID eventId;
+        UUID userId;
+        try {
+            eventId = UUID.fromString(event.getId());
+            userId = UUID.fromString(event.getUserId());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Out out = new Out(64 + coords.size() * 2);
+        out.put(LINE_DRAWN_OUT);
+        out.putUuid(eventId);
+        out.putUuid(userId);
+        out.putLong(event.getTs() != null ? event.getTs().toInstant().toEpochMilli() : 0L);
+        out.putVarint(event.getSeq() != null ? event.getSeq() : 0L);
+        out.putString(event.getTempId());
+        writeStroke(out, color, strokeWidth.doubleValue(), coords);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a server LINE_DRAWN frame; used by tests and Java clients.
+     */
+    public static EventEnvelope decodeAppend(ByteBuffer frame) {
+        ByteBuffer in = frame.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.get() != LINE_DRAWN_OUT) {
+            throw new IllegalArgumentException("Not a LINE_DRAWN frame");
+        }
+        EventEnvelope envelope = new EventEnvelope();
+        envelope.setType("LINE_DRAWN");
+        envelope.setId(readUuid(in).toString());
+        envelope.setUserId(readUuid(in).toString());
+        envelope.setTs(OffsetDateTime.ofInstant(Instant.ofEpochMilli(in.getLong()), ZoneOffset.UTC));
+        long seq = readVarint(in);
+        envelope.setSeq(seq > 0 ? seq : null);
+        envelope.setTempId(readString(in));
+        Map<String, Object> data = new HashMap<>();
+        readStroke(in, data);
+        envelope.setData(data);
+        return envelope;
+    }
+
+    private static void writeStroke(Out out, String color, double strokeWidth, List<? extends Number> points) {
+        out.putString(color);
+        out.putFloat((float) strokeWidth);
+        out.putVarint(points.size());
+        long prevX = 0;
+        long prevY = 0;
+        for (int i = 0; i < points.size(); i++) {
+            long q = Math.round(points.get(i).doubleValue() * COORD_SCALE);
+            if ((i & 1) == 0) {
+                out.putVarint(zigzag(q - prevX));
+                prevX = q;
+            } else {
+                out.putVarint(zigzag(q - prevY));
+                prevY = q;
+            }
+        }
+    }
+
+    private static void readStroke(ByteBuffer in, Map<String, Object> data) {
+        data.put("color", readString(in));
+        data.put("strokeWidth", (double) in.getFloat());
+        int count = (int) readVarint(in);
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("Invalid coordinate count: " + count);
+        }
+        List<Double> points = new ArrayList<>(count);
+        long prevX = 0;
+        long prevY = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = unzigzag(readVarint(in));
+            long q;
+            if ((i & 1) == 0) {
+                q = prevX + delta;
+                prevX = q;
+            } else {
+                q = prevY + delta;
+                prevY = q;
+            }
+            points.add(q / COORD_SCALE);
+        }
+        data.put("points", points);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static UUID readUuid(ByteBuffer in) {
+        long most = in.getLong();
+        long least = in.getLong();
+        return new UUID(most, least);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Minimal growable little-endian writer.
+     */
+    private static final class Out {
+        private byte[] buf;
+        private int pos;
+
+        Out(int initialCapacity) {
+            buf = new byte[Math.max(16, initialCapacity)];
+        }
+
+        void put(byte b) {
+            ensure(1);
+            buf[pos++] = b;
+        }
+
+        void putFloat(float value) {
+            putInt(Float.floatToRawIntBits(value));
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                buf[pos++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buf[pos++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void putUuid(UUID uuid) {
+            putLong(uuid.getMostSignificantBits());
+            putLong(uuid.getLeastSignificantBits());
+        }
+
+        void putVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void putString(String value) {
+            if (value == null || value.isEmpty()) {
+                putVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Backplane between event persistence and the sockets that broadcast it.
+ * <p>
+ * A node publishes each event once it is committed; every node, including the publisher, hands it to its
+ * subscribers exactly once. Events published by one node for one board are delivered in publish order.
+ * Writes received by a node that does not own the board (see {@link BoardLeases}) are forwarded to the owner.
+ */
+public interface BoardEventBus {
+
+    /**
+     * Publish a committed event to every node.
+     */
+    void publish(UUID boardId, EventEnvelope event);
+
+    /**
+     * Register a listener for events from all nodes. Listeners must not block; they are called on the
+     * publishing thread for local events and on the bus thread for remote ones.
+     */
+    void subscribe(BiConsumer<UUID, EventEnvelope> listener);
+
+    /**
+     * Send a client write, not yet persisted, to the node that owns its board.
+     */
+    void forward(String ownerNodeId, UUID boardId, UUID userId, EventEnvelope write);
+
+    /**
+     * Register the handler for writes forwarded to this node. It must not block.
+     */
+    void onForwardedWrite(ForwardedWriteHandler handler);
+
+    @FunctionalInterface
+    interface ForwardedWriteHandler {
+        void accept(UUID boardId, UUID userId, EventEnvelope write);
+    }
+}
@@ -0,0 +1,23 @@
+package com.quantumleap.ws;
+
+import java.util.UUID;
+
+/**
+ * Single-writer ownership of boards across nodes.
+ * <p>
+ * Only the owner persists a board's events, so their order is decided in one place; other nodes forward
+ * writes to it over the {@link BoardEventBus}.
+ */
+public interface BoardLeases {
+
+    /**
+     * Node ID of the board's owner, taking the lease for this node if nobody holds it.
+     * May block on the database; call from the ingestion lane, never from a board loop.
+     */
+    String acquireOrLocate(UUID boardId);
+
+    /**
+     * Whether this node currently holds the board's lease.
+     */
+    boolean isOwner(UUID boardId);
+}
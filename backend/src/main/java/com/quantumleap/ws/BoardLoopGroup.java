@@ -0,0 +1,329 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed pool of single-threaded event loops that own board state.
+ * <p>
+ * Every board is an actor with its own mailbox. The actor is pinned to one loop (board-ID hash by default)
+ * and is scheduled there whenever its mailbox is non-empty, so all tasks for a board run one at a time and
+ * in order, without locks. Because an actor is only ever scheduled once at a time, it can be moved to another
+ * loop between runs; the rebalancer uses that to move hot boards off overloaded loops. A moved board stays on
+ * its new loop across quiet spells, until it is {@link #unpin unpinned} or has had no tasks for
+ * {@code pin-idle-ms}.
+ */
+@Component
+public class BoardLoopGroup {
+    private static final Logger log = LoggerFactory.getLogger(BoardLoopGroup.class);
+
+    private final Loop[] loops;
+    private final Map<UUID, BoardActor> actors = new ConcurrentHashMap<>();
+    private final Map<UUID, Pin> pinnedBoards = new ConcurrentHashMap<>();
+    private final int batchSize;
+    private final double rebalanceThreshold;
+    private final long pinIdleNanos;
+    private final ScheduledExecutorService rebalancer;
+
+    public BoardLoopGroup(MeterRegistry meterRegistry,
+                          @Value("${quantumleap.websocket.board-loops.threads:0}") int threads,
+                          @Value("${quantumleap.websocket.board-loops.batch-size:64}") int batchSize,
+                          @Value("${quantumleap.websocket.board-loops.rebalance-interval-ms:10000}") long rebalanceIntervalMs,
+                          @Value("${quantumleap.websocket.board-loops.rebalance-threshold:0.25}") double rebalanceThreshold,
+                          @Value("${quantumleap.websocket.board-loops.pin-idle-ms:600000}") long pinIdleMs) {
+        int loopCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.batchSize = batchSize;
+        this.rebalanceThreshold = rebalanceThreshold;
+        this.pinIdleNanos = TimeUnit.MILLISECONDS.toNanos(pinIdleMs);
+        this.loops = new Loop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            Loop loop = new Loop(i);
+            loops[i] = loop;
+            String index = Integer.toString(i);
+            Gauge.builder("quantumleap.board.loop.mailbox", this, g -> g.mailboxDepth(loop.index))
+                    .description("Tasks waiting for boards assigned to the loop")
+                    .tag("loop", index)
+                    .register(meterRegistry);
+            Gauge.builder("quantumleap.board.loop.boards", this, g -> g.boardCount(loop.index))
+                    .description("Active boards assigned to the loop")
+                    .tag("loop", index)
+                    .register(meterRegistry);
+            Gauge.builder("quantumleap.board.loop.utilization", loop, l -> l.utilization)
+                    .description("Fraction of the last rebalance window the loop spent running tasks")
+                    .tag("loop", index)
+                    .register(meterRegistry);
+            FunctionCounter.builder("quantumleap.board.loop.busy", loop, l -> l.busyNanos / 1e9)
+                    .description("Total time the loop spent running tasks")
+                    .baseUnit("seconds")
+                    .tag("loop", index)
+                    .register(meterRegistry);
+            loop.thread.start();
+        }
+        Gauge.builder("quantumleap.board.loop.pinned", pinnedBoards, Map::size)
+                .description("Boards moved away from their hash-assigned loop by the rebalancer")
+                .register(meterRegistry);
+
+        this.rebalancer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("board-loop-rebalancer").daemon(true).factory());
+        this.rebalancer.scheduleWithFixedDelay(this::rebalance, rebalanceIntervalMs, rebalanceIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("[WS] Board loops: {} threads, batch size {}", loopCount, batchSize);
+    }
+
+    /**
+     * Run a task on the board's loop, after every task previously submitted for the same board.
+     */
+    public void execute(UUID boardId, Runnable task) {
+        actors.compute(boardId, (id, actor) -> {
+            BoardActor target = actor != null ? actor : new BoardActor(id, assignedLoop(id));
+            target.enqueue(task);
+            return target;
+        });
+    }
+
+    /**
+     * Index of the loop currently assigned to the board.
+     */
+    public int loopFor(UUID boardId) {
+        BoardActor actor = actors.get(boardId);
+        return actor != null ? actor.loop : assignedLoop(boardId);
+    }
+
+    /**
+     * Keep the board on {@code loop} from its next run on, until unpinned or idle for {@code pin-idle-ms}.
+     */
+    void pin(UUID boardId, int loop) {
+        pinnedBoards.put(boardId, new Pin(loop));
+        BoardActor actor = actors.get(boardId);
+        if (actor != null) {
+            actor.loop = loop;
+        }
+    }
+
+    /**
+     * Return the board to its hash-assigned loop once its current tasks have run, e.g. because its room closed.
+     */
+    public void unpin(UUID boardId) {
+        pinnedBoards.remove(boardId);
+    }
+
+    private int assignedLoop(UUID boardId) {
+        Pin pin = pinnedBoards.get(boardId);
+        return pin != null ? pin.loop : defaultLoop(boardId);
+    }
+
+    private int defaultLoop(UUID boardId) {
+        return Math.floorMod(boardId.hashCode(), loops.length);
+    }
+
+    private double mailboxDepth(int loop) {
+        long depth = 0;
+        for (BoardActor actor : actors.values()) {
+            if (actor.loop == loop) {
+                depth += actor.pending.get();
+            }
+        }
+        return depth;
+    }
+
+    private double boardCount(int loop) {
+        int count = 0;
+        for (BoardActor actor : actors.values()) {
+            if (actor.loop == loop) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Move the hottest board off the busiest loop when loops are unevenly loaded.
+     */
+    void rebalance() {
+        try {
+            long now = System.nanoTime();
+            pinnedBoards.entrySet().removeIf(pinned ->
+                    !actors.containsKey(pinned.getKey()) && now - pinned.getValue().idleSince > pinIdleNanos);
+            Loop busiest = null;
+            Loop idlest = null;
+            for (Loop loop : loops) {
+                loop.closeWindow(now);
+                if (busiest == null || loop.utilization > busiest.utilization) {
+                    busiest = loop;
+                }
+                if (idlest == null || loop.utilization < idlest.utilization) {
+                    idlest = loop;
+                }
+            }
+            BoardActor hottest = null;
+            long hottestNanos = 0;
+            int boardsOnBusiest = 0;
+            for (BoardActor actor : actors.values()) {
+                long windowNanos = actor.closeWindow();
+                if (busiest != null && actor.loop == busiest.index) {
+                    boardsOnBusiest++;
+                    if (windowNanos > hottestNanos) {
+                        hottest = actor;
+                        hottestNanos = windowNanos;
+                    }
+                }
+            }
+            if (busiest == null || busiest == idlest || hottest == null || boardsOnBusiest < 2
+                    || busiest.utilization - idlest.utilization < rebalanceThreshold) {
+                return;
+            }
+            double share = (double) hottestNanos / Math.max(1, busiest.lastWindowNanos);
+            // Only move if the target stays less loaded than the source would be
+            if (idlest.utilization + share >= busiest.utilization) {
+                return;
+            }
+            pin(hottest.boardId, idlest.index);
+            log.info("[WS] Rebalanced board {} from loop {} ({}%) to loop {} ({}%)", hottest.boardId,
+                    busiest.index, Math.round(busiest.utilization * 100), idlest.index, Math.round(idlest.utilization * 100));
+        } catch (Exception e) {
+            log.error("[WS] Board loop rebalance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebalancer.shutdownNow();
+        for (Loop loop : loops) {
+            loop.thread.interrupt();
+        }
+    }
+
+    /**
+     * One event loop thread running the actors scheduled on it.
+     */
+    private final class Loop implements Runnable {
+        private final int index;
+        private final Thread thread;
+        private final BlockingQueue<BoardActor> runQueue = new LinkedBlockingQueue<>();
+        private volatile long busyNanos;
+        private volatile double utilization;
+        private long windowStart = System.nanoTime();
+        private long windowBusyStart;
+        private long lastWindowNanos = 1;
+
+        private Loop(int index) {
+            this.index = index;
+            this.thread = Thread.ofPlatform().name("board-loop-" + index).daemon(true).unstarted(this);
+        }
+
+        private void schedule(BoardActor actor) {
+            runQueue.add(actor);
+        }
+
+        // Called from the rebalancer thread only
+        private void closeWindow(long now) {
+            long busy = busyNanos;
+            lastWindowNanos = Math.max(1, now - windowStart);
+            utilization = Math.min(1.0, (double) (busy - windowBusyStart) / lastWindowNanos);
+            windowStart = now;
+            windowBusyStart = busy;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                BoardActor actor;
+                try {
+                    actor = runQueue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long start = System.nanoTime();
+                actor.runBatch();
+                long elapsed = System.nanoTime() - start;
+                actor.busyNanos += elapsed;
+                busyNanos += elapsed;
+            }
+        }
+    }
+
+    /**
+     * A board's loop chosen by the rebalancer, and when the board last ran out of tasks there.
+     */
+    private static final class Pin {
+        private final int loop;
+        private volatile long idleSince = System.nanoTime();
+
+        private Pin(int loop) {
+            this.loop = loop;
+        }
+    }
+
+    /**
+     * Mailbox for one board; scheduled on its loop only while it has work.
+     */
+    private final class BoardActor {
+        private final UUID boardId;
+        private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile int loop;
+        private volatile long busyNanos;
+        private long windowBusyStart;
+
+        private BoardActor(UUID boardId, int loop) {
+            this.boardId = boardId;
+            this.loop = loop;
+        }
+
+        // Called inside actors.compute, so it never races with the actor being retired
+        private void enqueue(Runnable task) {
+            mailbox.add(task);
+            if (pending.getAndIncrement() == 0) {
+                loops[loop].schedule(this);
+            }
+        }
+
+        private void runBatch() {
+            for (int i = 0; i < batchSize; i++) {
+                Runnable task = mailbox.poll();
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    // Errors too: the loop thread serves other boards and must outlive any one task
+                    log.error("[WS] Task for board {} failed: {}", boardId, t.getMessage(), t);
+                }
+                if (pending.decrementAndGet() == 0) {
+                    actors.computeIfPresent(boardId, (id, actor) -> actor == this && pending.get() == 0 ? null : actor);
+                    Pin pin = pinnedBoards.get(boardId);
+                    if (pin != null) {
+                        // The pin outlives the actor; it expires once the board has been idle long enough
+                        pin.idleSince = System.nanoTime();
+                    }
+                    return;
+                }
+            }
+            // Yield to other boards on this loop; re-read the assignment in case we were rebalanced
+            loops[loop].schedule(this);
+        }
+
+        // Called from the rebalancer thread only
+        private long closeWindow() {
+            long busy = busyNanos;
+            long window = busy - windowBusyStart;
+            windowBusyStart = busy;
+            return window;
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import com.quantumleap.service.BoardSnapshotService;
+import com.quantumleap.service.BoardState;
+import com.quantumleap.service.EventService;
+import com.quantumleap.service.WhiteboardService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * The current shapes of boards in use on this node, so replays and write validation need no database query.
+ * <p>
+ * A board is loaded on first use from its latest snapshot plus the events after it; concurrent first uses
+ * share one load. From then on it applies every sequenced event the bus delivers, and on the owner also each
+ * write as soon as it commits. Optimistic events wait, as in {@link ResumeBuffer}, until their EVENT_ACK gives
+ * them a sequence number. A missing sequence number means events were missed, and the board is dropped to be
+ * loaded again.
+ * <p>
+ * Boards are dropped least recently used first once their estimated size exceeds {@code max-bytes}, and
+ * when unused for {@code idle-evict-seconds}; both are checked whenever a board is used.
+ */
+@Component
+public class BoardStateCache {
+    private static final Logger log = LoggerFactory.getLogger(BoardStateCache.class);
+
+    // Edits whose target must be on the board
+    private static final Set<String> EDIT_TYPES = Set.of("SHAPE_MOVED", "SHAPE_UPDATED", "SHAPE_DELETED");
+    // Rough heap cost of an envelope without its data: the object and its ID, board, user, type and timestamp
+    private static final long ENVELOPE_BYTES = 320;
+    // Sequenced events kept while a board loads, or optimistic events kept until acknowledged
+    private static final int MAX_PENDING_EVENTS = 10_000;
+
+    private final BoardSnapshotService boardSnapshots;
+    private final EventService eventService;
+    private final WhiteboardService whiteboardService;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long idleEvictNanos;
+    private final int streamChunkSize;
+    private final Map<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong totalBytes = new AtomicLong();
+    private volatile BiConsumer<UUID, EventEnvelope> appliedListener = (boardId, event) -> { };
+    private volatile Consumer<UUID> droppedListener = boardId -> { };
+
+    private final Counter loads;
+    private final Counter hits;
+    private final Counter rejectedEdits;
+    private final Map<String, Counter> evictions = new LinkedHashMap<>();
+
+    public BoardStateCache(BoardSnapshotService boardSnapshots,
+                           EventService eventService,
+                           WhiteboardService whiteboardService,
+                           MeterRegistry meterRegistry,
+                           @Value("${quantumleap.websocket.board-state.enabled:true}") boolean enabled,
+                           @Value("${quantumleap.websocket.board-state.max-bytes:268435456}") long maxBytes,
+                           @Value("${quantumleap.websocket.board-state.idle-evict-seconds:900}") long idleEvictSeconds,
+                           @Value("${quantumleap.websocket.event-replay-chunk-size:200}") int streamChunkSize) {
+        this.boardSnapshots = boardSnapshots;
+        this.eventService = eventService;
+        this.whiteboardService = whiteboardService;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.idleEvictNanos = TimeUnit.SECONDS.toNanos(idleEvictSeconds);
+        this.streamChunkSize = streamChunkSize;
+
+        this.loads = Counter.builder("quantumleap.board.state.loads")
+                .description("Boards loaded into memory from their snapshot and events")
+                .register(meterRegistry);
+        this.hits = Counter.builder("quantumleap.board.state.hits")
+                .description("Board state requests served from memory")
+                .register(meterRegistry);
+        this.rejectedEdits = Counter.builder("quantumleap.board.state.rejected.edits")
+                .description("Moves, updates and deletes refused because their shape is not on the board")
+                .register(meterRegistry);
+        for (String reason : List.of("budget", "idle", "gap")) {
+            evictions.put(reason, Counter.builder("quantumleap.board.state.evictions")
+                    .description("Boards dropped from memory, by reason")
+                    .tag("reason", reason)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("quantumleap.board.state.boards", this, cache -> cache.size())
+                .description("Boards held in memory")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.board.state.bytes", totalBytes, AtomicLong::get)
+                .description("Estimated heap held by board states")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        log.info("[WS] Board state cache: {}, at most {} bytes, idle boards dropped after {} s",
+                enabled ? "enabled" : "disabled", maxBytes, idleEvictSeconds);
+    }
+
+    /**
+     * Call {@code listener} with each event applied to a board in memory, in sequence order. It runs under
+     * the board's lock, so it must be quick and must not call back into this cache.
+     */
+    public void onApplied(BiConsumer<UUID, EventEnvelope> listener) {
+        this.appliedListener = listener;
+    }
+
+    /**
+     * Call {@code listener} when a board is dropped from memory, after which no more events are applied to it.
+     */
+    public void onDropped(Consumer<UUID> listener) {
+        this.droppedListener = listener;
+    }
+
+    /**
+     * A copy of the board's current state, loading it first if needed.
+     *
+     * @return the state, or empty if the cache is disabled or the board could not be loaded
+     */
+    public Optional<BoardState> get(UUID boardId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Entry entry;
+        boolean loader = false;
+        synchronized (entries) {
+            evictIdle(System.nanoTime());
+            entry = entries.get(boardId);
+            if (entry == null) {
+                entry = new Entry(boardId);
+                entries.put(boardId, entry);
+                loader = true;
+            }
+        }
+        if (loader) {
+            load(boardId, entry);
+        } else {
+            hits.increment();
+        }
+        try {
+            entry.loaded.join();
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.copy());
+    }
+
+    /**
+     * Fold the board's history into the entry. Events the bus delivers meanwhile are kept by the entry,
+     * which was registered first, and applied after; those already in the history are skipped.
+     */
+    private void load(UUID boardId, Entry entry) {
+        try {
+            BoardState state = boardSnapshots.getLatestSnapshot(boardId).orElseGet(BoardState::new);
+            long clearedSeq = whiteboardService.getWhiteboardById(boardId).getClearedSeq();
+            eventService.streamEventsForBoard(boardId, state.seq() > 0 ? state.seq() : -1, streamChunkSize,
+                    chunk -> chunk.forEach(state::apply));
+            // A clear leaves no row, but takes a sequence number
+            BoardState loaded = state.seq() < clearedSeq ? new BoardState(clearedSeq, state.shapes()) : state;
+            if (entry.loaded(loaded)) {
+                loads.increment();
+                log.debug("[WS] Loaded board {} at seq {} with {} shapes", boardId, loaded.seq(), loaded.size());
+            } else {
+                drop(boardId, entry, "gap");
+            }
+        } catch (Exception e) {
+            log.warn("[WS] Failed to load state of board {}: {}", boardId, e.getMessage());
+            drop(boardId, entry, null);
+            entry.loaded.completeExceptionally(e);
+        }
+        resized(boardId, entry);
+    }
+
+    /**
+     * Apply an event the bus delivered or the owner committed. Events without a sequence number are kept
+     * until acknowledged. Boards not in memory are ignored.
+     */
+    public void record(UUID boardId, EventEnvelope event) {
+        Entry entry = entry(boardId);
+        if (entry == null) {
+            return;
+        }
+        boolean applied = event.getSeq() != null ? entry.apply(event) : entry.hold(event);
+        if (!applied) {
+            drop(boardId, entry, "gap");
+            return;
+        }
+        resized(boardId, entry);
+    }
+
+    /**
+     * Apply a held optimistic event under the sequence number its persist took.
+     */
+    public void acknowledge(UUID boardId, String eventId, long seq) {
+        Entry entry = entry(boardId);
+        if (entry == null) {
+            return;
+        }
+        if (!entry.release(eventId, seq)) {
+            drop(boardId, entry, "gap");
+            return;
+        }
+        resized(boardId, entry);
+    }
+
+    /**
+     * Forget a held optimistic event whose persist failed.
+     */
+    public void reject(UUID boardId, String eventId) {
+        Entry entry = entry(boardId);
+        if (entry != null) {
+            entry.drop(eventId);
+        }
+    }
+
+    /**
+     * Whether a write may go ahead: a move, update or delete must target a shape that is on the board or
+     * whose optimistic creation is awaiting its acknowledgement. Boards not in memory, or still loading,
+     * admit everything, so this never queries the database.
+     */
+    public boolean admits(UUID boardId, EventEnvelope write) {
+        if (!EDIT_TYPES.contains(write.getType())) {
+            return true;
+        }
+        Entry entry = entry(boardId);
+        String target = BoardState.target(write);
+        if (entry == null || entry.targets(target)) {
+            return true;
+        }
+        rejectedEdits.increment();
+        return false;
+    }
+
+    /**
+     * Drop a board, for instance because it was deleted.
+     */
+    public void evict(UUID boardId) {
+        Entry entry = entry(boardId);
+        if (entry != null) {
+            drop(boardId, entry, null);
+        }
+    }
+
+    private Entry entry(UUID boardId) {
+        synchronized (entries) {
+            return entries.get(boardId);
+        }
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Account for an entry's change in size, then drop least recently used boards while over budget.
+     */
+    private void resized(UUID boardId, Entry entry) {
+        long delta = entry.takeResize();
+        if (totalBytes.addAndGet(delta) <= maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            Iterator<Map.Entry<UUID, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes.get() > maxBytes && eldest.hasNext()) {
+                Map.Entry<UUID, Entry> candidate = eldest.next();
+                // The board just used is dropped only if it alone is over budget
+                if (candidate.getKey().equals(boardId) && entries.size() > 1) {
+                    continue;
+                }
+                eldest.remove();
+                forget(candidate.getValue(), "budget");
+            }
+        }
+    }
+
+    // Caller holds the lock on entries
+    private void evictIdle(long now) {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (eldest.hasNext()) {
+            Entry candidate = eldest.next();
+            if (now - candidate.lastUsed < idleEvictNanos) {
+                // Access order: everything after was used more recently
+                return;
+            }
+            eldest.remove();
+            forget(candidate, "idle");
+        }
+    }
+
+    private void drop(UUID boardId, Entry entry, String reason) {
+        synchronized (entries) {
+            if (!entries.remove(boardId, entry)) {
+                return;
+            }
+        }
+        forget(entry, reason);
+    }
+
+    private void forget(Entry entry, String reason) {
+        totalBytes.addAndGet(-entry.release());
+        if (reason != null) {
+            evictions.get(reason).increment();
+        }
+        droppedListener.accept(entry.boardId);
+    }
+
+    /**
+     * Estimated heap size of an event and its data.
+     */
+    static long weigh(EventEnvelope event) {
+        return event == null ? 0 : ENVELOPE_BYTES + weigh(event.getData());
+    }
+
+    private static long weigh(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            long bytes = 48;
+            for (Map.Entry<?, ?> field : map.entrySet()) {
+                bytes += 32 + weigh(field.getKey()) + weigh(field.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof Collection<?> values) {
+            long bytes = 24;
+            for (Object element : values) {
+                bytes += 8 + weigh(element);
+            }
+            return bytes;
+        }
+        if (value instanceof String text) {
+            return 40 + text.length();
+        }
+        return value == null ? 0 : 16;
+    }
+
+    /**
+     * One board's state, or the events that arrive while it loads. Guarded by its own lock.
+     */
+    private final class Entry {
+        private final UUID boardId;
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        private final List<EventEnvelope> early = new ArrayList<>();
+        private final Map<String, EventEnvelope> held = new LinkedHashMap<>();
+        private BoardState state;
+        private long bytes;
+        private long accounted;
+        private boolean released;
+        private volatile long lastUsed = System.nanoTime();
+
+        private Entry(UUID boardId) {
+            this.boardId = boardId;
+        }
+
+        /**
+         * Install the loaded state and apply what arrived meanwhile.
+         *
+         * @return false if events between the history and those were missed
+         */
+        private synchronized boolean loaded(BoardState loadedState) {
+            state = loadedState;
+            for (EventEnvelope shape : state.shapes()) {
+                bytes += weigh(shape);
+            }
+            boolean contiguous = true;
+            for (EventEnvelope event : early) {
+                contiguous &= apply(event);
+            }
+            early.clear();
+            loaded.complete(null);
+            return contiguous;
+        }
+
+        /**
+         * @return false if events before this one were missed
+         */
+        private synchronized boolean apply(EventEnvelope event) {
+            lastUsed = System.nanoTime();
+            if (released) {
+                return true;
+            }
+            if (state == null) {
+                early.add(event);
+                return early.size() <= MAX_PENDING_EVENTS;
+            }
+            long seq = event.getSeq();
+            if (seq <= state.seq()) {
+                // Already in the loaded history, or applied when committed here
+                return true;
+            }
+            if (seq > state.seq() + 1) {
+                return false;
+            }
+            String target = BoardState.target(event);
+            long before = target != null ? weigh(state.shape(target)) : 0;
+            state.apply(event);
+            if ("CLEAR_CANVAS".equals(event.getType())) {
+                bytes = 0;
+            } else if (target != null) {
+                bytes += weigh(state.shape(target)) - before;
+            }
+            appliedListener.accept(boardId, event);
+            return true;
+        }
+
+        private synchronized boolean hold(EventEnvelope event) {
+            lastUsed = System.nanoTime();
+            if (event.getId() == null) {
+                return true;
+            }
+            if (held.size() == MAX_PENDING_EVENTS) {
+                // Acknowledgements stopped arriving; what is held is stale
+                held.clear();
+            }
+            held.put(event.getId(), event);
+            return true;
+        }
+
+        private synchronized boolean release(String eventId, long seq) {
+            EventEnvelope event = held.remove(eventId);
+            if (event == null) {
+                // Broadcast before this board was loaded; the history has it if it committed first
+                return state == null || seq <= state.seq();
+            }
+            EventEnvelope sequenced = new EventEnvelope(event.getId(), event.getBoardId(), event.getUserId(),
+                    event.getType(), event.getTs(), event.getData(), event.getTempId());
+            sequenced.setSeq(seq);
+            return apply(sequenced);
+        }
+
+        private synchronized void drop(String eventId) {
+            held.remove(eventId);
+        }
+
+        private synchronized boolean targets(String shapeId) {
+            lastUsed = System.nanoTime();
+            if (state == null || released) {
+                return true;
+            }
+            if (shapeId == null) {
+                return false;
+            }
+            if (state.contains(shapeId)) {
+                return true;
+            }
+            EventEnvelope creation = held.get(shapeId);
+            return creation != null && BoardState.CREATION_TYPES.contains(creation.getType());
+        }
+
+        private synchronized BoardState copy() {
+            lastUsed = System.nanoTime();
+            return new BoardState(state.seq(), state.shapes());
+        }
+
+        /**
+         * Change in estimated size since last asked.
+         */
+        private synchronized long takeResize() {
+            if (released) {
+                return 0;
+            }
+            long delta = bytes - accounted;
+            accounted = bytes;
+            return delta;
+        }
+
+        /**
+         * Stop tracking the board.
+         *
+         * @return the estimated size still accounted for it
+         */
+        private synchronized long release() {
+            if (released) {
+                return 0;
+            }
+            released = true;
+            long freed = accounted;
+            accounted = 0;
+            return freed;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Axis-aligned rectangle in board coordinates, used for viewports and for the area an event touches.
+ */
+public record Bounds(double minX, double minY, double maxX, double maxY) {
+
+    public static Bounds of(double x, double y, double width, double height) {
+        return new Bounds(Math.min(x, x + width), Math.min(y, y + height), Math.max(x, x + width), Math.max(y, y + height));
+    }
+
+    public Bounds expand(double margin) {
+        return new Bounds(minX - margin, minY - margin, maxX + margin, maxY + margin);
+    }
+
+    public boolean intersects(Bounds other) {
+        return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY;
+    }
+
+    public boolean contains(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Area drawn by a shape-creating event.
+     *
+     * @return the bounds, or {@code null} if the event is not local to an area (clear, delete, move
+     *         and update events, or data that cannot be read) and must reach every session
+     */
+    public static Bounds forEvent(EventEnvelope event) {
+        if (!(event.getData() instanceof Map<?, ?> data) || event.getType() == null) {
+            return null;
+        }
+        return switch (event.getType()) {
+            case "LINE_DRAWN" -> lineBounds(data);
+            case "SHAPE_ADDED" -> shapeBounds(data);
+            case "TEXT_ADDED" -> {
+                Double x = number(data.get("x"));
+                Double y = number(data.get("y"));
+                yield x != null && y != null ? new Bounds(x, y, x, y) : null;
+            }
+            default -> null;
+        };
+    }
+
+    private static Bounds lineBounds(Map<?, ?> data) {
+        if (!(data.get("points") instanceof List<?> points) || points.size() < 2) {
+            return null;
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i + 1 < points.size(); i += 2) {
+            Double x = number(points.get(i));
+            Double y = number(points.get(i + 1));
+            if (x == null || y == null) {
+                return null;
+            }
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        Double strokeWidth = number(data.get("strokeWidth"));
+        return new Bounds(minX, minY, maxX, maxY).expand(strokeWidth != null ? strokeWidth / 2 : 0);
+    }
+
+    private static Bounds shapeBounds(Map<?, ?> data) {
+        Double x = number(data.get("x"));
+        Double y = number(data.get("y"));
+        if (x == null || y == null) {
+            return null;
+        }
+        Double radius = number(data.get("radius"));
+        if ("circle".equals(data.get("kind")) && radius != null) {
+            return new Bounds(x - radius, y - radius, x + radius, y + radius);
+        }
+        Double width = number(data.get("width"));
+        Double height = number(data.get("height"));
+        return of(x, y, width != null ? width : 0, height != null ? height : 0);
+    }
+
+    private static Double number(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+}
@@ -0,0 +1,89 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Estimates what permessage-deflate buys us per board.
+ * <p>
+ * The container compresses frames internally and exposes neither sizes nor timings, so a small sample of
+ * outbound frames is deflated here the same way (raw deflate, no context takeover, i.e. the worst case) to
+ * record the compression ratio, the CPU cost and raw vs compressed bytes next to each other.
+ */
+@Component
+public class CompressionSampler {
+    static final String METRIC_PREFIX = "quantumleap.ws.compression";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final int minSize;
+    private final int level;
+
+    public CompressionSampler(MeterRegistry meterRegistry,
+                              @Value("${quantumleap.websocket.compression.enabled:true}") boolean enabled,
+                              @Value("${quantumleap.websocket.compression.sample-rate:0.01}") double sampleRate,
+                              @Value("${quantumleap.websocket.compression.sample-min-size:256}") int minSize,
+                              @Value("${quantumleap.websocket.compression.level:6}") int level) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.minSize = minSize;
+        this.level = level;
+    }
+
+    /**
+     * Possibly sample an outbound frame for the given board.
+     */
+    public void sample(UUID boardId, byte[] payload) {
+        if (!enabled || payload.length < minSize || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        String board = boardId.toString();
+        Deflater deflater = new Deflater(level, true);
+        byte[] buffer = new byte[Math.max(64, payload.length)];
+        int compressed = 0;
+        long start = System.nanoTime();
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+        } finally {
+            deflater.end();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Timer.builder(METRIC_PREFIX + ".cpu")
+                .description("Time to deflate a sampled outbound frame")
+                .tag("board", board)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(METRIC_PREFIX + ".ratio")
+                .description("Compressed size divided by raw size for sampled outbound frames")
+                .tag("board", board)
+                .register(meterRegistry)
+                .record((double) compressed / payload.length);
+        bytesCounter(board, "raw").increment(payload.length);
+        bytesCounter(board, "compressed").increment(compressed);
+    }
+
+    private Counter bytesCounter(String board, String stage) {
+        return Counter.builder(METRIC_PREFIX + ".sampled.bytes")
+                .description("Bytes of sampled outbound frames before and after deflate")
+                .tag("board", board)
+                .tag("stage", stage)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+}
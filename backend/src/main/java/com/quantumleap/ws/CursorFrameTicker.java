@@ -0,0 +1,99 @@
+package com.quantumleap.ws;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Presence ticker that turns a stream of cursor moves into one aggregated frame per board per tick.
+ * Between ticks only the IDs of users whose cursor moved are remembered; the latest position is read
+ * when the frame is built, so any number of moves inside a tick costs a single entry.
+ * Boards without movement are never visited.
+ */
+@Component
+public class CursorFrameTicker {
+    private static final Logger log = LoggerFactory.getLogger(CursorFrameTicker.class);
+
+    private final Map<UUID, Set<UUID>> movedUsers = new ConcurrentHashMap<>();
+    private final Set<UUID> dirtyBoards = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private volatile BiConsumer<UUID, List<UUID>> frameSink;
+
+    public CursorFrameTicker(@Value("${quantumleap.websocket.presence.tick-rate-hz:25}") int tickRateHz) {
+        long periodMicros = 1_000_000L / Math.max(1, tickRateHz);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("ws-presence-tick").daemon(true).factory());
+        this.scheduler.scheduleAtFixedRate(this::tick, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+        log.info("[WS] Cursor frames ticking at {} Hz", tickRateHz);
+    }
+
+    /**
+     * Register the callback that receives, per dirty board, the users whose cursor changed.
+     */
+    public void onFrame(BiConsumer<UUID, List<UUID>> frameSink) {
+        this.frameSink = frameSink;
+    }
+
+    public void cursorMoved(UUID boardId, UUID userId) {
+        movedUsers.computeIfAbsent(boardId, k -> ConcurrentHashMap.newKeySet()).add(userId);
+        dirtyBoards.add(boardId);
+    }
+
+    /**
+     * Forget pending moves for a board that has no sessions left.
+     */
+    public void boardClosed(UUID boardId) {
+        movedUsers.remove(boardId);
+        dirtyBoards.remove(boardId);
+    }
+
+    void tick() {
+        BiConsumer<UUID, List<UUID>> sink = frameSink;
+        if (sink == null || dirtyBoards.isEmpty()) {
+            return;
+        }
+        Iterator<UUID> boards = dirtyBoards.iterator();
+        while (boards.hasNext()) {
+            UUID boardId = boards.next();
+            boards.remove();
+            Set<UUID> moved = movedUsers.get(boardId);
+            if (moved == null) {
+                continue;
+            }
+            // Remove entries one by one so that moves racing with this tick land in the next frame
+            List<UUID> changed = new ArrayList<>(moved.size());
+            Iterator<UUID> users = moved.iterator();
+            while (users.hasNext()) {
+                changed.add(users.next());
+                users.remove();
+            }
+            if (changed.isEmpty()) {
+                continue;
+            }
+            try {
+                sink.accept(boardId, changed);
+            } catch (Exception e) {
+                log.error("[WS] Error emitting cursor frame for board {}: {}", boardId, e.getMessage(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
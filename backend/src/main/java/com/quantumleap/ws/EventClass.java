@@ -0,0 +1,21 @@
+package com.quantumleap.ws;
+
+/**
+ * Inbound rate-limit classes; each has its own budget.
+ */
+public enum EventClass {
+    /** Presence traffic that is never persisted: cursor moves and viewport reports. */
+    CURSOR,
+    /** Ordinary edits that are persisted and broadcast, erasing single shapes included. */
+    DRAW,
+    /** Edits that remove the whole board's content. */
+    DESTRUCTIVE;
+
+    public static EventClass of(String type) {
+        return switch (type) {
+            case "CURSOR_MOVE", "VIEWPORT" -> CURSOR;
+            case "CLEAR_CANVAS" -> DESTRUCTIVE;
+            default -> DRAW;
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs event persistence and broadcast off the WebSocket reader thread.
+ * <p>
+ * Each board has a lane: tasks for the same board run one after another in submission order,
+ * tasks for different boards run concurrently on virtual threads. A semaphore caps how many tasks
+ * hold a JDBC connection at once so a burst of boards cannot exhaust the connection pool.
+ * <p>
+ * Replays run outside the lanes, since one can take as long as its client takes to read the board,
+ * and have a cap of their own: each holds a connection for its whole run.
+ */
+@Component
+public class EventIngestionPipeline {
+    private static final Logger log = LoggerFactory.getLogger(EventIngestionPipeline.class);
+
+    private final Map<UUID, BoardLane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final ExecutorService executor;
+    private final Semaphore persistPermits;
+    private final int maxConcurrentPersists;
+    private final Semaphore replayPermits;
+    private final int maxConcurrentReplays;
+
+    public EventIngestionPipeline(MeterRegistry meterRegistry,
+                                  @Value("${quantumleap.websocket.ingestion.max-concurrent-persists:8}") int maxConcurrentPersists,
+                                  @Value("${quantumleap.websocket.replay.max-concurrent:2}") int maxConcurrentReplays) {
+        this.maxConcurrentPersists = maxConcurrentPersists;
+        this.persistPermits = new Semaphore(maxConcurrentPersists, true);
+        this.maxConcurrentReplays = maxConcurrentReplays;
+        this.replayPermits = new Semaphore(maxConcurrentReplays, true);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("event-ingest-", 0).factory());
+
+        Gauge.builder("quantumleap.ingest.pending", pendingTasks, AtomicInteger::get)
+                .description("Events accepted from sockets and not yet persisted and broadcast")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.ingest.persists.active", this, p -> p.maxConcurrentPersists - p.persistPermits.availablePermits())
+                .description("Ingestion tasks currently holding a persistence permit")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.ingest.boards", lanes, Map::size)
+                .description("Boards with ingestion work in flight")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.replay.active", this, p -> p.maxConcurrentReplays - p.replayPermits.availablePermits())
+                .description("Replays currently streaming from the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue a task for a board. Tasks for one board never overlap and run in submission order.
+     */
+    public void submit(UUID boardId, Runnable task) {
+        pendingTasks.incrementAndGet();
+        lanes.compute(boardId, (id, lane) -> {
+            BoardLane target = lane != null ? lane : new BoardLane(id);
+            target.enqueue(task);
+            return target;
+        });
+    }
+
+    /**
+     * Run a replay on its own virtual thread, once fewer than {@code replay.max-concurrent} are streaming.
+     */
+    public void submitReplay(Runnable task) {
+        executor.execute(() -> {
+            try {
+                replayPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("[WS] Replay failed: {}", e.getMessage(), e);
+            } finally {
+                replayPermits.release();
+            }
+        });
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            persistPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingTasks.decrementAndGet();
+            return;
+        }
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("[WS] Ingestion task failed: {}", e.getMessage(), e);
+        } finally {
+            persistPermits.release();
+            pendingTasks.decrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Serial task queue for one board; scheduled on a virtual thread only while it has work.
+     */
+    private final class BoardLane implements Runnable {
+        private final UUID boardId;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private BoardLane(UUID boardId) {
+            this.boardId = boardId;
+        }
+
+        // Called inside lanes.compute, so it never races with the lane being retired
+        private void enqueue(Runnable task) {
+            tasks.add(task);
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                runTask(tasks.poll());
+            } while (pending.decrementAndGet() > 0);
+            lanes.computeIfPresent(boardId, (id, lane) -> lane == this && pending.get() == 0 ? null : lane);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.quantumleap.ws;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.quantumleap.dto.ws.CursorUpdateEvent;
+import com.quantumleap.dto.ws.EventEnvelope;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes outbound WebSocket frames straight to UTF-8 bytes with a cached {@link ObjectWriter}.
+ * Wrapper frames such as EVENT_APPEND are written with the streaming API around the inner envelope,
+ * so no intermediate envelope, map or JSON string is built per broadcast. Frames that have a
+ * {@link BinaryFrameCodec} form encode it lazily, once, the first time a binary client needs it.
+ */
+@Component
+public class FrameEncoder {
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    private final ObjectWriter envelopeWriter;
+    private final JsonFactory jsonFactory;
+
+    public FrameEncoder(ObjectMapper objectMapper) {
+        this.envelopeWriter = objectMapper.writerFor(EventEnvelope.class);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Encode a complete envelope as a frame.
+     */
+    public PreEncodedFrame encode(EventEnvelope envelope) throws IOException {
+        return new PreEncodedFrame(envelopeWriter.writeValueAsBytes(envelope));
+    }
+
+    /**
+     * Encode one EVENT_REPLAY_CHUNK: {@code events}, the sequence number the client is up to once it has
+     * applied them, and on the first chunk of a full replay the {@code reset} flag.
+     */
+    public PreEncodedFrame encodeReplayChunk(String boardId, List<EventEnvelope> events, long lastSeq, boolean reset) throws IOException {
+        Map<String, Object> replayData = new HashMap<>();
+        replayData.put("events", events);
+        replayData.put("lastSeq", lastSeq);
+        if (reset) {
+            replayData.put("reset", true);
+        }
+        EventEnvelope chunk = new EventEnvelope();
+        chunk.setType("EVENT_REPLAY_CHUNK");
+        chunk.setBoardId(boardId);
+        chunk.setData(replayData);
+        return encode(chunk);
+    }
+
+    /**
+     * Encode {@code {"type":"EVENT_APPEND","boardId":...,"data":{"event":<event>}}}.
+     */
+    public PreEncodedFrame encodeAppend(String boardId, EventEnvelope event) throws IOException {
+        ByteArrayBuilder out = new ByteArrayBuilder(INITIAL_BUFFER_SIZE);
+        try (JsonGenerator gen = jsonFactory.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", "EVENT_APPEND");
+            gen.writeStringField("boardId", boardId);
+            gen.writeFieldName("data");
+            gen.writeStartObject();
+            gen.writeFieldName("event");
+            envelopeWriter.writeValue(gen, event);
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+        return new PreEncodedFrame(out.toByteArray(), () -> BinaryFrameCodec.encodeAppend(event));
+    }
+
+    /**
+     * Encode a CURSORS_FRAME envelope together with its binary form.
+     */
+    public PreEncodedFrame encodeCursorsFrame(EventEnvelope frame, List<CursorUpdateEvent> cursors) throws IOException {
+        return new PreEncodedFrame(envelopeWriter.writeValueAsBytes(frame), () -> BinaryFrameCodec.encodeCursorsFrame(cursors));
+    }
+}
@@ -0,0 +1,65 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Single-node bus: events go straight to the local subscribers.
+ */
+@Component
+@ConditionalOnProperty(name = "quantumleap.websocket.bus.type", havingValue = "in-process", matchIfMissing = true)
+public class InProcessBoardEventBus implements BoardEventBus {
+    private static final Logger log = LoggerFactory.getLogger(InProcessBoardEventBus.class);
+
+    private final List<BiConsumer<UUID, EventEnvelope>> listeners = new CopyOnWriteArrayList<>();
+    private final NodeIdentity node;
+    private volatile ForwardedWriteHandler forwardedWriteHandler;
+
+    public InProcessBoardEventBus(NodeIdentity node) {
+        this.node = node;
+        log.info("[WS] Board event bus: in-process");
+    }
+
+    @Override
+    public void publish(UUID boardId, EventEnvelope event) {
+        deliver(listeners, boardId, event);
+    }
+
+    @Override
+    public void subscribe(BiConsumer<UUID, EventEnvelope> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void forward(String ownerNodeId, UUID boardId, UUID userId, EventEnvelope write) {
+        ForwardedWriteHandler handler = forwardedWriteHandler;
+        if (!node.id().equals(ownerNodeId) || handler == null) {
+            log.error("[WS] Cannot forward {} for board {} to node {} without a backplane", write.getType(), boardId, ownerNodeId);
+            return;
+        }
+        handler.accept(boardId, userId, write);
+    }
+
+    @Override
+    public void onForwardedWrite(ForwardedWriteHandler handler) {
+        this.forwardedWriteHandler = handler;
+    }
+
+    static void deliver(List<BiConsumer<UUID, EventEnvelope>> listeners, UUID boardId, EventEnvelope event) {
+        for (BiConsumer<UUID, EventEnvelope> listener : listeners) {
+            try {
+                listener.accept(boardId, event);
+            } catch (Exception e) {
+                log.error("[WS] Bus listener failed for board {}: {}", boardId, e.getMessage(), e);
+            }
+        }
+    }
+}
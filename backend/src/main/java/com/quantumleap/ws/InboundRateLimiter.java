@@ -0,0 +1,153 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-session and per-user token buckets for inbound frames, one budget per {@link EventClass}.
+ * A frame passes only if both its session and its user have a token left; the user budget is a
+ * multiple of the session budget so one user cannot get around the limit by opening more tabs.
+ */
+@Component
+public class InboundRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(InboundRateLimiter.class);
+
+    /**
+     * Outcome of a check: whether the frame may pass, and if not, whether the client should be told.
+     */
+    public record Verdict(boolean allowed, boolean signal, long retryAfterMillis) {
+        static final Verdict ALLOWED = new Verdict(true, false, 0);
+    }
+
+    private final boolean enabled;
+    private final double userFactor;
+    private final long slowDownIntervalNanos;
+    private final Map<EventClass, double[]> budgets = new EnumMap<>(EventClass.class);
+    private final Map<UUID, UserLimits> users = new ConcurrentHashMap<>();
+    private final Map<EventClass, Counter> throttledSession = new EnumMap<>(EventClass.class);
+    private final Map<EventClass, Counter> throttledUser = new EnumMap<>(EventClass.class);
+    private final Counter slowDownsSent;
+
+    public InboundRateLimiter(MeterRegistry meterRegistry,
+                              @Value("${quantumleap.websocket.rate-limit.enabled:true}") boolean enabled,
+                              @Value("${quantumleap.websocket.rate-limit.user-factor:2}") double userFactor,
+                              @Value("${quantumleap.websocket.rate-limit.slow-down-interval-ms:1000}") long slowDownIntervalMs,
+                              @Value("${quantumleap.websocket.rate-limit.cursor.rate:60}") double cursorRate,
+                              @Value("${quantumleap.websocket.rate-limit.cursor.burst:120}") double cursorBurst,
+                              @Value("${quantumleap.websocket.rate-limit.draw.rate:30}") double drawRate,
+                              @Value("${quantumleap.websocket.rate-limit.draw.burst:60}") double drawBurst,
+                              @Value("${quantumleap.websocket.rate-limit.destructive.rate:0.2}") double destructiveRate,
+                              @Value("${quantumleap.websocket.rate-limit.destructive.burst:2}") double destructiveBurst) {
+        this.enabled = enabled;
+        this.userFactor = Math.max(1, userFactor);
+        this.slowDownIntervalNanos = TimeUnit.MILLISECONDS.toNanos(slowDownIntervalMs);
+        budgets.put(EventClass.CURSOR, new double[] {cursorRate, cursorBurst});
+        budgets.put(EventClass.DRAW, new double[] {drawRate, drawBurst});
+        budgets.put(EventClass.DESTRUCTIVE, new double[] {destructiveRate, destructiveBurst});
+        for (EventClass eventClass : EventClass.values()) {
+            throttledSession.put(eventClass, throttledCounter(meterRegistry, eventClass, "session"));
+            throttledUser.put(eventClass, throttledCounter(meterRegistry, eventClass, "user"));
+        }
+        this.slowDownsSent = Counter.builder("quantumleap.ws.ratelimit.slow_down")
+                .description("SLOW_DOWN control frames sent to clients")
+                .register(meterRegistry);
+        log.info("[WS] Inbound rate limits {}: cursor={}/s, draw={}/s, destructive={}/s, user factor {}",
+                enabled ? "enabled" : "disabled", cursorRate, drawRate, destructiveRate, userFactor);
+    }
+
+    /**
+     * Buckets for a new session; the user's shared buckets are created with the first session.
+     */
+    public SessionLimits open(UUID userId) {
+        long now = System.nanoTime();
+        UserLimits user = users.compute(userId, (id, existing) -> {
+            UserLimits target = existing != null ? existing : new UserLimits(buckets(userFactor, now));
+            target.sessions++;
+            return target;
+        });
+        return new SessionLimits(userId, buckets(1, now), user);
+    }
+
+    public void close(SessionLimits limits) {
+        users.computeIfPresent(limits.userId, (id, user) -> --user.sessions > 0 ? user : null);
+    }
+
+    public Verdict check(SessionLimits limits, EventClass eventClass) {
+        if (!enabled) {
+            return Verdict.ALLOWED;
+        }
+        long now = System.nanoTime();
+        TokenBucket session = limits.buckets.get(eventClass);
+        TokenBucket user = limits.user.buckets.get(eventClass);
+        TokenBucket exhausted;
+        if (!session.tryConsume(now)) {
+            throttledSession.get(eventClass).increment();
+            exhausted = session;
+        } else if (!user.tryConsume(now)) {
+            session.refund();
+            throttledUser.get(eventClass).increment();
+            exhausted = user;
+        } else {
+            return Verdict.ALLOWED;
+        }
+        // Tell the client at most once per interval, not once per dropped frame
+        long last = limits.lastSlowDown.get();
+        boolean signal = now - last >= slowDownIntervalNanos && limits.lastSlowDown.compareAndSet(last, now);
+        if (signal) {
+            slowDownsSent.increment();
+        }
+        long wait = exhausted.nanosUntilAvailable(now);
+        return new Verdict(false, signal, wait == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(wait) + 1);
+    }
+
+    private Map<EventClass, TokenBucket> buckets(double factor, long now) {
+        Map<EventClass, TokenBucket> result = new EnumMap<>(EventClass.class);
+        budgets.forEach((eventClass, budget) ->
+                result.put(eventClass, new TokenBucket(budget[0] * factor, budget[1] * factor, now)));
+        return result;
+    }
+
+    private static Counter throttledCounter(MeterRegistry registry, EventClass eventClass, String scope) {
+        return Counter.builder("quantumleap.ws.ratelimit.throttled")
+                .description("Inbound frames dropped by rate limiting")
+                .tag("class", eventClass.name().toLowerCase())
+                .tag("scope", scope)
+                .register(registry);
+    }
+
+    /**
+     * Buckets of one session plus a reference to its user's shared buckets.
+     */
+    public static final class SessionLimits {
+        private final UUID userId;
+        private final Map<EventClass, TokenBucket> buckets;
+        private final UserLimits user;
+        private final AtomicLong lastSlowDown = new AtomicLong(Long.MIN_VALUE / 2);
+
+        private SessionLimits(UUID userId, Map<EventClass, TokenBucket> buckets, UserLimits user) {
+            this.userId = userId;
+            this.buckets = buckets;
+            this.user = user;
+        }
+    }
+
+    private static final class UserLimits {
+        private final Map<EventClass, TokenBucket> buckets;
+        private int sessions;
+
+        private UserLimits(Map<EventClass, TokenBucket> buckets) {
+            this.buckets = buckets;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.config.JwtTokenProvider;
+import com.quantumleap.service.WhiteboardService;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Authenticates the handshake before the upgrade, with a single parse of the JWT. Requests without a valid
+ * token get a plain 401, requests for a board the user cannot access a 403, malformed board IDs a 400; none of
+ * them is upgraded. Accepted requests carry the caller's {@link Identity} into the session attributes, where
+ * {@link AdmissionHandshakeInterceptor} and {@link WhiteboardWebSocketHandler} read it.
+ * <p>
+ * The token is taken from the {@code token} query parameter, since browsers cannot set headers on a
+ * WebSocket handshake, or from a Bearer {@code Authorization} header for other clients.
+ */
+@Component
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(JwtHandshakeInterceptor.class);
+
+    public static final String IDENTITY_ATTRIBUTE = JwtHandshakeInterceptor.class.getName() + ".identity";
+
+    /**
+     * Who the session belongs to and which board it is for, as established at the handshake.
+     */
+    public record Identity(UUID userId, String userName, UUID boardId, Claims claims) {
+    }
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final WhiteboardService whiteboardService;
+
+    public JwtHandshakeInterceptor(JwtTokenProvider jwtTokenProvider, WhiteboardService whiteboardService) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.whiteboardService = whiteboardService;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        UUID boardId = boardIdFromPath(request.getURI().getPath());
+        if (boardId == null) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+        String token = tokenFromQuery(request.getURI().getQuery());
+        if (token == null) {
+            String header = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (header != null && header.startsWith("Bearer ")) {
+                token = header.substring(7);
+            }
+        }
+        if (token == null) {
+            return reject(response, HttpStatus.UNAUTHORIZED, "missing token", boardId);
+        }
+
+        Identity identity;
+        try {
+            Claims claims = jwtTokenProvider.parseClaims(token);
+            identity = new Identity(jwtTokenProvider.getUserId(claims), jwtTokenProvider.getUsername(claims), boardId, claims);
+        } catch (Exception e) {
+            return reject(response, HttpStatus.UNAUTHORIZED, "invalid token", boardId);
+        }
+        if (!whiteboardService.hasAccessToWhiteboard(boardId, identity.userId())) {
+            return reject(response, HttpStatus.FORBIDDEN, "no access for user " + identity.userId(), boardId);
+        }
+        attributes.put(IDENTITY_ATTRIBUTE, identity);
+        return true;
+    }
+
+    private static boolean reject(ServerHttpResponse response, HttpStatus status, String reason, UUID boardId) {
+        log.warn("[WS] Refused handshake for board {}: {}", boardId, reason);
+        response.setStatusCode(status);
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private static UUID boardIdFromPath(String path) {
+        int index = path != null ? path.indexOf("/ws/whiteboard/") : -1;
+        if (index == -1) {
+            return null;
+        }
+        try {
+            return UUID.fromString(path.substring(index + "/ws/whiteboard/".length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String tokenFromQuery(String query) {
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+        for (String param : query.split("&")) {
+            if (param.startsWith("token=")) {
+                return param.substring(6);
+            }
+        }
+        return null;
+    }
+}
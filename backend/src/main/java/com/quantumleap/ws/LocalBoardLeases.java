@@ -0,0 +1,30 @@
+package com.quantumleap.ws;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Single-node leases: this node owns every board.
+ */
+@Component
+@ConditionalOnProperty(name = "quantumleap.websocket.bus.type", havingValue = "in-process", matchIfMissing = true)
+public class LocalBoardLeases implements BoardLeases {
+
+    private final NodeIdentity node;
+
+    public LocalBoardLeases(NodeIdentity node) {
+        this.node = node;
+    }
+
+    @Override
+    public String acquireOrLocate(UUID boardId) {
+        return node.id();
+    }
+
+    @Override
+    public boolean isOwner(UUID boardId) {
+        return true;
+    }
+}
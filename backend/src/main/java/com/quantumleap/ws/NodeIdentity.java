@@ -0,0 +1,31 @@
+package com.quantumleap.ws;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Name of this backend node on the backplane; also used as its Postgres {@code application_name}.
+ */
+@Component
+public class NodeIdentity {
+    private static final Pattern NODE_ID = Pattern.compile("[A-Za-z0-9._-]{1,63}");
+
+    private final String id;
+
+    public NodeIdentity(@Value("${quantumleap.websocket.node-id:}") String configured) {
+        if (configured == null || configured.isBlank()) {
+            this.id = UUID.randomUUID().toString();
+        } else if (NODE_ID.matcher(configured).matches()) {
+            this.id = configured;
+        } else {
+            throw new IllegalArgumentException("Invalid node ID: " + configured);
+        }
+    }
+
+    public String id() {
+        return id;
+    }
+}
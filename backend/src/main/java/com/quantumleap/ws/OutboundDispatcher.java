@@ -0,0 +1,172 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Owns the per-session outbound queues and the virtual threads that drain them.
+ * All writes to a WebSocket session go through here so that no caller ever blocks on a socket;
+ * a drain blocked on a slow client parks its own virtual thread and holds up no other session.
+ */
+@Component
+public class OutboundDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(OutboundDispatcher.class);
+
+    private final Map<String, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    private final ExecutorService drainExecutor;
+    private final int queueCapacity;
+    private final SlowConsumerPolicy policy;
+    private final int maxFramesPerDrain;
+
+    private final Counter cursorDropped;
+    private final Counter cursorEvicted;
+    private final Counter cursorCoalesced;
+    private final Counter slowConsumerDisconnects;
+
+    public OutboundDispatcher(MeterRegistry meterRegistry,
+                              @Value("${quantumleap.websocket.outbound.queue-capacity:256}") int queueCapacity,
+                              @Value("${quantumleap.websocket.outbound.slow-consumer-policy:COALESCE}") SlowConsumerPolicy policy,
+                              @Value("${quantumleap.websocket.outbound.max-frames-per-drain:64}") int maxFramesPerDrain) {
+        this.queueCapacity = queueCapacity;
+        this.policy = policy;
+        this.maxFramesPerDrain = maxFramesPerDrain;
+        this.drainExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-outbound-", 0).factory());
+
+        this.cursorDropped = droppedCounter(meterRegistry, "cursor_dropped");
+        this.cursorEvicted = droppedCounter(meterRegistry, "cursor_evicted");
+        this.cursorCoalesced = droppedCounter(meterRegistry, "cursor_coalesced");
+        this.slowConsumerDisconnects = Counter.builder("quantumleap.ws.outbound.slow_consumer.disconnects")
+                .description("Sessions closed with a resync hint because their outbound queue overflowed")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.ws.outbound.sessions", outboxes, Map::size)
+                .description("Sessions with an outbound queue")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.ws.outbound.queue.depth", this, OutboundDispatcher::totalDepth)
+                .description("Frames waiting in all outbound queues")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.ws.outbound.queue.depth.max", this, OutboundDispatcher::maxDepth)
+                .description("Deepest outbound queue of any single session")
+                .register(meterRegistry);
+
+        log.info("[WS] Outbound queues: capacity={}, policy={}, maxFramesPerDrain={}", queueCapacity, policy, maxFramesPerDrain);
+    }
+
+    public SessionOutbox register(WebSocketSession session) {
+        SessionOutbox outbox = new SessionOutbox(session, drainExecutor, queueCapacity, policy, maxFramesPerDrain);
+        outboxes.put(session.getId(), outbox);
+        return outbox;
+    }
+
+    public void unregister(String sessionId) {
+        outboxes.remove(sessionId);
+    }
+
+    public boolean isRegistered(WebSocketSession session) {
+        return outboxes.containsKey(session.getId());
+    }
+
+    /**
+     * Queue a frame that must reach the session.
+     */
+    public void send(WebSocketSession session, WebSocketMessage<?> message) {
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox != null) {
+            send(outbox, message);
+        }
+    }
+
+    /**
+     * Same as {@link #send(WebSocketSession, WebSocketMessage)} for callers that already hold the outbox.
+     */
+    public void send(SessionOutbox outbox, WebSocketMessage<?> message) {
+        handleOffer(outbox, outbox.offer(message));
+    }
+
+    /**
+     * Queue a cursor frame; it may be coalesced with a pending one for the same key or dropped.
+     */
+    public void sendCursor(WebSocketSession session, Object key, WebSocketMessage<?> message) {
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox != null) {
+            sendCursor(outbox, key, message);
+        }
+    }
+
+    public void sendCursor(SessionOutbox outbox, Object key, WebSocketMessage<?> message) {
+        handleOffer(outbox, outbox.offerCursor(key, message));
+    }
+
+    /**
+     * Drop whatever is queued and close the session, e.g. because its peer stopped responding.
+     */
+    public void closeNow(SessionOutbox outbox, CloseStatus status) {
+        outbox.closeNow(status);
+    }
+
+    /**
+     * Flush what is queued for the session and then close it.
+     */
+    public void closeAfterDrain(WebSocketSession session, CloseStatus status) {
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox != null) {
+            outbox.closeAfterDrain(status);
+        }
+    }
+
+    private void handleOffer(SessionOutbox outbox, SessionOutbox.Offer offer) {
+        switch (offer) {
+            case DROPPED -> cursorDropped.increment();
+            case EVICTED -> cursorEvicted.increment();
+            case COALESCED -> cursorCoalesced.increment();
+            case OVERFLOW -> {
+                slowConsumerDisconnects.increment();
+                log.warn("[WS] Outbound queue full for session {}, closing with resync hint",
+                        outbox.getSession().getId());
+                outbox.closeNow(SessionOutbox.RESYNC);
+            }
+            default -> { }
+        }
+    }
+
+    private double totalDepth() {
+        long total = 0;
+        for (SessionOutbox outbox : outboxes.values()) {
+            total += outbox.depth();
+        }
+        return total;
+    }
+
+    private double maxDepth() {
+        int max = 0;
+        for (SessionOutbox outbox : outboxes.values()) {
+            max = Math.max(max, outbox.depth());
+        }
+        return max;
+    }
+
+    private static Counter droppedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("quantumleap.ws.outbound.dropped")
+                .description("Outbound frames dropped or merged because a session fell behind")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainExecutor.shutdown();
+    }
+}
@@ -0,0 +1,479 @@
+package com.quantumleap.ws;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quantumleap.dto.ws.EventEnvelope;
+import com.quantumleap.service.EventService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Multi-node bus on PostgreSQL LISTEN/NOTIFY, so scaling out needs no infrastructure beyond the database.
+ * <p>
+ * Local subscribers get an event as soon as it is published. A publisher thread packs whatever has queued up
+ * meanwhile (optionally waiting a short batch window) into one {@code pg_notify} of at most
+ * {@code max-payload-bytes}. Events too large for a notification travel as a reference: committed events are
+ * loaded from the event store by each receiver. Optimistic events, published before they commit, are staged
+ * in a small unlogged table and read from there, as are forwarded writes, which their target takes out. Each notification carries the publishing node's ID, and a node drops its own
+ * echoes since it already delivered those events locally. Notifications sent while a listener is reconnecting
+ * are lost; affected clients catch up through the replay they get when they reconnect.
+ */
+@Component
+@ConditionalOnProperty(name = "quantumleap.websocket.bus.type", havingValue = "postgres")
+public class PostgresBoardEventBus implements BoardEventBus {
+    private static final Logger log = LoggerFactory.getLogger(PostgresBoardEventBus.class);
+
+    // PostgreSQL rejects NOTIFY payloads of 8000 bytes or more
+    static final int MAX_NOTIFY_BYTES = 7999;
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+    private static final int LISTEN_POLL_MILLIS = 500;
+    private static final String STAGING_TABLE = "quantumleap_bus_payloads";
+    private static final long STAGING_CLEANUP_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final BackplaneConnectionFactory connections;
+    private final String nodeId;
+    private final ObjectMapper objectMapper;
+    private final EventService eventService;
+    private final String channel;
+    private final long batchWindowNanos;
+    private final int maxPayloadBytes;
+    private final long reconnectBackoffMillis;
+    private final List<BiConsumer<UUID, EventEnvelope>> listeners = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Outgoing> outgoing = new LinkedBlockingQueue<>();
+    private final Thread publisherThread;
+    private final Thread listenerThread;
+    private volatile ForwardedWriteHandler forwardedWriteHandler;
+    private volatile boolean running = true;
+    private volatile boolean listening;
+
+    // Owned by the publisher thread
+    private Connection publishConnection;
+    private boolean stagingReady;
+    private long lastStagingCleanup = System.nanoTime();
+
+    private final Counter eventsPublished;
+    private final Counter notificationsSent;
+    private final Counter eventsReceived;
+    private final Counter echoesDropped;
+    private final Counter eventsDropped;
+    private final Counter writesForwarded;
+    private final Counter writesReceived;
+
+    public PostgresBoardEventBus(BackplaneConnectionFactory connections,
+                                 NodeIdentity node,
+                                 ObjectMapper objectMapper,
+                                 EventService eventService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${quantumleap.websocket.bus.postgres.channel:quantumleap_board_events}") String channel,
+                                 @Value("${quantumleap.websocket.bus.postgres.batch-window-ms:0}") long batchWindowMillis,
+                                 @Value("${quantumleap.websocket.bus.postgres.max-payload-bytes:7999}") int maxPayloadBytes,
+                                 @Value("${quantumleap.websocket.bus.postgres.reconnect-backoff-ms:1000}") long reconnectBackoffMillis) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid NOTIFY channel name: " + channel);
+        }
+        this.connections = connections;
+        this.nodeId = node.id();
+        this.objectMapper = objectMapper;
+        this.eventService = eventService;
+        this.channel = channel;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, batchWindowMillis));
+        this.maxPayloadBytes = Math.min(maxPayloadBytes, MAX_NOTIFY_BYTES);
+        this.reconnectBackoffMillis = reconnectBackoffMillis;
+
+        this.eventsPublished = Counter.builder("quantumleap.bus.events.published")
+                .description("Events this node published to the backplane")
+                .register(meterRegistry);
+        this.notificationsSent = Counter.builder("quantumleap.bus.notifications.sent")
+                .description("NOTIFY statements issued; events per notification shows batching")
+                .register(meterRegistry);
+        this.eventsReceived = Counter.builder("quantumleap.bus.events.received")
+                .description("Events received from other nodes")
+                .register(meterRegistry);
+        this.echoesDropped = Counter.builder("quantumleap.bus.echoes.dropped")
+                .description("Events this node published and received back")
+                .register(meterRegistry);
+        this.eventsDropped = Counter.builder("quantumleap.bus.events.dropped")
+                .description("Events or writes that could not be sent to or loaded for other nodes")
+                .register(meterRegistry);
+        this.writesForwarded = Counter.builder("quantumleap.bus.writes.forwarded")
+                .description("Client writes sent to the node owning their board")
+                .register(meterRegistry);
+        this.writesReceived = Counter.builder("quantumleap.bus.writes.received")
+                .description("Client writes forwarded to this node by other nodes")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.bus.outgoing", outgoing, BlockingQueue::size)
+                .description("Events waiting to be sent to other nodes")
+                .register(meterRegistry);
+
+        this.publisherThread = Thread.ofPlatform().name("board-bus-publisher").daemon(true).start(this::runPublisher);
+        this.listenerThread = Thread.ofPlatform().name("board-bus-listener").daemon(true).start(this::runListener);
+        log.info("[WS] Board event bus: postgres channel {}, node {}", channel, nodeId);
+    }
+
+    @Override
+    public void publish(UUID boardId, EventEnvelope event) {
+        eventsPublished.increment();
+        InProcessBoardEventBus.deliver(listeners, boardId, event);
+        outgoing.add(new Outgoing(boardId, event, null, null));
+    }
+
+    @Override
+    public void subscribe(BiConsumer<UUID, EventEnvelope> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void forward(String ownerNodeId, UUID boardId, UUID userId, EventEnvelope write) {
+        writesForwarded.increment();
+        outgoing.add(new Outgoing(boardId, write, ownerNodeId, userId));
+    }
+
+    @Override
+    public void onForwardedWrite(ForwardedWriteHandler handler) {
+        this.forwardedWriteHandler = handler;
+    }
+
+    boolean isListening() {
+        return listening;
+    }
+
+    private void runPublisher() {
+        Batch batch = new Batch();
+        while (running) {
+            try {
+                Outgoing next = outgoing.poll(LISTEN_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (next == null) {
+                    continue;
+                }
+                long deadline = System.nanoTime() + batchWindowNanos;
+                while (next != null) {
+                    byte[] entry = encode(next);
+                    if (entry != null) {
+                        if (!batch.fits(entry)) {
+                            send(batch);
+                        }
+                        batch.add(entry);
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    next = remaining > 0 ? outgoing.poll(remaining, TimeUnit.NANOSECONDS) : outgoing.poll();
+                }
+                send(batch);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        closeQuietly(publishConnection);
+    }
+
+    private byte[] encode(Outgoing out) {
+        try {
+            byte[] entry = objectMapper.writeValueAsBytes(new Entry(out.boardId(), out.event(), null, null, out.target(), out.userId()));
+            if (framing(nodeId) + entry.length <= maxPayloadBytes) {
+                return entry;
+            }
+            if (out.target() != null || out.event().getSeq() == null) {
+                // Not in the event store yet, or not for a while: a receiver looking it up there could miss it
+                UUID staged = stage(objectMapper.writeValueAsString(out.event()));
+                return objectMapper.writeValueAsBytes(new Entry(out.boardId(), null, null, staged, out.target(), out.userId()));
+            }
+            if (out.event().getId() != null) {
+                return objectMapper.writeValueAsBytes(new Entry(out.boardId(), null, UUID.fromString(out.event().getId()), null, null, null));
+            }
+            log.error("[WS] Event {} for board {} is too large for the bus and has no ID to reference",
+                    out.event().getType(), out.boardId());
+        } catch (SQLException e) {
+            log.error("[WS] Failed to stage event for board {}: {}", out.boardId(), e.getMessage());
+            resetPublishConnection();
+        } catch (Exception e) {
+            log.error("[WS] Failed to encode event for the bus: {}", e.getMessage(), e);
+        }
+        eventsDropped.increment();
+        return null;
+    }
+
+    private UUID stage(String payload) throws SQLException {
+        Connection c = publishConnection();
+        if (!stagingReady) {
+            try (Statement statement = c.createStatement()) {
+                statement.execute("CREATE UNLOGGED TABLE IF NOT EXISTS " + STAGING_TABLE
+                        + " (id uuid PRIMARY KEY, payload text NOT NULL, created_at timestamptz NOT NULL DEFAULT now())");
+            } catch (SQLException e) {
+                // Another node may be creating it at the same moment; the insert below tells us if it is really missing
+                log.debug("[WS] Creating {} failed: {}", STAGING_TABLE, e.getMessage());
+            }
+            stagingReady = true;
+        }
+        long now = System.nanoTime();
+        if (now - lastStagingCleanup > STAGING_CLEANUP_NANOS) {
+            lastStagingCleanup = now;
+            // Staged events every node has read by now, and writes whose target died before taking them out
+            try (Statement statement = c.createStatement()) {
+                statement.execute("DELETE FROM " + STAGING_TABLE + " WHERE created_at < now() - interval '1 minute'");
+            }
+        }
+        UUID id = UUID.randomUUID();
+        try (PreparedStatement statement = c.prepareStatement("INSERT INTO " + STAGING_TABLE + " (id, payload) VALUES (?, ?)")) {
+            statement.setObject(1, id);
+            statement.setString(2, payload);
+            statement.executeUpdate();
+        }
+        return id;
+    }
+
+    private void send(Batch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        String payload = batch.toPayload(nodeId);
+        try (PreparedStatement statement = publishConnection().prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, channel);
+            statement.setString(2, payload);
+            statement.execute();
+            notificationsSent.increment();
+        } catch (SQLException e) {
+            log.error("[WS] Failed to notify {} events to other nodes: {}", batch.size(), e.getMessage());
+            eventsDropped.increment(batch.size());
+            resetPublishConnection();
+        }
+        batch.clear();
+    }
+
+    private Connection publishConnection() throws SQLException {
+        if (publishConnection == null) {
+            publishConnection = connections.open();
+        }
+        return publishConnection;
+    }
+
+    private void resetPublishConnection() {
+        closeQuietly(publishConnection);
+        publishConnection = null;
+        stagingReady = false;
+    }
+
+    private void runListener() {
+        while (running) {
+            try (Connection connection = connections.open()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                listening = true;
+                log.info("[WS] Listening for board events on channel {}", channel);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(LISTEN_POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(connection, notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                listening = false;
+                if (!running) {
+                    return;
+                }
+                log.warn("[WS] Board event listener lost its connection, retrying in {} ms: {}", reconnectBackoffMillis, e.getMessage());
+                try {
+                    Thread.sleep(reconnectBackoffMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+        listening = false;
+    }
+
+    private void receive(Connection connection, String payload) throws SQLException {
+        Notification notification;
+        try {
+            notification = objectMapper.readValue(payload, Notification.class);
+        } catch (Exception e) {
+            log.error("[WS] Ignoring malformed bus notification: {}", e.getMessage());
+            return;
+        }
+        if (notification.events() == null) {
+            return;
+        }
+        if (nodeId.equals(notification.node())) {
+            echoesDropped.increment(notification.events().stream().filter(entry -> entry.to() == null).count());
+            return;
+        }
+        for (Entry entry : notification.events()) {
+            if (entry.board() == null) {
+                continue;
+            }
+            if (entry.to() != null) {
+                if (nodeId.equals(entry.to())) {
+                    receiveWrite(connection, entry);
+                }
+                continue;
+            }
+            EventEnvelope event = entry.event();
+            if (event == null && entry.staged() != null) {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT payload FROM " + STAGING_TABLE + " WHERE id = ?")) {
+                    statement.setObject(1, entry.staged());
+                    try (ResultSet rs = statement.executeQuery()) {
+                        event = rs.next() ? readEnvelope(rs.getString(1)) : null;
+                    }
+                }
+                if (event == null) {
+                    log.error("[WS] Staged event {} for board {} is gone", entry.staged(), entry.board());
+                    eventsDropped.increment();
+                    continue;
+                }
+            } else if (event == null && entry.ref() != null) {
+                try {
+                    event = eventService.getEventById(entry.ref());
+                } catch (Exception e) {
+                    log.error("[WS] Failed to load referenced event {}: {}", entry.ref(), e.getMessage());
+                    eventsDropped.increment();
+                    continue;
+                }
+            }
+            if (event != null) {
+                eventsReceived.increment();
+                InProcessBoardEventBus.deliver(listeners, entry.board(), event);
+            }
+        }
+    }
+
+    private void receiveWrite(Connection connection, Entry entry) throws SQLException {
+        EventEnvelope write = entry.event();
+        if (write == null && entry.staged() != null) {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + STAGING_TABLE + " WHERE id = ? RETURNING payload")) {
+                statement.setObject(1, entry.staged());
+                try (ResultSet rs = statement.executeQuery()) {
+                    write = rs.next() ? readEnvelope(rs.getString(1)) : null;
+                }
+            }
+        }
+        ForwardedWriteHandler handler = forwardedWriteHandler;
+        if (write == null || handler == null || entry.user() == null) {
+            log.error("[WS] Dropping write forwarded for board {}", entry.board());
+            eventsDropped.increment();
+            return;
+        }
+        writesReceived.increment();
+        try {
+            handler.accept(entry.board(), entry.user(), write);
+        } catch (Exception e) {
+            log.error("[WS] Forwarded write handler failed for board {}: {}", entry.board(), e.getMessage(), e);
+        }
+    }
+
+    private EventEnvelope readEnvelope(String json) {
+        try {
+            return objectMapper.readValue(json, EventEnvelope.class);
+        } catch (Exception e) {
+            log.error("[WS] Ignoring malformed staged event: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Bytes around the entries: {"node":"<id>","events":[]}
+    private static int framing(String nodeId) {
+        return nodeId.length() + 23;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Nothing left to do with a broken connection
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        publisherThread.interrupt();
+        listenerThread.interrupt();
+    }
+
+    private record Outgoing(UUID boardId, EventEnvelope event, String target, UUID userId) {
+    }
+
+    /**
+     * One item in a notification: a published event, or a write for node {@code to} on behalf of {@code user}.
+     * Either carries the payload itself, the {@code ref} of a committed event to load from the event store,
+     * or the ID of the row it was {@code staged} in.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Entry(UUID board, EventEnvelope event, UUID ref, UUID staged, String to, UUID user) {
+    }
+
+    record Notification(String node, List<Entry> events) {
+    }
+
+    /**
+     * Pre-encoded entries of the next notification; the payload is assembled without re-encoding them.
+     */
+    private final class Batch {
+        private final List<byte[]> entries = new ArrayList<>();
+        private int bytes;
+
+        boolean fits(byte[] entry) {
+            return framing(nodeId) + bytes + entries.size() + entry.length <= maxPayloadBytes;
+        }
+
+        void add(byte[] entry) {
+            entries.add(entry);
+            bytes += entry.length;
+        }
+
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+
+        String toPayload(String nodeId) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(framing(nodeId) + bytes + entries.size());
+            out.writeBytes(("{\"node\":\"" + nodeId + "\",\"events\":[").getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < entries.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.writeBytes(entries.get(i));
+            }
+            out.writeBytes("]}".getBytes(StandardCharsets.UTF_8));
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
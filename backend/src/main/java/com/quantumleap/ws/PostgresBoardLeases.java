@@ -0,0 +1,244 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Board leases held as session-level PostgreSQL advisory locks on one dedicated connection.
+ * <p>
+ * Backplane connections carry the node ID as {@code application_name}, so the owner of a lease is found by joining
+ * {@code pg_locks} with {@code pg_stat_activity}. When a node dies its connection goes away and Postgres
+ * releases its locks, so the next write for one of its boards takes the lease on another node. A lease that
+ * has seen no writes for {@code idle-release-ms} is given up, so boards do not stay pinned to a node that
+ * no longer serves them.
+ * If this node loses the lease connection it stops claiming every board at once; the keepalive interval
+ * bounds how long it can keep writing after that happens unnoticed.
+ */
+@Component
+@ConditionalOnProperty(name = "quantumleap.websocket.bus.type", havingValue = "postgres")
+public class PostgresBoardLeases implements BoardLeases {
+    private static final Logger log = LoggerFactory.getLogger(PostgresBoardLeases.class);
+
+    private static final String FIND_OWNER = """
+            SELECT a.application_name FROM pg_locks l JOIN pg_stat_activity a ON a.pid = l.pid
+            WHERE l.locktype = 'advisory' AND l.granted AND l.objsubid = 1
+              AND l.database = (SELECT oid FROM pg_database WHERE datname = current_database())
+              AND l.classid::bigint = ? AND l.objid::bigint = ?""";
+
+    private final BackplaneConnectionFactory connections;
+    private final String nodeId;
+    private final long ownerCacheNanos;
+    private final long idleReleaseNanos;
+    // JDBC connections are not thread-safe; a lock rather than synchronized keeps virtual threads unpinned
+    private final ReentrantLock connectionLock = new ReentrantLock();
+    // Owned boards with the time of their last write
+    private final Map<UUID, Long> owned = new ConcurrentHashMap<>();
+    private final Map<UUID, CachedOwner> owners = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService keepalive;
+    private final Counter acquired;
+    private final Counter lost;
+    private Connection connection;
+
+    public PostgresBoardLeases(BackplaneConnectionFactory connections,
+                               NodeIdentity node,
+                               MeterRegistry meterRegistry,
+                               @Value("${quantumleap.websocket.leases.owner-cache-ms:2000}") long ownerCacheMillis,
+                               @Value("${quantumleap.websocket.leases.keepalive-ms:5000}") long keepaliveMillis,
+                               @Value("${quantumleap.websocket.leases.idle-release-ms:30000}") long idleReleaseMillis) {
+        this.connections = connections;
+        this.nodeId = node.id();
+        this.ownerCacheNanos = TimeUnit.MILLISECONDS.toNanos(ownerCacheMillis);
+        this.idleReleaseNanos = TimeUnit.MILLISECONDS.toNanos(idleReleaseMillis);
+
+        Gauge.builder("quantumleap.board.leases.owned", owned, Map::size)
+                .description("Boards whose lease this node holds")
+                .register(meterRegistry);
+        this.acquired = Counter.builder("quantumleap.board.leases.acquired")
+                .description("Board leases taken by this node")
+                .register(meterRegistry);
+        this.lost = Counter.builder("quantumleap.board.leases.lost")
+                .description("Board leases dropped because the lease connection failed")
+                .register(meterRegistry);
+
+        this.keepalive = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("board-lease-keepalive").daemon(true).factory());
+        this.keepalive.scheduleWithFixedDelay(this::maintain, keepaliveMillis, keepaliveMillis, TimeUnit.MILLISECONDS);
+        log.info("[WS] Board leases: postgres advisory locks, node {}", nodeId);
+    }
+
+    @Override
+    public String acquireOrLocate(UUID boardId) {
+        if (owned.replace(boardId, System.nanoTime()) != null) {
+            return nodeId;
+        }
+        CachedOwner cached = owners.get(boardId);
+        if (cached != null && cached.expiresAt() - System.nanoTime() > 0) {
+            return cached.nodeId();
+        }
+        long key = lockKey(boardId);
+        connectionLock.lock();
+        try {
+            Connection c = connection();
+            // The owner may release between our attempt and the lookup; one retry covers that
+            for (int attempt = 0; attempt < 2; attempt++) {
+                if (tryLock(c, key)) {
+                    owned.put(boardId, System.nanoTime());
+                    owners.remove(boardId);
+                    acquired.increment();
+                    log.info("[WS] Node {} took the lease for board {}", nodeId, boardId);
+                    return nodeId;
+                }
+                String owner = findOwner(c, key);
+                if (owner != null) {
+                    owners.put(boardId, new CachedOwner(owner, System.nanoTime() + ownerCacheNanos));
+                    return owner;
+                }
+            }
+            throw new RuntimeException("Board lease for " + boardId + " is held but its owner could not be found");
+        } catch (SQLException e) {
+            dropConnection(e);
+            throw new RuntimeException("Board lease lookup failed", e);
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    private void release(UUID boardId, long lastWrite) {
+        // Skipped if a write touched the lease since the sweep looked at it
+        if (!owned.remove(boardId, lastWrite)) {
+            return;
+        }
+        connectionLock.lock();
+        try (PreparedStatement statement = connection().prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, lockKey(boardId));
+            statement.execute();
+            log.info("[WS] Node {} released the lease for board {}", nodeId, boardId);
+        } catch (SQLException e) {
+            dropConnection(e);
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOwner(UUID boardId) {
+        return owned.containsKey(boardId);
+    }
+
+    static long lockKey(UUID boardId) {
+        return boardId.getMostSignificantBits() ^ boardId.getLeastSignificantBits();
+    }
+
+    private static boolean tryLock(Connection c, long key) throws SQLException {
+        try (PreparedStatement statement = c.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, key);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static String findOwner(Connection c, long key) throws SQLException {
+        // A bigint advisory key is reported as its high and low 32 bits
+        try (PreparedStatement statement = c.prepareStatement(FIND_OWNER)) {
+            statement.setLong(1, key >>> 32);
+            statement.setLong(2, key & 0xFFFFFFFFL);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    // Callers hold connectionLock
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            connection = connections.open();
+        }
+        return connection;
+    }
+
+    // Callers hold connectionLock
+    private void dropConnection(SQLException cause) {
+        if (!owned.isEmpty()) {
+            log.error("[WS] Lease connection failed, giving up {} board leases: {}", owned.size(), cause.getMessage());
+            lost.increment(owned.size());
+            owned.clear();
+        }
+        owners.clear();
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Already broken
+            }
+            connection = null;
+        }
+    }
+
+    void maintain() {
+        try {
+            long now = System.nanoTime();
+            for (Map.Entry<UUID, Long> lease : owned.entrySet()) {
+                if (now - lease.getValue() > idleReleaseNanos) {
+                    release(lease.getKey(), lease.getValue());
+                }
+            }
+            checkConnection();
+        } catch (Exception e) {
+            log.error("[WS] Board lease maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void checkConnection() {
+        connectionLock.lock();
+        try {
+            if (connection != null && !connection.isValid(2)) {
+                dropConnection(new SQLException("Lease connection is no longer valid"));
+            }
+        } catch (SQLException e) {
+            dropConnection(e);
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        keepalive.shutdownNow();
+        connectionLock.lock();
+        try {
+            if (connection != null) {
+                // Closing the session releases every lease at once
+                connection.close();
+                connection = null;
+            }
+        } catch (SQLException e) {
+            log.warn("[WS] Failed to close lease connection: {}", e.getMessage());
+        } finally {
+            owned.clear();
+            connectionLock.unlock();
+        }
+    }
+
+    private record CachedOwner(String nodeId, long expiresAt) {
+    }
+}
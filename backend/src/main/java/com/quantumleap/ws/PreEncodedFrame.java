@@ -0,0 +1,76 @@
+package com.quantumleap.ws;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.function.Supplier;
+
+/**
+ * An outbound frame that has been serialized exactly once per framing.
+ * The UTF-8 JSON bytes, the text message built from them and the optional binary encoding
+ * are immutable and shared by every recipient.
+ */
+public final class PreEncodedFrame {
+    private static final byte[] NO_BINARY = new byte[0];
+
+    private final byte[] json;
+    private final TextMessage textMessage;
+    private final Supplier<byte[]> binaryEncoder;
+    private volatile byte[] binary;
+
+    public PreEncodedFrame(byte[] json) {
+        this(json, null);
+    }
+
+    /**
+     * @param binaryEncoder produces the binary subprotocol form on first use, or {@code null}
+     *                      if the frame has no binary form; may itself return {@code null}
+     */
+    public PreEncodedFrame(byte[] json, Supplier<byte[]> binaryEncoder) {
+        this.json = json;
+        this.textMessage = new TextMessage(json);
+        this.binaryEncoder = binaryEncoder;
+    }
+
+    /**
+     * UTF-8 encoded JSON; callers must not modify the returned array.
+     */
+    public byte[] json() {
+        return json;
+    }
+
+    public TextMessage asText() {
+        return textMessage;
+    }
+
+    public int size() {
+        return json.length;
+    }
+
+    /**
+     * Pick the framing a session negotiated, falling back to JSON when there is no binary form.
+     */
+    public WebSocketMessage<?> messageFor(boolean binaryClient) {
+        if (binaryClient) {
+            byte[] encoded = binary();
+            if (encoded != NO_BINARY) {
+                // A fresh buffer per recipient: the container consumes the buffer position while sending
+                return new BinaryMessage(encoded);
+            }
+        }
+        return textMessage;
+    }
+
+    private byte[] binary() {
+        byte[] encoded = binary;
+        if (encoded == null) {
+            encoded = binaryEncoder != null ? binaryEncoder.get() : null;
+            if (encoded == null) {
+                encoded = NO_BINARY;
+            }
+            binary = encoded;
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,147 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Server-driven heartbeats and presence expiry.
+ * <p>
+ * Every session has one timer in a {@link TimingWheel}, set to its next deadline: the next ping, the
+ * point where its cursor counts as idle, or the point where it counts as dead. Activity only writes a
+ * timestamp on the {@link SessionContext}; the timer re-checks those timestamps when it fires and re-arms
+ * itself, so nothing on the hot path touches the wheel. Idle cursors found in one tick are handed over
+ * per board in a single batch.
+ */
+@Component
+public class PresenceReaper {
+    private static final Logger log = LoggerFactory.getLogger(PresenceReaper.class);
+
+    private final OutboundDispatcher outbound;
+    private final long tickNanos;
+    private final long pingIntervalNanos;
+    private final long sessionTimeoutNanos;
+    private final long cursorIdleNanos;
+    private final long startNanos = System.nanoTime();
+    private final TimingWheel<SessionContext> wheel;
+    private final Queue<SessionContext> registrations = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService scheduler;
+    private final Counter deadSessions;
+    private volatile BiConsumer<UUID, List<SessionContext>> idleSink;
+
+    public PresenceReaper(OutboundDispatcher outbound,
+                          MeterRegistry meterRegistry,
+                          @Value("${quantumleap.websocket.heartbeat.tick-ms:100}") long tickMs,
+                          @Value("${quantumleap.websocket.heartbeat.ping-interval-ms:15000}") long pingIntervalMs,
+                          @Value("${quantumleap.websocket.heartbeat.session-timeout-ms:45000}") long sessionTimeoutMs,
+                          @Value("${quantumleap.websocket.heartbeat.cursor-idle-ms:60000}") long cursorIdleMs) {
+        this.outbound = outbound;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMs));
+        this.pingIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pingIntervalMs);
+        this.sessionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sessionTimeoutMs);
+        this.cursorIdleNanos = TimeUnit.MILLISECONDS.toNanos(cursorIdleMs);
+        this.wheel = new TimingWheel<>(3, 0);
+        this.deadSessions = Counter.builder("quantumleap.ws.heartbeat.dead_sessions")
+                .description("Sessions closed because nothing, not even a pong, arrived within the timeout")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.ws.heartbeat.timers", wheel, TimingWheel::size)
+                .description("Session timers in the presence wheel")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("ws-presence-reaper").daemon(true).factory());
+        this.scheduler.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("[WS] Heartbeats every {} ms, session timeout {} ms, cursor idle after {} ms",
+                pingIntervalMs, sessionTimeoutMs, cursorIdleMs);
+    }
+
+    /**
+     * Register the callback that receives, per board, the sessions whose cursor just went idle.
+     * Called on the reaper thread; the callback is expected to hand off to the board loop.
+     */
+    public void onIdle(BiConsumer<UUID, List<SessionContext>> idleSink) {
+        this.idleSink = idleSink;
+    }
+
+    public long cursorIdleMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(cursorIdleNanos);
+    }
+
+    public void register(SessionContext context) {
+        registrations.add(context);
+    }
+
+    void tick() {
+        try {
+            long now = System.nanoTime();
+            SessionContext added;
+            while ((added = registrations.poll()) != null) {
+                added.heartbeatTimer(wheel.schedule(added, ticks(Math.min(pingIntervalNanos, cursorIdleNanos))));
+            }
+            Map<UUID, List<SessionContext>> idle = new HashMap<>();
+            wheel.advance(ticks(now - startNanos), context -> check(context, now, idle));
+            BiConsumer<UUID, List<SessionContext>> sink = idleSink;
+            if (sink != null) {
+                idle.forEach(sink);
+            }
+        } catch (Exception e) {
+            log.error("[WS] Presence tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void check(SessionContext context, long now, Map<UUID, List<SessionContext>> idle) {
+        if (context.isClosed()) {
+            return;
+        }
+        long lastInbound = context.lastInboundNanos();
+        if (now - lastInbound >= sessionTimeoutNanos) {
+            deadSessions.increment();
+            log.info("[WS] Closing unresponsive session {} (silent for {} ms)", context.sessionId(),
+                    TimeUnit.NANOSECONDS.toMillis(now - lastInbound));
+            outbound.closeNow(context.outbox(), CloseStatus.SESSION_NOT_RELIABLE);
+            return;
+        }
+        if (now - context.lastPingNanos() >= pingIntervalNanos) {
+            outbound.send(context.outbox(), new PingMessage());
+            context.lastPingNanos(now);
+        }
+        long lastMove = context.lastCursorMoveNanos();
+        if (!context.readOnly() && lastMove != context.idleReportedFor() && now - lastMove >= cursorIdleNanos) {
+            context.idleReportedFor(lastMove);
+            idle.computeIfAbsent(context.boardId(), k -> new ArrayList<>()).add(context);
+        }
+
+        long next = Math.min(context.lastPingNanos() + pingIntervalNanos, lastInbound + sessionTimeoutNanos);
+        if (!context.readOnly() && lastMove != context.idleReportedFor()) {
+            next = Math.min(next, lastMove + cursorIdleNanos);
+        }
+        wheel.reschedule(context.heartbeatTimer(), ticks(next - now));
+    }
+
+    private long ticks(long nanos) {
+        return Math.max(1, (nanos + tickNanos - 1) / tickNanos);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,146 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the realtime pipeline: frame parsing, events in and out by type, and the fan-out of each
+ * broadcast. All are registered up front and recorded with a map lookup, so the hot path allocates nothing.
+ * <p>
+ * Event types come from clients and are not trusted as tag values: anything outside {@link #EVENT_TYPES}
+ * is counted as {@code other}. Per-board series are capped by {@code MetricsConfig}.
+ * <p>
+ * Also decides which hot-path DEBUG lines are written, so that enabling DEBUG on a busy node logs a
+ * sample instead of every frame.
+ */
+@Component
+public class RealtimeMetrics {
+    /** Event types clients are expected to send; the only values used for the {@code type} tag. */
+    static final List<String> EVENT_TYPES = List.of("LINE_DRAWN", "SHAPE_ADDED", "TEXT_ADDED",
+            "SHAPE_MOVED", "SHAPE_UPDATED", "SHAPE_DELETED", "CLEAR_CANVAS", "CURSOR_MOVE", "VIEWPORT");
+    static final String OTHER_TYPE = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final double logSampleRate;
+    private final Timer parseJson;
+    private final Timer parseBinary;
+    private final Map<String, Counter> eventsIn = new HashMap<>();
+    private final Map<String, Counter> eventsOut = new HashMap<>();
+    private final Timer fanOut;
+    private final DistributionSummary fanOutRecipients;
+    private final Map<UUID, Counter> boardEvents = new ConcurrentHashMap<>();
+
+    public RealtimeMetrics(MeterRegistry meterRegistry,
+                           @Value("${quantumleap.metrics.log-sample-rate:0.01}") double logSampleRate) {
+        this.meterRegistry = meterRegistry;
+        this.logSampleRate = logSampleRate;
+        this.parseJson = parseTimer("json");
+        this.parseBinary = parseTimer("binary");
+        for (String type : typeTags()) {
+            eventsIn.put(type, Counter.builder("quantumleap.ws.events.in")
+                    .description("Events received from clients, by type")
+                    .tag("type", type)
+                    .register(meterRegistry));
+            eventsOut.put(type, Counter.builder("quantumleap.ws.events.out")
+                    .description("Events broadcast to local sessions, by type; each counted once however many recipients")
+                    .tag("type", type)
+                    .register(meterRegistry));
+        }
+        this.fanOut = Timer.builder("quantumleap.ws.fanout")
+                .description("Time to encode a broadcast and queue it for every session on the board")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofMillis(100))
+                .register(meterRegistry);
+        this.fanOutRecipients = DistributionSummary.builder("quantumleap.ws.fanout.recipients")
+                .description("Local sessions a broadcast was queued for")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1_000.0)
+                .register(meterRegistry);
+    }
+
+    private Timer parseTimer(String protocol) {
+        return Timer.builder("quantumleap.ws.parse")
+                .description("Time to decode an inbound frame into an event")
+                .tag("protocol", protocol)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofMillis(10))
+                .register(meterRegistry);
+    }
+
+    private static List<String> typeTags() {
+        List<String> tags = new ArrayList<>(EVENT_TYPES);
+        tags.add(OTHER_TYPE);
+        return tags;
+    }
+
+    /**
+     * Export the number of boards with local sessions and the number of sessions.
+     */
+    public void trackActivity(Map<UUID, ?> rooms, Supplier<Number> sessions) {
+        Gauge.builder("quantumleap.ws.boards.active", rooms, Map::size)
+                .description("Boards with at least one session on this node")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.ws.sessions.active", sessions, s -> s.get().doubleValue())
+                .description("WebSocket sessions connected to this node")
+                .register(meterRegistry);
+    }
+
+    public void parsed(boolean binary, long nanos) {
+        (binary ? parseBinary : parseJson).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void received(String type) {
+        eventsIn.get(typeTag(type)).increment();
+    }
+
+    /**
+     * Record one broadcast of {@code type} to {@code recipients} local sessions.
+     */
+    public void fannedOut(UUID boardId, String type, int recipients, long nanos) {
+        fanOut.record(nanos, TimeUnit.NANOSECONDS);
+        fanOutRecipients.record(recipients);
+        eventsOut.get(typeTag(type)).increment();
+        boardEvents.computeIfAbsent(boardId, id -> Counter.builder("quantumleap.ws.board.events")
+                .description("Events broadcast per board")
+                .tag("board", id.toString())
+                .register(meterRegistry)).increment();
+    }
+
+    /**
+     * Drop the cached per-board meter once the board has no sessions here. The series itself stays
+     * registered, and is picked up again if the board returns.
+     */
+    public void boardClosed(UUID boardId) {
+        boardEvents.remove(boardId);
+    }
+
+    /**
+     * Whether to write a hot-path DEBUG line: only when DEBUG is on, and then for a sample of calls.
+     */
+    public boolean sampleDebug(Logger log) {
+        return log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < logSampleRate;
+    }
+
+    static String typeTag(String type) {
+        return type != null && EVENT_TYPES.contains(type) ? type : OTHER_TYPE;
+    }
+}
@@ -0,0 +1,223 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import com.quantumleap.service.BoardState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The EVENT_REPLAY_CHUNK frames of a full replay, encoded once per board and shared by every session that
+ * joins it, so a crowd joining at once costs one encoding of the board.
+ * <p>
+ * A board's frames start as its shapes from {@link BoardStateCache}, the first chunk flagged {@code reset}.
+ * Events the board state applies after that are appended as further chunks, encoded when a replay first
+ * needs them. Concurrent first joins share one build. The frames are dropped on CLEAR_CANVAS, when the
+ * board state is dropped, and once {@code max-tail-events} have been appended, so the next join builds
+ * them again from the board's current shapes. Only the most recently used {@code max-boards} are kept.
+ */
+@Component
+public class ReplayFrameCache {
+    private static final Logger log = LoggerFactory.getLogger(ReplayFrameCache.class);
+
+    private final BoardStateCache boardStates;
+    private final FrameEncoder frameEncoder;
+    private final int chunkSize;
+    private final int maxTailEvents;
+    private final Map<UUID, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public ReplayFrameCache(BoardStateCache boardStates,
+                            FrameEncoder frameEncoder,
+                            MeterRegistry meterRegistry,
+                            @Value("${quantumleap.websocket.event-replay-chunk-size:200}") int chunkSize,
+                            @Value("${quantumleap.websocket.replay.frame-cache.max-boards:256}") int maxBoards,
+                            @Value("${quantumleap.websocket.replay.frame-cache.max-tail-events:2000}") int maxTailEvents) {
+        this.boardStates = boardStates;
+        this.frameEncoder = frameEncoder;
+        this.chunkSize = chunkSize;
+        this.maxTailEvents = maxTailEvents;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > maxBoards;
+            }
+        });
+        this.hits = Counter.builder("quantumleap.replay.frames")
+                .description("Full replays, by whether their frames were already encoded")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("quantumleap.replay.frames")
+                .description("Full replays, by whether their frames were already encoded")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("quantumleap.replay.frames.boards", entries, Map::size)
+                .description("Boards with encoded replay frames")
+                .register(meterRegistry);
+
+        boardStates.onApplied(this::applied);
+        boardStates.onDropped(this::invalidate);
+        log.info("[WS] Replay frame cache: at most {} boards, rebuilt after {} appended events", maxBoards, maxTailEvents);
+    }
+
+    /**
+     * The frames of a full replay of the board as of now, building them first if needed.
+     *
+     * @return the frames, or empty if the board's state is not available in memory
+     */
+    public Optional<Replay> get(UUID boardId) {
+        Entry entry;
+        boolean builder = false;
+        synchronized (entries) {
+            entry = entries.get(boardId);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(boardId, entry);
+                builder = true;
+            }
+        }
+        if (builder) {
+            misses.increment();
+            build(boardId, entry);
+        } else {
+            hits.increment();
+        }
+        try {
+            entry.built.join();
+            return Optional.of(entry.replay(boardId));
+        } catch (Exception e) {
+            log.debug("[WS] No replay frames for board {}: {}", boardId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Encode the board's shapes. The entry is registered before the state is read, so events applied
+     * meanwhile reach it and are kept until the frames are in place.
+     */
+    private void build(UUID boardId, Entry entry) {
+        try {
+            BoardState state = boardStates.get(boardId).orElse(null);
+            if (state == null) {
+                entries.remove(boardId, entry);
+                entry.built.completeExceptionally(new IllegalStateException("board state unavailable"));
+                return;
+            }
+            String board = boardId.toString();
+            List<EventEnvelope> shapes = state.shapes();
+            List<PreEncodedFrame> frames = new ArrayList<>();
+            int from = 0;
+            do {
+                List<EventEnvelope> chunk = shapes.subList(from, Math.min(shapes.size(), from + chunkSize));
+                frames.add(frameEncoder.encodeReplayChunk(board, chunk, state.seq(), from == 0));
+                from += chunkSize;
+            } while (from < shapes.size());
+            entry.built(frames, state.seq());
+        } catch (Exception e) {
+            entries.remove(boardId, entry);
+            entry.built.completeExceptionally(e);
+        }
+    }
+
+    // Called by BoardStateCache under the board's lock
+    private void applied(UUID boardId, EventEnvelope event) {
+        Entry entry = entries.get(boardId);
+        if (entry == null) {
+            return;
+        }
+        if ("CLEAR_CANVAS".equals(event.getType()) || !entry.append(event)) {
+            invalidate(boardId);
+        }
+    }
+
+    /**
+     * Drop the board's frames; the next full replay builds them again.
+     */
+    public void invalidate(UUID boardId) {
+        entries.remove(boardId);
+    }
+
+    /**
+     * Frames to send in order, and the sequence number the client is up to after the last one.
+     */
+    public record Replay(List<PreEncodedFrame> frames, long lastSeq) {
+    }
+
+    /**
+     * One board's frames: its shapes as of {@code baseSeq}, then chunks of the events applied since.
+     * Guarded by its own lock.
+     */
+    private final class Entry {
+        private final CompletableFuture<Void> built = new CompletableFuture<>();
+        private final List<EventEnvelope> early = new ArrayList<>();
+        private final List<PreEncodedFrame> frames = new ArrayList<>();
+        // Appended events not yet in a full chunk, and their frame once encoded
+        private final List<EventEnvelope> pending = new ArrayList<>();
+        private PreEncodedFrame pendingFrame;
+        private boolean ready;
+        private long lastSeq;
+        private int tailEvents;
+
+        private synchronized void built(List<PreEncodedFrame> base, long seq) {
+            frames.addAll(base);
+            lastSeq = seq;
+            ready = true;
+            for (EventEnvelope event : early) {
+                append(event);
+            }
+            early.clear();
+            built.complete(null);
+        }
+
+        /**
+         * @return false if the frames have grown past {@code max-tail-events} and should be rebuilt
+         */
+        private synchronized boolean append(EventEnvelope event) {
+            if (!ready) {
+                early.add(event);
+                return early.size() <= maxTailEvents;
+            }
+            if (event.getSeq() <= lastSeq) {
+                // Already in the board's shapes
+                return true;
+            }
+            pending.add(event);
+            pendingFrame = null;
+            lastSeq = event.getSeq();
+            return ++tailEvents <= maxTailEvents;
+        }
+
+        private synchronized Replay replay(UUID boardId) throws IOException {
+            String board = boardId.toString();
+            while (pending.size() >= chunkSize) {
+                List<EventEnvelope> chunk = pending.subList(0, chunkSize);
+                frames.add(frameEncoder.encodeReplayChunk(board, new ArrayList<>(chunk), chunk.get(chunkSize - 1).getSeq(), false));
+                chunk.clear();
+            }
+            List<PreEncodedFrame> replay = new ArrayList<>(frames.size() + 1);
+            replay.addAll(frames);
+            if (!pending.isEmpty()) {
+                if (pendingFrame == null) {
+                    pendingFrame = frameEncoder.encodeReplayChunk(board, new ArrayList<>(pending), lastSeq, false);
+                }
+                replay.add(pendingFrame);
+            }
+            return new Replay(replay, lastSeq);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Recent sequenced events per board, so reconnecting clients can be sent the tail they missed
+ * without a database query.
+ * <p>
+ * A ring is opened when a session connects to the board and then records every event the bus delivers
+ * for it. Rings hold a contiguous run of sequence numbers: a gap (events this node never saw) restarts the
+ * ring at the new event. Only the most recently used {@code max-boards} rings are kept.
+ * <p>
+ * Optimistic writes are broadcast before they have a sequence number; they wait here until their
+ * EVENT_ACK arrives and are then recorded under the acknowledged number.
+ */
+@Component
+public class ResumeBuffer {
+    private static final Logger log = LoggerFactory.getLogger(ResumeBuffer.class);
+
+    /**
+     * How a resuming client was brought up to date.
+     */
+    public enum Source { RING, DATABASE, SNAPSHOT }
+
+    private final int ringSize;
+    private final Map<UUID, Ring> rings;
+    private final Map<Source, Counter> resumes = new LinkedHashMap<>();
+
+    public ResumeBuffer(MeterRegistry meterRegistry,
+                        @Value("${quantumleap.websocket.resume.ring-size:256}") int ringSize,
+                        @Value("${quantumleap.websocket.resume.max-boards:1024}") int maxBoards) {
+        this.ringSize = ringSize;
+        this.rings = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Ring> eldest) {
+                return size() > maxBoards;
+            }
+        });
+        for (Source source : Source.values()) {
+            resumes.put(source, Counter.builder("quantumleap.resume")
+                    .description("Reconnects with a last-seen sequence number, by how the gap was filled")
+                    .tag("source", source.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("quantumleap.resume.rings", rings, Map::size)
+                .description("Boards with a ring of recent events")
+                .register(meterRegistry);
+        log.info("[WS] Resume rings: {} events per board, at most {} boards", ringSize, maxBoards);
+    }
+
+    /**
+     * Start recording the board's events, if not already.
+     */
+    public void open(UUID boardId) {
+        rings.computeIfAbsent(boardId, id -> new Ring(ringSize));
+    }
+
+    /**
+     * Record an event the bus delivered. Events without a sequence number are held until acknowledged.
+     */
+    public void record(UUID boardId, EventEnvelope event) {
+        Ring ring = rings.get(boardId);
+        if (ring == null) {
+            return;
+        }
+        if (event.getSeq() != null) {
+            ring.add(event);
+        } else if (event.getId() != null) {
+            ring.hold(event);
+        }
+    }
+
+    /**
+     * Record a held optimistic event under the sequence number its persist took.
+     */
+    public void acknowledge(UUID boardId, String eventId, long seq) {
+        Ring ring = rings.get(boardId);
+        if (ring != null) {
+            ring.release(eventId, seq);
+        }
+    }
+
+    /**
+     * Forget a held optimistic event whose persist failed.
+     */
+    public void reject(UUID boardId, String eventId) {
+        Ring ring = rings.get(boardId);
+        if (ring != null) {
+            ring.drop(eventId);
+        }
+    }
+
+    /**
+     * The events after {@code seq}, if this node has all of them.
+     *
+     * @return the events in sequence order, possibly empty, or {@code null} if the ring does not reach back to {@code seq}
+     */
+    public List<EventEnvelope> tail(UUID boardId, long seq) {
+        Ring ring = rings.get(boardId);
+        return ring != null ? ring.after(seq) : null;
+    }
+
+    public void resumed(Source source) {
+        resumes.get(source).increment();
+    }
+
+    /**
+     * Contiguous run of a board's most recent events.
+     */
+    private static final class Ring {
+        private final int capacity;
+        private final ArrayDeque<EventEnvelope> events;
+        private final Map<String, EventEnvelope> held = new LinkedHashMap<>();
+        private long firstSeq;
+        private long lastSeq;
+
+        private Ring(int capacity) {
+            this.capacity = capacity;
+            this.events = new ArrayDeque<>(capacity);
+        }
+
+        private synchronized void add(EventEnvelope event) {
+            long seq = event.getSeq();
+            if (!events.isEmpty() && seq <= lastSeq) {
+                return;
+            }
+            if (events.isEmpty() || seq != lastSeq + 1) {
+                events.clear();
+                firstSeq = seq;
+            } else if (events.size() == capacity) {
+                events.removeFirst();
+                firstSeq++;
+            }
+            events.addLast(event);
+            lastSeq = seq;
+        }
+
+        private synchronized void hold(EventEnvelope event) {
+            if (held.size() == capacity) {
+                // Acknowledgements stopped arriving; what is held is stale
+                held.clear();
+            }
+            held.put(event.getId(), event);
+        }
+
+        private synchronized void release(String eventId, long seq) {
+            EventEnvelope event = held.remove(eventId);
+            if (event != null) {
+                event.setSeq(seq);
+                add(event);
+            } else if (!events.isEmpty() && seq > lastSeq) {
+                // The event was broadcast before this ring opened, so the run is broken
+                events.clear();
+            }
+        }
+
+        private synchronized void drop(String eventId) {
+            held.remove(eventId);
+        }
+
+        private synchronized List<EventEnvelope> after(long seq) {
+            if (events.isEmpty() || seq > lastSeq || seq < firstSeq - 1) {
+                // Nothing recorded, the client has seen more than this node, or the ring does not reach back far enough
+                return null;
+            }
+            if (seq == lastSeq) {
+                return List.of();
+            }
+            List<EventEnvelope> tail = new ArrayList<>((int) (lastSeq - seq));
+            int skip = (int) (seq - firstSeq + 1);
+            for (EventEnvelope event : events) {
+                if (skip-- <= 0) {
+                    tail.add(event);
+                }
+            }
+            return tail;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Everything the handler knows about one connection. Stored in the session attributes once the
+ * connection is accepted, so the hot path reaches board, user and outbound queue without any
+ * registry lookup.
+ */
+public final class SessionContext {
+    static final String ATTRIBUTE = SessionContext.class.getName();
+
+    private final WebSocketSession session;
+    private final UUID boardId;
+    private final UUID userId;
+    private final String userName;
+    private final boolean binaryClient;
+    private final boolean readOnly;
+    private final SessionOutbox outbox;
+    private final InboundRateLimiter.SessionLimits limits;
+    private final AtomicReference<EventEnvelope> pendingCursorMove = new AtomicReference<>();
+    private volatile boolean closed;
+    private volatile long lastInboundNanos = System.nanoTime();
+    private volatile long lastCursorMoveNanos = lastInboundNanos;
+
+    // Owned by the board loop
+    private SessionInterest interest;
+
+    // Owned by the presence reaper thread
+    private TimingWheel.Timer<SessionContext> heartbeatTimer;
+    private long lastPingNanos = lastInboundNanos;
+    private long idleReportedFor = Long.MIN_VALUE;
+
+    SessionContext(WebSocketSession session, UUID boardId, UUID userId, String userName, boolean readOnly,
+                   SessionOutbox outbox, InboundRateLimiter.SessionLimits limits) {
+        this.session = session;
+        this.boardId = boardId;
+        this.userId = userId;
+        this.userName = userName;
+        this.binaryClient = BinaryFrameCodec.PROTOCOL.equals(session.getAcceptedProtocol());
+        this.readOnly = readOnly;
+        this.outbox = outbox;
+        this.limits = limits;
+    }
+
+    /**
+     * @return the context, or {@code null} if the session was never accepted
+     */
+    public static SessionContext of(WebSocketSession session) {
+        return (SessionContext) session.getAttributes().get(ATTRIBUTE);
+    }
+
+    void attach() {
+        session.getAttributes().put(ATTRIBUTE, this);
+    }
+
+    public WebSocketSession session() {
+        return session;
+    }
+
+    public String sessionId() {
+        return session.getId();
+    }
+
+    public UUID boardId() {
+        return boardId;
+    }
+
+    public UUID userId() {
+        return userId;
+    }
+
+    public String userName() {
+        return userName;
+    }
+
+    public boolean binaryClient() {
+        return binaryClient;
+    }
+
+    /**
+     * Admitted over the board's session limit: receives the board but cannot change it.
+     */
+    public boolean readOnly() {
+        return readOnly;
+    }
+
+    SessionOutbox outbox() {
+        return outbox;
+    }
+
+    InboundRateLimiter.SessionLimits limits() {
+        return limits;
+    }
+
+    /**
+     * Latest cursor move not yet applied on the board loop; lets the reader thread coalesce moves.
+     */
+    AtomicReference<EventEnvelope> pendingCursorMove() {
+        return pendingCursorMove;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    void markClosed() {
+        closed = true;
+    }
+
+    /**
+     * Any frame from the peer, including pongs, proves the connection is alive.
+     */
+    void touchInbound(long nowNanos) {
+        lastInboundNanos = nowNanos;
+    }
+
+    long lastInboundNanos() {
+        return lastInboundNanos;
+    }
+
+    void cursorMoved(long nowNanos) {
+        lastCursorMoveNanos = nowNanos;
+    }
+
+    long lastCursorMoveNanos() {
+        return lastCursorMoveNanos;
+    }
+
+    TimingWheel.Timer<SessionContext> heartbeatTimer() {
+        return heartbeatTimer;
+    }
+
+    void heartbeatTimer(TimingWheel.Timer<SessionContext> heartbeatTimer) {
+        this.heartbeatTimer = heartbeatTimer;
+    }
+
+    long lastPingNanos() {
+        return lastPingNanos;
+    }
+
+    void lastPingNanos(long lastPingNanos) {
+        this.lastPingNanos = lastPingNanos;
+    }
+
+    /**
+     * Cursor-move timestamp for which an idle transition was already reported.
+     */
+    long idleReportedFor() {
+        return idleReportedFor;
+    }
+
+    void idleReportedFor(long idleReportedFor) {
+        this.idleReportedFor = idleReportedFor;
+    }
+
+    SessionInterest interest() {
+        return interest;
+    }
+
+    void interest(SessionInterest interest) {
+        this.interest = interest;
+    }
+}
@@ -0,0 +1,101 @@
+package com.quantumleap.ws;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * What one session currently has on screen, and what it has not been sent because of it.
+ * <p>
+ * Until the client reports a viewport the session sees everything. Bounded events outside the
+ * viewport (plus margin) are kept back and released when the viewport moves over them; unbounded
+ * events must flush everything kept back first so that the client never sees a reference to a shape
+ * it does not have. Cursors outside the viewport are only remembered as stale.
+ * Not thread-safe: owned by the board loop.
+ */
+final class SessionInterest {
+
+    private record Deferred(Bounds bounds, PreEncodedFrame frame) {
+    }
+
+    private final double margin;
+    private final int maxDeferred;
+    private final List<Deferred> deferred = new ArrayList<>();
+    private final Set<UUID> staleCursors = new HashSet<>();
+    private Bounds visible;
+
+    SessionInterest(double margin, int maxDeferred) {
+        this.margin = margin;
+        this.maxDeferred = maxDeferred;
+    }
+
+    /**
+     * @return the frames kept back that the new viewport now covers, in broadcast order
+     */
+    List<PreEncodedFrame> moveTo(Bounds viewport) {
+        visible = viewport.expand(margin);
+        List<PreEncodedFrame> released = new ArrayList<>();
+        Iterator<Deferred> it = deferred.iterator();
+        while (it.hasNext()) {
+            Deferred entry = it.next();
+            if (visible.intersects(entry.bounds())) {
+                released.add(entry.frame());
+                it.remove();
+            }
+        }
+        return released;
+    }
+
+    boolean sees(Bounds bounds) {
+        return visible == null || bounds == null || visible.intersects(bounds);
+    }
+
+    boolean sees(double x, double y) {
+        return visible == null || visible.contains(x, y);
+    }
+
+    /**
+     * Keep a frame back until the viewport covers it.
+     *
+     * @return {@code false} if too many frames are already kept back; the caller should flush and send instead
+     */
+    boolean defer(Bounds bounds, PreEncodedFrame frame) {
+        if (deferred.size() >= maxDeferred) {
+            return false;
+        }
+        deferred.add(new Deferred(bounds, frame));
+        return true;
+    }
+
+    boolean hasDeferred() {
+        return !deferred.isEmpty();
+    }
+
+    List<PreEncodedFrame> drainDeferred() {
+        List<PreEncodedFrame> frames = new ArrayList<>(deferred.size());
+        for (Deferred entry : deferred) {
+            frames.add(entry.frame());
+        }
+        deferred.clear();
+        return frames;
+    }
+
+    void clearDeferred() {
+        deferred.clear();
+    }
+
+    void cursorHidden(UUID userId) {
+        staleCursors.add(userId);
+    }
+
+    void cursorShown(UUID userId) {
+        staleCursors.remove(userId);
+    }
+
+    Set<UUID> staleCursors() {
+        return staleCursors;
+    }
+}
@@ -0,0 +1,220 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.jfr.SendBlockedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Bounded, non-blocking send queue for a single WebSocket session.
+ * Producers enqueue from any thread; at most one drain task per session writes to the socket,
+ * so a slow client only ever stalls its own queue. A drain task sends at most {@code maxFramesPerDrain}
+ * frames and then hands the rest to a fresh task, so a busy session does not keep one thread forever.
+ */
+public final class SessionOutbox {
+    private static final Logger log = LoggerFactory.getLogger(SessionOutbox.class);
+
+    /** Close status sent to consumers that fell too far behind; clients should reconnect and replay. */
+    public static final CloseStatus RESYNC = new CloseStatus(4001, "RESYNC");
+
+    public enum Offer { QUEUED, COALESCED, EVICTED, DROPPED, OVERFLOW, CLOSED }
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final int maxFramesPerDrain;
+
+    // Guarded by this
+    private final ArrayDeque<Slot> queue = new ArrayDeque<>();
+    private final Map<Object, Slot> pendingCursors = new HashMap<>();
+    private boolean draining;
+    private boolean closed;
+
+    public SessionOutbox(WebSocketSession session, Executor executor, int capacity, SlowConsumerPolicy policy,
+                         int maxFramesPerDrain) {
+        this.session = session;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.maxFramesPerDrain = maxFramesPerDrain;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * Enqueue a frame that must be delivered (board events, joins, errors).
+     */
+    public Offer offer(WebSocketMessage<?> message) {
+        return enqueue(new Slot(message, null, null));
+    }
+
+    /**
+     * Enqueue a cursor frame that may be coalesced or dropped under pressure.
+     *
+     * @param key identifies the cursor (usually the user ID) for coalescing
+     */
+    public Offer offerCursor(Object key, WebSocketMessage<?> message) {
+        return enqueue(new Slot(message, key, null));
+    }
+
+    /**
+     * Deliver everything already queued, then close the session.
+     */
+    public void closeAfterDrain(CloseStatus status) {
+        enqueue(new Slot(null, null, status));
+        synchronized (this) {
+            closed = true;
+        }
+    }
+
+    /**
+     * Discard queued frames and close the session right away.
+     */
+    public void closeNow(CloseStatus status) {
+        synchronized (this) {
+            if (closed && queue.isEmpty()) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            pendingCursors.clear();
+        }
+        executor.execute(() -> closeQuietly(status));
+    }
+
+    public synchronized int depth() {
+        return queue.size();
+    }
+
+    private Offer enqueue(Slot slot) {
+        Offer result = Offer.QUEUED;
+        boolean schedule;
+        synchronized (this) {
+            if (closed) {
+                return Offer.CLOSED;
+            }
+            boolean cursor = slot.key != null;
+            if (cursor && policy == SlowConsumerPolicy.COALESCE) {
+                Slot pending = pendingCursors.get(slot.key);
+                if (pending != null) {
+                    pending.message = slot.message;
+                    return Offer.COALESCED;
+                }
+            }
+            if (queue.size() >= capacity && slot.closeStatus == null) {
+                if (policy == SlowConsumerPolicy.DISCONNECT) {
+                    return Offer.OVERFLOW;
+                }
+                if (cursor) {
+                    return Offer.DROPPED;
+                }
+                if (!evictOldestCursor()) {
+                    return Offer.OVERFLOW;
+                }
+                result = Offer.EVICTED;
+            }
+            queue.addLast(slot);
+            if (cursor && policy == SlowConsumerPolicy.COALESCE) {
+                pendingCursors.put(slot.key, slot);
+            }
+            schedule = !draining;
+            draining = true;
+        }
+        if (schedule) {
+            executor.execute(this::drain);
+        }
+        return result;
+    }
+
+    private boolean evictOldestCursor() {
+        Iterator<Slot> it = queue.iterator();
+        while (it.hasNext()) {
+            Slot queued = it.next();
+            if (queued.key != null) {
+                it.remove();
+                pendingCursors.remove(queued.key, queued);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain() {
+        for (int sent = 0; ; sent++) {
+            WebSocketMessage<?> message;
+            CloseStatus closeStatus;
+            synchronized (this) {
+                if (queue.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                if (sent == maxFramesPerDrain) {
+                    // Still draining; the next task picks up where this one stopped
+                    break;
+                }
+                Slot slot = queue.pollFirst();
+                if (slot.key != null) {
+                    pendingCursors.remove(slot.key, slot);
+                }
+                message = slot.message;
+                closeStatus = slot.closeStatus;
+            }
+            if (closeStatus != null) {
+                closeQuietly(closeStatus);
+                continue;
+            }
+            try {
+                if (session.isOpen()) {
+                    SendBlockedEvent send = new SendBlockedEvent();
+                    send.begin();
+                    session.sendMessage(message);
+                    send.finish(session.getId(), message.getPayloadLength());
+                }
+            } catch (Exception e) {
+                log.debug("[WS] Send failed for session {}: {}", session.getId(), e.getMessage());
+                synchronized (this) {
+                    closed = true;
+                    queue.clear();
+                    pendingCursors.clear();
+                    draining = false;
+                }
+                closeQuietly(CloseStatus.SERVER_ERROR);
+                return;
+            }
+        }
+        executor.execute(this::drain);
+    }
+
+    private void closeQuietly(CloseStatus status) {
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (Exception e) {
+            log.debug("[WS] Error closing session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private static final class Slot {
+        private WebSocketMessage<?> message;
+        private final Object key;
+        private final CloseStatus closeStatus;
+
+        private Slot(WebSocketMessage<?> message, Object key, CloseStatus closeStatus) {
+            this.message = message;
+            this.key = key;
+            this.closeStatus = closeStatus;
+        }
+    }
+}
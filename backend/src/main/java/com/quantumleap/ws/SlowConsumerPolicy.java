@@ -0,0 +1,13 @@
+package com.quantumleap.ws;
+
+/**
+ * What a session's outbound queue does once it is full.
+ */
+public enum SlowConsumerPolicy {
+    /** Drop new cursor frames and evict queued ones to make room for board events. */
+    DROP_CURSORS,
+    /** Keep only the latest pending cursor frame per user, then behave like {@link #DROP_CURSORS}. */
+    COALESCE,
+    /** Close the session with a resync hint as soon as the queue is full. */
+    DISCONNECT
+}
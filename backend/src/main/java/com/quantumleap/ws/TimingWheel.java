@@ -0,0 +1,147 @@
+package com.quantumleap.ws;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: O(1) schedule and cancel, O(1) amortized work per tick.
+ * <p>
+ * Level 0 has one slot per tick; each higher level has slots {@code SLOTS} times coarser. Timers far
+ * in the future sit in a coarse slot and are cascaded down as the wheel reaches them. Delays beyond the
+ * top level are clamped, so callers that need exact long deadlines should re-check on expiry.
+ * Not thread-safe: schedule, cancel and advance must run on the thread that owns the wheel.
+ */
+final class TimingWheel<T> {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+
+    /**
+     * Handle for a scheduled item.
+     */
+    static final class Timer<T> {
+        private final T item;
+        private long deadline;
+        private Timer<T> prev;
+        private Timer<T> next;
+        private boolean scheduled;
+
+        private Timer(T item) {
+            this.item = item;
+        }
+
+        T item() {
+            return item;
+        }
+
+        boolean isScheduled() {
+            return scheduled;
+        }
+    }
+
+    private final Timer<T>[][] wheels;
+    private final long maxDelay;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(int levels, long startTick) {
+        wheels = new Timer[levels][SLOTS];
+        for (Timer<T>[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                // Sentinel heads of circular doubly-linked slot lists
+                Timer<T> head = new Timer<>(null);
+                head.prev = head;
+                head.next = head;
+                wheel[i] = head;
+            }
+        }
+        maxDelay = (1L << (BITS * levels)) - 1;
+        currentTick = startTick;
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Timer<T> schedule(T item, long delayTicks) {
+        Timer<T> timer = new Timer<>(item);
+        reschedule(timer, delayTicks);
+        return timer;
+    }
+
+    /**
+     * Move an existing timer to a new delay from now, scheduling it again if it has fired or been cancelled.
+     */
+    void reschedule(Timer<T> timer, long delayTicks) {
+        cancel(timer);
+        timer.deadline = currentTick + Math.max(1, Math.min(delayTicks, maxDelay));
+        insert(timer);
+        size++;
+    }
+
+    void cancel(Timer<T> timer) {
+        if (timer.scheduled) {
+            unlink(timer);
+            size--;
+        }
+    }
+
+    /**
+     * Advance to {@code targetTick}, handing every expired item to {@code expired}.
+     * Items may be scheduled from inside the callback.
+     */
+    void advance(long targetTick, Consumer<T> expired) {
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Cascade coarse levels first so that timers can fall through several levels in one tick
+            for (int level = wheels.length - 1; level > 0; level--) {
+                long span = 1L << (BITS * level);
+                if ((currentTick & (span - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (BITS * level)) & MASK));
+                }
+            }
+            Timer<T> head = wheels[0][(int) (currentTick & MASK)];
+            while (head.next != head) {
+                Timer<T> timer = head.next;
+                unlink(timer);
+                size--;
+                expired.accept(timer.item);
+            }
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        Timer<T> head = wheels[level][slot];
+        while (head.next != head) {
+            Timer<T> timer = head.next;
+            unlink(timer);
+            insert(timer);
+        }
+    }
+
+    private void insert(Timer<T> timer) {
+        long delta = timer.deadline - currentTick;
+        int level = 0;
+        while (level < wheels.length - 1 && delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        Timer<T> head = wheels[level][(int) ((timer.deadline >>> (BITS * level)) & MASK)];
+        timer.prev = head.prev;
+        timer.next = head;
+        head.prev.next = timer;
+        head.prev = timer;
+        timer.scheduled = true;
+    }
+
+    private static <T> void unlink(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+        timer.scheduled = false;
+    }
+}
@@ -1,53 +1,111 @@
 package com.quantumleap.ws;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.quantumleap.config.JwtTokenProvider;
 import com.quantumleap.dto.ws.EventEnvelope;
 import com.quantumleap.dto.ws.CursorUpdateEvent;
 import com.quantumleap.entity.CursorPosition;
+import com.quantumleap.jfr.FanOutEvent;
+import com.quantumleap.jfr.FrameParsedEvent;
+import com.quantumleap.jfr.FrameReceivedEvent;
+import com.quantumleap.service.BoardSnapshotService;
+import com.quantumleap.service.BoardState;
 import com.quantumleap.service.EventService;
+import com.quantumleap.service.WhiteboardDeleted;
 import com.quantumleap.service.WhiteboardService;
+import com.quantumleap.service.WhiteboardWriteModeChanged;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.socket.*;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Random;
 import java.util.HashMap;
+import java.util.function.Consumer;
 
 @Component
-public class WhiteboardWebSocketHandler extends TextWebSocketHandler {
+public class WhiteboardWebSocketHandler extends AbstractWebSocketHandler {
     private static final Logger log = LoggerFactory.getLogger(WhiteboardWebSocketHandler.class);
     
     @Value("${quantumleap.websocket.event-replay-chunk-size:200}")
     private int eventReplayChunkSize;
     
-    private final JwtTokenProvider jwtTokenProvider;
+    @Value("${quantumleap.websocket.resume.max-gap:1000}")
+    private int resumeMaxGap;
+    
+    @Value("${quantumleap.websocket.replay.max-queued-chunks:2}")
+    private int replayMaxQueuedChunks;
+    
+    @Value("${quantumleap.websocket.replay.stall-timeout-ms:30000}")
+    private long replayStallTimeoutMillis;
+    
+    @Value("${quantumleap.websocket.replay.max-held-events:10000}")
+    private int replayMaxHeldEvents;
+    
+    @Value("${quantumleap.websocket.interest.margin:200}")
+    private double viewportMargin;
+    
+    @Value("${quantumleap.websocket.interest.filter-shape-events:true}")
+    private boolean filterShapeEvents;
+    
+    @Value("${quantumleap.websocket.interest.max-deferred-events:500}")
+    private int maxDeferredEvents;
+    
+    @Value("${quantumleap.websocket.admission.read-only-cursor-frame-interval:5}")
+    private int readOnlyCursorFrameInterval;
+    
     private final WhiteboardService whiteboardService;
     private final EventService eventService;
+    private final BoardSnapshotService boardSnapshots;
     private final ObjectMapper objectMapper;
+    private final OutboundDispatcher outbound;
+    private final CursorFrameTicker cursorFrameTicker;
+    private final FrameEncoder frameEncoder;
+    private final CompressionSampler compressionSampler;
+    private final EventIngestionPipeline ingestionPipeline;
+    private final BoardLoopGroup boardLoops;
+    private final AdmissionController admissionController;
+    private final InboundRateLimiter rateLimiter;
+    private final PresenceReaper presenceReaper;
+    private final BoardEventBus eventBus;
+    private final BoardLeases leases;
+    private final ResumeBuffer resumeBuffer;
+    private final BoardStateCache boardStates;
+    private final ReplayFrameCache replayFrames;
+    private final RealtimeMetrics metrics;
     private final Random random = new Random();
     
-    // In-memory session management (for local development)
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-    private final Map<String, UUID> sessionBoardIds = new ConcurrentHashMap<>();
-    private final Map<String, UUID> sessionUserIds = new ConcurrentHashMap<>();
+    // Per-connection state lives in a SessionContext attached to the session; only the count is kept here
+    private final AtomicInteger activeSessions = new AtomicInteger();
     
-    // Board sessions mapping for broadcasting
-    private final Map<UUID, Map<String, WebSocketSession>> boardSessions = new ConcurrentHashMap<>();
+    // Per-board members and cursors; each room is only touched from its board's loop
+    private final Map<UUID, BoardRoom> rooms = new ConcurrentHashMap<>();
     
-    // Cursor tracking for each board
-    private final Map<UUID, Map<UUID, CursorPosition>> boardCursors = new ConcurrentHashMap<>();
+    // Write mode of boards this node writes or hosts sessions for; kept current by WRITE_MODE_CHANGED on the bus
+    private final Map<UUID, Boolean> optimisticBoards = new ConcurrentHashMap<>();
     
-    // User colors for cursor identification
-    private final Map<UUID, String> userColors = new ConcurrentHashMap<>();
+    // Poll interval while a replay waits for the session's outbound queue to drain
+    private static final long REPLAY_PACE_MILLIS = 5;
+    
+    // Coalescing key for CURSORS_FRAME in each session's outbound queue
+    private static final String CURSORS_FRAME_KEY = "CURSORS_FRAME";
     
     // Predefined colors for cursors
     private static final String[] CURSOR_COLORS = {
@@ -55,17 +113,54 @@ public class WhiteboardWebSocketHandler extends TextWebSocketHandler {
         "#DDA0DD", "#98D8C8", "#F7DC6F", "#BB8FCE", "#85C1E9"
     };
 
-    public WhiteboardWebSocketHandler(JwtTokenProvider jwtTokenProvider,
-                                    WhiteboardService whiteboardService,
+    public WhiteboardWebSocketHandler(WhiteboardService whiteboardService,
                                     EventService eventService,
-                                    ObjectMapper objectMapper) {
-        this.jwtTokenProvider = jwtTokenProvider;
+                                    BoardSnapshotService boardSnapshots,
+                                    ObjectMapper objectMapper,
+                                    OutboundDispatcher outbound,
+                                    CursorFrameTicker cursorFrameTicker,
+                                    FrameEncoder frameEncoder,
+                                    CompressionSampler compressionSampler,
+                                    EventIngestionPipeline ingestionPipeline,
+                                    BoardLoopGroup boardLoops,
+                                    AdmissionController admissionController,
+                                    InboundRateLimiter rateLimiter,
+                                    PresenceReaper presenceReaper,
+                                    BoardEventBus eventBus,
+                                    BoardLeases leases,
+                                    ResumeBuffer resumeBuffer,
+                                    BoardStateCache boardStates,
+                                    ReplayFrameCache replayFrames,
+                                    RealtimeMetrics metrics) {
         this.whiteboardService = whiteboardService;
         this.eventService = eventService;
+        this.boardSnapshots = boardSnapshots;
         this.objectMapper = objectMapper;
+        this.outbound = outbound;
+        this.cursorFrameTicker = cursorFrameTicker;
+        this.frameEncoder = frameEncoder;
+        this.compressionSampler = compressionSampler;
+        this.ingestionPipeline = ingestionPipeline;
+        this.boardLoops = boardLoops;
+        this.admissionController = admissionController;
+        this.rateLimiter = rateLimiter;
+        this.presenceReaper = presenceReaper;
+        this.eventBus = eventBus;
+        this.leases = leases;
+        this.resumeBuffer = resumeBuffer;
+        this.boardStates = boardStates;
+        this.replayFrames = replayFrames;
+        this.metrics = metrics;
+        metrics.trackActivity(rooms, activeSessions::get);
+        cursorFrameTicker.onFrame((boardId, moved) -> boardLoops.execute(boardId, () -> broadcastCursorFrame(boardId, moved)));
+        
+        presenceReaper.onIdle((boardId, idle) -> boardLoops.execute(boardId, () -> markCursorsIdle(boardId, idle)));
+        
+        // Events from this and every other node reach local sockets through the bus
+        eventBus.subscribe(this::onBusEvent);
+        eventBus.onForwardedWrite(this::acceptForwardedWrite);
         
         log.info("[WS] WhiteboardWebSocketHandler initialized successfully");
-        log.info("[WS] JWT Token Provider: {}", jwtTokenProvider != null ? "OK" : "NULL");
         log.info("[WS] Whiteboard Service: {}", whiteboardService != null ? "OK" : "NULL");
         log.info("[WS] Event Service: {}", eventService != null ? "OK" : "NULL");
         log.info("[WS] Object Mapper: {}", objectMapper != null ? "OK" : "NULL");
@@ -79,89 +174,124 @@ public class WhiteboardWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         try {
-            log.info("[WS] New connection attempt: {}", session.getId());
-            log.info("[WS] Connection URI: {}", session.getUri());
-            log.info("[WS] Connection headers: {}", session.getHandshakeHeaders());
-            log.info("[WS] Remote address: {}", session.getRemoteAddress());
-            
-            // Extract JWT token from query parameters
-            String query = session.getUri().getQuery();
-            log.info("[WS] Query string: {}", query);
-            String token = extractTokenFromQuery(query);
-            if (token == null) {
-                log.warn("[WS] Missing token for session {}", session.getId());
-                session.sendMessage(new TextMessage("{\"type\":\"ERROR\",\"data\":{\"message\":\"Missing token\"}}"));
-                session.close(CloseStatus.POLICY_VIOLATION);
-                return;
-            }
-            log.info("[WS] Token extracted successfully for session {}", session.getId());
-            
-            if (!jwtTokenProvider.validateToken(token)) {
-                log.warn("[WS] Invalid token for session {}", session.getId());
-                session.sendMessage(new TextMessage("{\"type\":\"ERROR\",\"data\":{\"message\":\"Invalid token\"}}"));
-                session.close(CloseStatus.POLICY_VIOLATION);
-                return;
-            }
-            log.info("[WS] Token validated successfully for session {}", session.getId());
+            // The URI carries the token, so it is not logged
+            log.debug("[WS] New connection {} from {}", session.getId(), session.getRemoteAddress());
             
-            // Extract board ID from URI path
-            String path = session.getUri().getPath();
-            log.info("[WS] Path: {}", path);
-            // Handle the full path structure: /api/v1/ws/whiteboard/{boardId}
-            int whiteboardIndex = path.indexOf("/ws/whiteboard/");
-            if (whiteboardIndex == -1) {
-                log.error("[WS] Invalid path format: {}", path);
-                session.sendMessage(new TextMessage("{\"type\":\"ERROR\",\"data\":{\"message\":\"Invalid path format\"}}"));
+            // Authenticated and authorized once, before the upgrade, by JwtHandshakeInterceptor
+            if (!(session.getAttributes().get(JwtHandshakeInterceptor.IDENTITY_ATTRIBUTE) instanceof JwtHandshakeInterceptor.Identity identity)) {
+                log.warn("[WS] Session {} was not authenticated", session.getId());
+                session.sendMessage(new TextMessage("{\"type\":\"ERROR\",\"data\":{\"message\":\"Not authenticated\"}}"));
                 session.close(CloseStatus.POLICY_VIOLATION);
                 return;
             }
-            String boardIdStr = path.substring(whiteboardIndex + "/ws/whiteboard/".length());
-            log.info("[WS] Board ID extracted: {}", boardIdStr);
-            UUID boardId = UUID.fromString(boardIdStr);
-            UUID userId = jwtTokenProvider.getUserIdFromToken(token);
-            log.info("[WS] User {} attempting to join board {}", userId, boardId);
+            UUID boardId = identity.boardId();
+            UUID userId = identity.userId();
+            Long since = extractSinceFromQuery(session.getUri().getQuery());
+            log.debug("[WS] User {} attempting to join board {}", userId, boardId);
             
-            // Validate user access to board
-            if (!whiteboardService.hasAccessToWhiteboard(boardId, userId)) {
-                log.warn("[WS] User {} has no access to board {}", userId, boardId);
-                session.sendMessage(new TextMessage("{\"type\":\"ERROR\",\"data\":{\"message\":\"No access to board\"}}"));
+            // The slot was reserved by AdmissionHandshakeInterceptor and is returned in afterConnectionClosed
+            if (!(session.getAttributes().get(AdmissionController.TICKET_ATTRIBUTE) instanceof AdmissionController.Ticket ticket)) {
+                log.warn("[WS] Session {} was not admitted", session.getId());
+                session.sendMessage(new TextMessage("{\"type\":\"ERROR\",\"data\":{\"message\":\"Not admitted\"}}"));
                 session.close(CloseStatus.POLICY_VIOLATION);
                 return;
             }
             
-            // Store session information
-            String sessionId = session.getId();
-            sessions.put(sessionId, session);
-            sessionBoardIds.put(sessionId, boardId);
-            sessionUserIds.put(sessionId, userId);
+            // From here on every write goes through the outbound queue
+            SessionContext context = new SessionContext(session, boardId, userId,
+                    identity.userName(), ticket.mode() == AdmissionController.Mode.READ_ONLY,
+                    outbound.register(session), rateLimiter.open(userId));
+            context.attach();
+            activeSessions.incrementAndGet();
+            presenceReaper.register(context);
             
-            // Add to board sessions for broadcasting
-            boardSessions.computeIfAbsent(boardId, k -> new ConcurrentHashMap<>())
-                    .put(sessionId, session);
+            // The board starts holding its live events for the session before the replay query runs:
+            // events committed before the query are in the replay, later ones are held and sent by the
+            // join, which is queued on the board loop once the replay has been sent.
+            resumeBuffer.open(boardId);
+            boardLoops.execute(boardId, () -> {
+                rooms.computeIfAbsent(boardId, k -> new BoardRoom()).catchingUp.put(context, new CatchUp(context.userId()));
+                // Created now, not at the join, so a VIEWPORT sent while the replay streams is kept
+                context.interest(new SessionInterest(viewportMargin, maxDeferredEvents));
+                ingestionPipeline.submitReplay(() -> {
+                    long replayedUpTo = sendEventReplay(context, since);
+                    boardLoops.execute(boardId, () -> joinBoard(context, replayedUpTo));
+                });
+            });
             
-            // Initialize cursor tracking for this board if not exists
-            boardCursors.computeIfAbsent(boardId, k -> new ConcurrentHashMap<>());
+        } catch (Exception e) {
+            log.error("[WS] Internal error for session {}: {}", session.getId(), e.getMessage(), e);
+            TextMessage error = new TextMessage("{\"type\":\"ERROR\",\"data\":{\"message\":\"Internal error: " + e.getMessage() + "\"}}");
+            if (outbound.isRegistered(session)) {
+                outbound.send(session, error);
+                outbound.closeAfterDrain(session, new CloseStatus(1011, "Internal Error"));
+            } else {
+                session.sendMessage(error);
+                session.close(new CloseStatus(1011, "Internal Error"));
+            }
+        }
+    }
+
+    /**
+     * Runs on the board loop once the replay has been queued for the session.
+     * All board-level state for the session is created here, in one loop task.
+     */
+    private void joinBoard(SessionContext context, long replayedUpTo) {
+        UUID boardId = context.boardId();
+        UUID userId = context.userId();
+        BoardRoom room = rooms.get(boardId);
+        CatchUp catchUp = room != null ? room.catchingUp.remove(context) : null;
+        if (catchUp == null || context.isClosed()) {
+            // Closed while the replay was being sent; leaveBoard cleans up
+            return;
+        }
+        if (catchUp.overflowed) {
+            // More happened on the board during the replay than we hold; the client resumes from what it got
+            log.debug("[WS] Session {} fell behind board {} during replay", context.sessionId(), boardId);
+            closeRoomIfEmpty(boardId, room);
+            outbound.closeAfterDrain(context.session(), SessionOutbox.RESYNC);
+            return;
+        }
+        try {
+            room.add(context);
             
-            // Assign or get user color
-            String userColor = userColors.computeIfAbsent(userId, k -> CURSOR_COLORS[random.nextInt(CURSOR_COLORS.length)]);
+            // A user with several tabs on the board shares one cursor; its color lives as long as the cursor.
+            // Read-only sessions watch without a cursor of their own.
+            CursorPosition cursor = room.cursors.get(userId);
+            boolean firstSession = cursor == null && !context.readOnly();
+            if (firstSession) {
+                cursor = CursorPosition.builder()
+                        .userId(userId)
+                        .userName(context.userName())
+                        .userColor(CURSOR_COLORS[random.nextInt(CURSOR_COLORS.length)])
+                        .x(100)
+                        .y(100)
+                        .lastUpdated(OffsetDateTime.now())
+                        .isActive(true)
+                        .build();
+                room.cursors.put(userId, cursor);
+            }
             
-            // Add user cursor to board
-            CursorPosition cursor = CursorPosition.builder()
-                    .userId(userId)
-                    .userName(jwtTokenProvider.getUsernameFromToken(token))
-                    .userColor(userColor)
-                    .x(100)
-                    .y(100)
-                    .lastUpdated(OffsetDateTime.now())
-                    .isActive(true)
-                    .build();
+            log.debug("[WS] User {} joined board {} (session {}, loop {})", userId, boardId, context.sessionId(), boardLoops.loopFor(boardId));
             
-            boardCursors.get(boardId).put(userId, cursor);
+            // Send current cursor positions for all users
+            EventEnvelope cursorsEvent = new EventEnvelope();
+            cursorsEvent.setType("CURSORS_INIT");
+            cursorsEvent.setBoardId(boardId.toString());
             
-            log.info("[WS] User {} joined board {} (session {})", userId, boardId, sessionId);
+            // Idle cursors are left out; they reappear with their next move
+            List<CursorPosition> activeCursors = new ArrayList<>(room.cursors.size());
+            for (CursorPosition roomCursor : room.cursors.values()) {
+                if (roomCursor.isActive()) {
+                    activeCursors.add(roomCursor);
+                }
+            }
+            Map<String, Object> cursorsData = new HashMap<>();
+            cursorsData.put("cursors", activeCursors);
+            cursorsEvent.setData(cursorsData);
             
-            // Send event replay to new connection
-            sendEventReplay(session, boardId);
+            // Send cursors init directly without EVENT_APPEND wrapper
+            outbound.send(context.outbox(), new TextMessage(objectMapper.writeValueAsString(cursorsEvent)));
             
             // Send connection confirmation
             EventEnvelope connectionEvent = new EventEnvelope();
@@ -171,108 +301,559 @@ public class WhiteboardWebSocketHandler extends TextWebSocketHandler {
             connectionEvent.setTs(OffsetDateTime.now());
             
             Map<String, Object> connectionData = new HashMap<>();
-            connectionData.put("message", "Connected to whiteboard");
+            connectionData.put("message", context.readOnly() ? "Board is full; connected read-only" : "Connected to whiteboard");
+            connectionData.put("mode", context.readOnly() ? "READ_ONLY" : "FULL");
             connectionEvent.setData(connectionData);
             
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(connectionEvent)));
+            outbound.send(context.outbox(), new TextMessage(objectMapper.writeValueAsString(connectionEvent)));
             
-            // Broadcast user joined event with cursor info
-            broadcastCursorUpdate(boardId, cursor, "JOIN");
+            // Events committed after the replay query and delivered before this task
+            for (HeldFrame held : catchUp.frames) {
+                EventEnvelope missed = held.event();
+                if (held.control()) {
+                    outbound.send(context.outbox(), new TextMessage(objectMapper.writeValueAsString(missed)));
+                } else if (missed.getSeq() == null || missed.getSeq() > replayedUpTo) {
+                    outbound.send(context.outbox(), frameEncoder.encodeAppend(boardId.toString(), missed).messageFor(context.binaryClient()));
+                }
+            }
             
+            // Broadcast user joined event with cursor info
+            if (firstSession) {
+                broadcastCursorUpdate(room, boardId, cursor, "JOIN");
+            }
         } catch (Exception e) {
-            log.error("[WS] Internal error for session {}: {}", session.getId(), e.getMessage(), e);
-            session.sendMessage(new TextMessage("{\"type\":\"ERROR\",\"data\":{\"message\":\"Internal error: " + e.getMessage() + "\"}}"));
-            session.close(new CloseStatus(1011, "Internal Error"));
+            log.error("[WS] Error joining session {} to board {}: {}", context.sessionId(), boardId, e.getMessage(), e);
+            outbound.closeAfterDrain(context.session(), new CloseStatus(1011, "Internal Error"));
         }
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        receive(session, false, message.getPayloadLength(),
+                () -> objectMapper.readValue(message.getPayload(), EventEnvelope.class));
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        receive(session, true, message.getPayloadLength(), () -> BinaryFrameCodec.decode(message.getPayload()));
+    }
+
+    private interface FrameDecoder {
+        EventEnvelope decode() throws Exception;
+    }
+
+    private void receive(WebSocketSession session, boolean binary, int payloadSize, FrameDecoder decoder) {
+        FrameReceivedEvent received = new FrameReceivedEvent();
+        received.begin();
+        String type = null;
         try {
-            String sessionId = session.getId();
-            UUID boardId = sessionBoardIds.get(sessionId);
-            UUID userId = sessionUserIds.get(sessionId);
+            FrameParsedEvent parsed = new FrameParsedEvent();
+            parsed.begin();
+            long start = System.nanoTime();
+            EventEnvelope event = decoder.decode();
+            metrics.parsed(binary, System.nanoTime() - start);
+            type = event.getType();
+            parsed.finish(type, binary, payloadSize);
+            handleInboundEvent(session, event);
+        } catch (Exception e) {
+            sendProcessingError(session, e);
+        } finally {
+            SessionContext context = SessionContext.of(session);
+            received.finish(context != null ? context.boardId() : null, session.getId(), type, binary, payloadSize);
+        }
+    }
 
-            if (boardId == null || userId == null) {
-                session.close(CloseStatus.POLICY_VIOLATION);
-                return;
+    /**
+     * Common path for JSON and binary frames once they have been decoded into an envelope.
+     * Runs on the container's reader thread, so it only validates and hands work off:
+     * cursor moves go to the board loop, persistence to the board's ingestion lane. The lane
+     * persists if this node owns the board and forwards the write to the owner otherwise;
+     * the broadcast comes back through the bus in persistence order.
+     */
+    private void handleInboundEvent(WebSocketSession session, EventEnvelope eventEnvelope) throws Exception {
+        SessionContext context = SessionContext.of(session);
+        if (context == null) {
+            session.close(CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+        long now = System.nanoTime();
+        context.touchInbound(now);
+        UUID boardId = context.boardId();
+        UUID userId = context.userId();
+
+        String type = eventEnvelope.getType();
+        if (type == null || type.isBlank()) {
+            throw new IllegalArgumentException("Event type is required");
+        }
+        metrics.received(type);
+
+        eventEnvelope.setBoardId(boardId.toString());
+        eventEnvelope.setUserId(userId.toString());
+
+        // Excess frames are dropped here, before they cost a loop task, a DB insert or a broadcast
+        EventClass eventClass = EventClass.of(type);
+        InboundRateLimiter.Verdict verdict = rateLimiter.check(context.limits(), eventClass);
+        if (!verdict.allowed()) {
+            if (verdict.signal()) {
+                sendSlowDown(context, eventClass, verdict.retryAfterMillis());
             }
+            return;
+        }
 
-            // Parse incoming event
-            EventEnvelope eventEnvelope = objectMapper.readValue(message.getPayload(), EventEnvelope.class);
-            eventEnvelope.setBoardId(boardId.toString());
-            eventEnvelope.setUserId(userId.toString());
-            eventEnvelope.setTs(OffsetDateTime.now());
+        if ("VIEWPORT".equals(type)) {
+            Bounds viewport = parseViewport(eventEnvelope.getData());
+            boardLoops.execute(boardId, () -> updateViewport(context, viewport));
+            return;
+        }
 
-            // Handle cursor movement events
-            if ("CURSOR_MOVE".equals(eventEnvelope.getType())) {
-                handleCursorMove(boardId, userId, eventEnvelope);
+        if (context.readOnly()) {
+            if ("CURSOR_MOVE".equals(type)) {
                 return;
             }
+            throw new IllegalStateException("Board is full; this session is read-only");
+        }
+
+        // Handle cursor movement events; at most one move per session waits on the loop, newer moves replace it
+        if ("CURSOR_MOVE".equals(type)) {
+            context.cursorMoved(now);
+            if (context.pendingCursorMove().getAndSet(eventEnvelope) == null) {
+                boardLoops.execute(boardId, () -> handleCursorMove(boardId, userId, context.pendingCursorMove().getAndSet(null)));
+            }
+            return;
+        }
+
+        ingestionPipeline.submit(boardId, () -> {
+            try {
+                String owner = leases.acquireOrLocate(boardId);
+                if (!leases.isOwner(boardId)) {
+                    eventBus.forward(owner, boardId, userId, eventEnvelope);
+                    return;
+                }
+                write(boardId, userId, eventEnvelope, failure -> sendProcessingError(session, failure));
+            } catch (Exception e) {
+                sendProcessingError(session, e);
+            }
+        });
+    }
+
+    /**
+     * Write sent here by a node that does not own the board. Persisted only if this node still is,
+     * or can become, the owner; forwarding it on could bounce it between nodes while ownership moves.
+     */
+    private void acceptForwardedWrite(UUID boardId, UUID userId, EventEnvelope write) {
+        ingestionPipeline.submit(boardId, () -> {
+            try {
+                leases.acquireOrLocate(boardId);
+                if (!leases.isOwner(boardId)) {
+                    log.warn("[WS] Dropping forwarded {} for board {}: lease is held by another node", write.getType(), boardId);
+                    return;
+                }
+                write(boardId, userId, write, failure -> log.error("[WS] Failed to persist forwarded {} for board {}: {}",
+                        write.getType(), boardId, failure.getMessage()));
+            } catch (Exception e) {
+                log.error("[WS] Failed to persist forwarded {} for board {}: {}", write.getType(), boardId, e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * The board's write mode. It is loaded outside the map, so the query never runs inside a map update;
+     * a mode change stored meanwhile wins over the loaded value.
+     */
+    private boolean isOptimistic(UUID boardId) {
+        Boolean optimistic = optimisticBoards.get(boardId);
+        if (optimistic == null) {
+            optimistic = whiteboardService.isOptimisticWrites(boardId);
+            Boolean stored = optimisticBoards.putIfAbsent(boardId, optimistic);
+            if (stored != null) {
+                optimistic = stored;
+            }
+        }
+        return optimistic;
+    }
 
-            if ("CLEAR_CANVAS".equals(eventEnvelope.getType())) {
-                // Delete all events for this board
-                eventService.deleteEventsForBoard(boardId);
+    /**
+     * Owner-side write on the board's lane, in the board's write mode.
+     */
+    private void write(UUID boardId, UUID userId, EventEnvelope write, Consumer<Throwable> onFailure) {
+        // Stamped on the owner's lane so timestamps follow persistence order; IDs sent by clients are never trusted
+        write.setTs(OffsetDateTime.now());
+        write.setId(UUID.randomUUID().toString());
+        if (!boardStates.admits(boardId, write)) {
+            throw new IllegalArgumentException(write.getType() + " refers to a shape that is not on the board");
+        }
+        if (isOptimistic(boardId)) {
+            broadcastThenPersist(boardId, userId, write);
+        } else {
+            persistAndBroadcast(boardId, userId, write, onFailure);
+        }
+    }
+
+    /**
+     * Queue the write for group commit and publish it once durable. The broadcast doubles as the
+     * sender's acknowledgement, so nobody sees an event a crash could still lose. Completions for one
+     * board arrive in queue order, which keeps publish order equal to persistence order.
+     */
+    private void persistAndBroadcast(UUID boardId, UUID userId, EventEnvelope eventEnvelope, Consumer<Throwable> onFailure) {
+        if ("CLEAR_CANVAS".equals(eventEnvelope.getType())) {
+            // Delete all events for this board, after anything still queued for it
+            eventService.clearEventsForBoard(boardId).whenComplete((seq, failure) -> {
+                if (failure != null) {
+                    onFailure.accept(failure);
+                    return;
+                }
                 // Broadcast CLEAR_CANVAS event to all users
-                EventEnvelope clearEvent = new EventEnvelope();
-                clearEvent.setType("CLEAR_CANVAS");
-                clearEvent.setBoardId(boardId.toString());
-                clearEvent.setUserId(userId.toString());
-                clearEvent.setTs(OffsetDateTime.now());
-                
-                Map<String, Object> clearData = new HashMap<>();
-                clearEvent.setData(clearData);
-                
-                broadcastToBoard(boardId, clearEvent);
+                EventEnvelope clearEvent = clearCanvasEvent(boardId, userId, eventEnvelope.getId(), seq);
+                boardStates.record(boardId, clearEvent);
+                eventBus.publish(boardId, clearEvent);
+            });
+            return;
+        }
+
+        eventService.appendEvent(eventEnvelope, userId).whenComplete((processedEvent, failure) -> {
+            if (failure != null) {
+                onFailure.accept(failure);
+            } else {
+                // Applied here too, so a write that follows cannot overtake it on the bus
+                boardStates.record(boardId, processedEvent);
+                eventBus.publish(boardId, processedEvent);
+                boardSnapshots.eventPersisted(boardId);
+            }
+        });
+    }
+
+    /**
+     * Optimistic mode: publish at once under the server-assigned ID and persist behind it. The board
+     * then gets EVENT_ACK with the sequence number the event took, which the writer matches by its tempId,
+     * or the writer alone gets EVENT_REJECTED. A creation that fails to persist is taken back with a
+     * SHAPE_DELETED broadcast; other failed edits are only reported to the writer.
+     */
+    private void broadcastThenPersist(UUID boardId, UUID userId, EventEnvelope write) {
+        boolean clear = "CLEAR_CANVAS".equals(write.getType());
+        CompletableFuture<?> persisted = clear ? eventService.clearEventsForBoard(boardId) : eventService.appendEvent(write, userId);
+        if (persisted.isCompletedExceptionally()) {
+            // Not even queued, so nobody has seen it yet
+            publishOutcome(boardId, userId, write, persisted.exceptionNow(), false);
+            return;
+        }
+        EventEnvelope published = clear ? clearCanvasEvent(boardId, userId, write.getId(), null) : write;
+        boardStates.record(boardId, published);
+        eventBus.publish(boardId, published);
+        persisted.whenComplete((result, failure) -> {
+            Long seq = result instanceof EventEnvelope stored ? stored.getSeq() : (Long) result;
+            publishOutcome(boardId, userId, write, failure, true, seq);
+            if (failure != null) {
+                boardStates.reject(boardId, write.getId());
                 return;
             }
+            boardStates.acknowledge(boardId, write.getId(), seq);
+            if (!clear) {
+                boardSnapshots.eventPersisted(boardId);
+            }
+        });
+    }
 
-            // Process and persist event
-            EventEnvelope processedEvent = eventService.processEvent(eventEnvelope, userId);
+    private void publishOutcome(UUID boardId, UUID userId, EventEnvelope write, Throwable failure, boolean broadcast) {
+        publishOutcome(boardId, userId, write, failure, broadcast, null);
+    }
 
-            // Broadcast to all sessions in the same board
-            broadcastToBoard(boardId, processedEvent);
+    private void publishOutcome(UUID boardId, UUID userId, EventEnvelope write, Throwable failure, boolean broadcast, Long seq) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", write.getId());
+        if (seq != null) {
+            data.put("seq", seq);
+        }
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            data.put("reason", cause.getMessage());
+            log.warn("[WS] Optimistic {} {} on board {} was not persisted: {}", write.getType(), write.getId(), boardId, cause.getMessage());
+            // In optimistic mode a failed persist of a shape creation is taken back: every node that gets the
+            // rejection broadcasts a SHAPE_DELETED for it
+            if (broadcast && BoardState.CREATION_TYPES.contains(write.getType())) {
+                data.put("withdrawn", true);
+            }
+        }
+        EventEnvelope outcome = new EventEnvelope(null, boardId.toString(), userId.toString(),
+                failure == null ? "EVENT_ACK" : "EVENT_REJECTED", OffsetDateTime.now(), data, write.getTempId());
+        eventBus.publish(boardId, outcome);
+    }
 
-        } catch (Exception e) {
-            // Send error message back to client
+    /**
+     * The SHAPE_DELETED taking back a shape whose creation failed to persist. Its ID is derived from the
+     * shape's, so every node sends the same event.
+     */
+    private static EventEnvelope withdrawal(UUID boardId, String userId, String shapeId) {
+        String id = UUID.nameUUIDFromBytes(("withdrawn:" + shapeId).getBytes(StandardCharsets.UTF_8)).toString();
+        return new EventEnvelope(id, boardId.toString(), userId, "SHAPE_DELETED", OffsetDateTime.now(), Map.of("id", shapeId));
+    }
+
+    private static EventEnvelope clearCanvasEvent(UUID boardId, UUID userId, String id, Long seq) {
+        EventEnvelope clearEvent = new EventEnvelope();
+        clearEvent.setId(id);
+        clearEvent.setSeq(seq);
+        clearEvent.setType("CLEAR_CANVAS");
+        clearEvent.setBoardId(boardId.toString());
+        clearEvent.setUserId(userId.toString());
+        clearEvent.setTs(OffsetDateTime.now());
+        
+        Map<String, Object> clearData = new HashMap<>();
+        clearEvent.setData(clearData);
+        return clearEvent;
+    }
+
+    /**
+     * Relay a committed write-mode change to every node, which update their cache and tell their clients.
+     */
+    @TransactionalEventListener
+    public void onWriteModeChanged(WhiteboardWriteModeChanged change) {
+        EventEnvelope event = new EventEnvelope(null, change.boardId().toString(), null, "WRITE_MODE_CHANGED",
+                OffsetDateTime.now(), Map.of("optimistic", change.optimistic()));
+        eventBus.publish(change.boardId(), event);
+    }
+
+    /**
+     * Relay a committed board deletion to every node, which drop what they hold for the board in memory.
+     */
+    @TransactionalEventListener
+    public void onWhiteboardDeleted(WhiteboardDeleted deleted) {
+        EventEnvelope event = new EventEnvelope(null, deleted.boardId().toString(), null, "WHITEBOARD_DELETED",
+                OffsetDateTime.now(), Map.of());
+        eventBus.publish(deleted.boardId(), event);
+    }
+
+    /**
+     * Everything the bus delivers. Board events are recorded for resuming clients and broadcast as
+     * EVENT_APPEND; acknowledgements go to the whole board so every client learns the sequence number,
+     * rejections only to the writer's sessions; mode changes update the cache and are passed on as they are.
+     */
+    private void onBusEvent(UUID boardId, EventEnvelope event) {
+        String type = event.getType();
+        Map<?, ?> data = event.getData() instanceof Map<?, ?> map ? map : Map.of();
+        if ("EVENT_ACK".equals(type)) {
+            boardLoops.execute(boardId, () -> {
+                if (data.get("id") instanceof String id && data.get("seq") instanceof Number seq) {
+                    resumeBuffer.acknowledge(boardId, id, seq.longValue());
+                    boardStates.acknowledge(boardId, id, seq.longValue());
+                }
+                sendControlFrame(boardId, event, null);
+            });
+        } else if ("EVENT_REJECTED".equals(type)) {
+            UUID writer = UUID.fromString(event.getUserId());
+            boardLoops.execute(boardId, () -> {
+                if (data.get("id") instanceof String id) {
+                    resumeBuffer.reject(boardId, id);
+                    boardStates.reject(boardId, id);
+                    if (Boolean.TRUE.equals(data.get("withdrawn"))) {
+                        // Never persisted and never acknowledged, so it bypasses the resume buffer and board state
+                        broadcastToBoard(boardId, withdrawal(boardId, event.getUserId(), id));
+                    }
+                }
+                sendControlFrame(boardId, event, writer);
+            });
+        } else if ("WHITEBOARD_DELETED".equals(type)) {
+            boardStates.evict(boardId);
+            replayFrames.invalidate(boardId);
+            boardLoops.execute(boardId, () -> sendControlFrame(boardId, event, null));
+        } else if ("WRITE_MODE_CHANGED".equals(type)) {
+            if (data.get("optimistic") instanceof Boolean optimistic) {
+                optimisticBoards.put(boardId, optimistic);
+            }
+            boardLoops.execute(boardId, () -> sendControlFrame(boardId, event, null));
+        } else {
+            boardLoops.execute(boardId, () -> {
+                resumeBuffer.record(boardId, event);
+                boardStates.record(boardId, event);
+                broadcastToBoard(boardId, event);
+            });
+        }
+    }
+
+    /**
+     * Send a frame as-is to the board's sessions, or only to those of one user.
+     */
+    private void sendControlFrame(UUID boardId, EventEnvelope event, UUID onlyUser) {
+        BoardRoom room = rooms.get(boardId);
+        if (room == null) {
+            return;
+        }
+        room.holdForCatchUp(event, true, onlyUser, replayMaxHeldEvents);
+        try {
+            TextMessage message = new TextMessage(objectMapper.writeValueAsString(event));
+            for (SessionContext member : room.members) {
+                if (onlyUser == null || onlyUser.equals(member.userId())) {
+                    outbound.send(member.outbox(), message);
+                }
+            }
+        } catch (IOException e) {
+            log.error("[WS] Error sending {} to board {}: {}", event.getType(), boardId, e.getMessage());
+        }
+    }
+
+    private static Bounds parseViewport(Object dataObj) {
+        if (dataObj instanceof Map<?, ?> data
+                && data.get("x") instanceof Number x && data.get("y") instanceof Number y
+                && data.get("width") instanceof Number width && data.get("height") instanceof Number height
+                && width.doubleValue() >= 0 && height.doubleValue() >= 0) {
+            return Bounds.of(x.doubleValue(), y.doubleValue(), width.doubleValue(), height.doubleValue());
+        }
+        throw new IllegalArgumentException("VIEWPORT requires numeric x, y, width and height");
+    }
+
+    private void sendSlowDown(SessionContext context, EventClass eventClass, long retryAfterMillis) {
+        try {
+            EventEnvelope slowDown = new EventEnvelope();
+            slowDown.setType("SLOW_DOWN");
+            slowDown.setBoardId(context.boardId().toString());
+            slowDown.setTs(OffsetDateTime.now());
+            slowDown.setData(Map.of("eventClass", eventClass.name(), "retryAfterMs", retryAfterMillis));
+            outbound.send(context.outbox(), new TextMessage(objectMapper.writeValueAsString(slowDown)));
+        } catch (IOException e) {
+            log.error("[WS] Error sending SLOW_DOWN to session {}: {}", context.sessionId(), e.getMessage());
+        }
+    }
+
+    private void sendProcessingError(WebSocketSession session, Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        // Send error message back to client
+        try {
             EventEnvelope errorEvent = new EventEnvelope();
             errorEvent.setType("ERROR");
             errorEvent.setData(Map.of("message", "Failed to process event: " + e.getMessage()));
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(errorEvent)));
+            outbound.send(session, new TextMessage(objectMapper.writeValueAsString(errorEvent)));
+        } catch (IOException ex) {
+            log.error("[WS] Error sending error frame to session {}: {}", session.getId(), ex.getMessage());
+        }
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        SessionContext context = SessionContext.of(session);
+        if (context != null) {
+            context.touchInbound(System.nanoTime());
         }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        String sessionId = session.getId();
-        UUID boardId = sessionBoardIds.remove(sessionId);
-        UUID userId = sessionUserIds.remove(sessionId);
-        sessions.remove(sessionId);
-
-        if (boardId != null && userId != null) {
-            // Remove from board sessions
-            Map<String, WebSocketSession> boardSessionMap = boardSessions.get(boardId);
-            if (boardSessionMap != null) {
-                boardSessionMap.remove(sessionId);
-                if (boardSessionMap.isEmpty()) {
-                    boardSessions.remove(boardId);
-                }
+        outbound.unregister(session.getId());
+        if (session.getAttributes().remove(AdmissionController.TICKET_ATTRIBUTE) instanceof AdmissionController.Ticket ticket) {
+            admissionController.release(ticket);
+        }
+        SessionContext context = SessionContext.of(session);
+        if (context == null) {
+            return;
+        }
+        context.markClosed();
+        activeSessions.decrementAndGet();
+        rateLimiter.close(context.limits());
+        boardLoops.execute(context.boardId(), () -> leaveBoard(context));
+    }
+
+    /**
+     * Runs on the board loop; removes every trace of the session from the board in one loop task.
+     */
+    private void leaveBoard(SessionContext context) {
+        UUID boardId = context.boardId();
+        BoardRoom room = rooms.get(boardId);
+        if (room == null) {
+            return;
+        }
+        if (room.catchingUp.remove(context) != null) {
+            // Left during its replay, before joining
+            closeRoomIfEmpty(boardId, room);
+            return;
+        }
+        if (!room.remove(context)) {
+            return;
+        }
+        context.interest(null);
+        if (closeRoomIfEmpty(boardId, room)) {
+            return;
+        }
+        // Keep the cursor while the user still has another session on the board
+        UUID userId = context.userId();
+        if (!context.readOnly() && !room.hasCursorOwner(userId)) {
+            CursorPosition cursor = room.cursors.remove(userId);
+            if (cursor != null) {
+                queuePresence(room, boardId, cursor, "LEAVE");
             }
-            
-            // Remove user cursor and broadcast leave event
-            Map<UUID, CursorPosition> boardCursorMap = boardCursors.get(boardId);
-            if (boardCursorMap != null) {
-                CursorPosition cursor = boardCursorMap.remove(userId);
-                if (cursor != null) {
-                    broadcastCursorUpdate(boardId, cursor, "LEAVE");
-                }
-                if (boardCursorMap.isEmpty()) {
-                    boardCursors.remove(boardId);
-                }
+        }
+    }
+
+    private boolean closeRoomIfEmpty(UUID boardId, BoardRoom room) {
+        if (!room.isEmpty()) {
+            return false;
+        }
+        rooms.remove(boardId);
+        optimisticBoards.remove(boardId);
+        boardLoops.unpin(boardId);
+        cursorFrameTicker.boardClosed(boardId);
+        metrics.boardClosed(boardId);
+        return true;
+    }
+
+    /**
+     * Runs on the board loop with the sessions the reaper found idle in one tick.
+     */
+    private void markCursorsIdle(UUID boardId, List<SessionContext> idle) {
+        BoardRoom room = rooms.get(boardId);
+        if (room == null) {
+            return;
+        }
+        // Another session of the same user may have moved the shared cursor since
+        OffsetDateTime idleBefore = OffsetDateTime.now().minusNanos(presenceReaper.cursorIdleMillis() * 1_000_000L);
+        for (SessionContext context : idle) {
+            CursorPosition cursor = room.cursors.get(context.userId());
+            if (cursor != null && cursor.isActive() && !cursor.getLastUpdated().isAfter(idleBefore)) {
+                cursor.setActive(false);
+                queuePresence(room, boardId, cursor, "IDLE");
             }
         }
     }
 
+    /**
+     * Collect LEAVE and IDLE transitions; everything queued on the loop before the flush goes out as one PRESENCE_BATCH.
+     */
+    private void queuePresence(BoardRoom room, UUID boardId, CursorPosition cursor, String eventType) {
+        if (room.pendingPresence.isEmpty()) {
+            boardLoops.execute(boardId, () -> flushPresence(room, boardId));
+        }
+        room.pendingPresence.add(CursorUpdateEvent.builder()
+                .userId(cursor.getUserId())
+                .userName(cursor.getUserName())
+                .userColor(cursor.getUserColor())
+                .x(cursor.getX())
+                .y(cursor.getY())
+                .timestamp(OffsetDateTime.now())
+                .eventType(eventType)
+                .build());
+    }
+
+    private void flushPresence(BoardRoom room, UUID boardId) {
+        List<CursorUpdateEvent> batch = new ArrayList<>(room.pendingPresence);
+        room.pendingPresence.clear();
+        SessionContext[] members = room.members;
+        if (batch.isEmpty() || members.length == 0) {
+            return;
+        }
+        try {
+            EventEnvelope envelope = new EventEnvelope();
+            envelope.setType("PRESENCE_BATCH");
+            envelope.setBoardId(boardId.toString());
+            envelope.setTs(OffsetDateTime.now());
+            envelope.setData(Map.of("cursors", batch));
+            // Not coalesced like CURSORS_FRAME: a lost LEAVE would leave a ghost cursor behind
+            TextMessage message = frameEncoder.encode(envelope).asText();
+            for (SessionContext member : members) {
+                outbound.send(member.outbox(), message);
+            }
+        } catch (Exception e) {
+            log.error("[WS] Error broadcasting presence batch: {}", e.getMessage(), e);
+        }
+    }
+
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         log.error("[WS] Transport error for session {}: {}", session.getId(), exception.getMessage(), exception);
@@ -294,16 +875,17 @@ public class WhiteboardWebSocketHandler extends TextWebSocketHandler {
                     double y = Double.parseDouble(data.get("y").toString());
                     
                     // Update cursor position
-                    Map<UUID, CursorPosition> boardCursorMap = boardCursors.get(boardId);
-                    if (boardCursorMap != null) {
-                        CursorPosition cursor = boardCursorMap.get(userId);
+                    BoardRoom room = rooms.get(boardId);
+                    if (room != null) {
+                        CursorPosition cursor = room.cursors.get(userId);
                         if (cursor != null) {
+                            cursor.setActive(true);
                             cursor.setX(x);
                             cursor.setY(y);
                             cursor.setLastUpdated(OffsetDateTime.now());
                             
-                            // Broadcast cursor update to all users
-                            broadcastCursorUpdate(boardId, cursor, "MOVE");
+                            // Picked up by the next presence tick as part of a CURSORS_FRAME
+                            cursorFrameTicker.cursorMoved(boardId, userId);
                         }
                     }
                 }
@@ -313,7 +895,7 @@ public class WhiteboardWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void broadcastCursorUpdate(UUID boardId, CursorPosition cursor, String eventType) {
+    private void broadcastCursorUpdate(BoardRoom room, UUID boardId, CursorPosition cursor, String eventType) {
         try {
             CursorUpdateEvent cursorEvent = CursorUpdateEvent.builder()
                     .userId(cursor.getUserId())
@@ -336,124 +918,463 @@ public class WhiteboardWebSocketHandler extends TextWebSocketHandler {
             envelope.setData(data);
             
             // Send cursor updates directly to all sessions without EVENT_APPEND wrapper
-            Map<String, WebSocketSession> boardSessionMap = boardSessions.get(boardId);
-            if (boardSessionMap != null) {
-                try {
-                    String eventJson = objectMapper.writeValueAsString(envelope);
-                    TextMessage message = new TextMessage(eventJson);
-                    
-                    log.info("[WS] Broadcasting cursor update {} to {} sessions in board {}", 
-                        eventType, boardSessionMap.size(), boardId);
-                    
-                    boardSessionMap.values().forEach(session -> {
-                        try {
-                            if (session.isOpen()) {
-                                session.sendMessage(message);
-                            }
-                        } catch (IOException e) {
-                            log.error("[WS] Error sending cursor update to session {}: {}", 
-                                session.getId(), e.getMessage());
+            TextMessage message = frameEncoder.encode(envelope).asText();
+            SessionContext[] members = room.members;
+            
+            if (metrics.sampleDebug(log)) {
+                log.debug("[WS] Broadcasting cursor update {} to {} sessions in board {}",
+                    eventType, members.length, boardId);
+            }
+            
+            for (SessionContext member : members) {
+                outbound.send(member.outbox(), message);
+            }
+        } catch (Exception e) {
+            log.error("[WS] Error broadcasting cursor update: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Emit one CURSORS_FRAME holding the latest position of every cursor that moved since the last tick.
+     * Frames are droppable: under backpressure a session keeps only the newest pending frame.
+     */
+    private void broadcastCursorFrame(UUID boardId, List<UUID> movedUserIds) {
+        BoardRoom room = rooms.get(boardId);
+        if (room == null || room.isEmpty()) {
+            return;
+        }
+        List<CursorUpdateEvent> changed = new ArrayList<>(movedUserIds.size());
+        for (UUID userId : movedUserIds) {
+            CursorPosition cursor = room.cursors.get(userId);
+            if (cursor != null) {
+                changed.add(cursorMove(cursor));
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            // Sessions with the same cursors in view share one encoding; usually that is everyone
+            Map<BitSet, PreEncodedFrame> frames = new HashMap<>();
+            // Read-only sessions get a snapshot of every cursor on every Nth frame instead
+            boolean snapshotTick = ++room.cursorFrames % Math.max(1, readOnlyCursorFrameInterval) == 0;
+            PreEncodedFrame snapshot = null;
+            for (SessionContext member : room.members) {
+                if (member.readOnly()) {
+                    if (snapshotTick) {
+                        if (snapshot == null) {
+                            List<CursorUpdateEvent> all = new ArrayList<>(room.cursors.size());
+                            room.cursors.values().forEach(cursor -> all.add(cursorMove(cursor)));
+                            snapshot = encodeCursorsFrame(boardId, all);
                         }
-                    });
-                } catch (Exception e) {
-                    log.error("[WS] Error broadcasting cursor update: {}", e.getMessage(), e);
+                        outbound.sendCursor(member.outbox(), CURSORS_FRAME_KEY, snapshot.messageFor(member.binaryClient()));
+                    }
+                    continue;
+                }
+                SessionInterest interest = member.interest();
+                BitSet visible = new BitSet(changed.size());
+                for (int i = 0; i < changed.size(); i++) {
+                    CursorUpdateEvent cursor = changed.get(i);
+                    if (interest == null || interest.sees(cursor.getX(), cursor.getY())) {
+                        visible.set(i);
+                        if (interest != null) {
+                            interest.cursorShown(cursor.getUserId());
+                        }
+                    } else {
+                        interest.cursorHidden(cursor.getUserId());
+                    }
+                }
+                if (visible.isEmpty()) {
+                    continue;
                 }
+                PreEncodedFrame encoded = frames.get(visible);
+                if (encoded == null) {
+                    List<CursorUpdateEvent> subset = visible.cardinality() == changed.size()
+                            ? changed : visible.stream().mapToObj(changed::get).toList();
+                    encoded = encodeCursorsFrame(boardId, subset);
+                    frames.put(visible, encoded);
+                }
+                outbound.sendCursor(member.outbox(), CURSORS_FRAME_KEY, encoded.messageFor(member.binaryClient()));
             }
-            
         } catch (Exception e) {
-            log.error("[WS] Error broadcasting cursor update: {}", e.getMessage());
+            log.error("[WS] Error broadcasting cursor frame: {}", e.getMessage(), e);
+        }
+    }
+
+    private PreEncodedFrame encodeCursorsFrame(UUID boardId, List<CursorUpdateEvent> cursors) throws IOException {
+        EventEnvelope frame = new EventEnvelope();
+        frame.setType("CURSORS_FRAME");
+        frame.setBoardId(boardId.toString());
+        frame.setTs(OffsetDateTime.now());
+        frame.setData(Map.of("cursors", cursors));
+        return frameEncoder.encodeCursorsFrame(frame, cursors);
+    }
+
+    private static CursorUpdateEvent cursorMove(CursorPosition cursor) {
+        return CursorUpdateEvent.builder()
+                .userId(cursor.getUserId())
+                .userName(cursor.getUserName())
+                .userColor(cursor.getUserColor())
+                .x(cursor.getX())
+                .y(cursor.getY())
+                .timestamp(cursor.getLastUpdated())
+                .eventType("MOVE")
+                .build();
+    }
+
+    /**
+     * Record a session's new viewport and deliver what it had been kept from that is now in view.
+     */
+    private void updateViewport(SessionContext context, Bounds viewport) {
+        BoardRoom room = rooms.get(context.boardId());
+        SessionInterest interest = context.interest();
+        if (room == null || interest == null) {
+            return;
+        }
+        for (PreEncodedFrame frame : interest.moveTo(viewport)) {
+            outbound.send(context.outbox(), frame.messageFor(context.binaryClient()));
+        }
+        List<CursorUpdateEvent> revealed = new ArrayList<>();
+        Iterator<UUID> stale = interest.staleCursors().iterator();
+        while (stale.hasNext()) {
+            CursorPosition cursor = room.cursors.get(stale.next());
+            if (cursor == null) {
+                stale.remove();
+            } else if (interest.sees(cursor.getX(), cursor.getY())) {
+                revealed.add(cursorMove(cursor));
+                stale.remove();
+            }
+        }
+        if (!revealed.isEmpty()) {
+            try {
+                outbound.sendCursor(context.outbox(), CURSORS_FRAME_KEY,
+                        encodeCursorsFrame(context.boardId(), revealed).messageFor(context.binaryClient()));
+            } catch (IOException e) {
+                log.error("[WS] Error sending revealed cursors: {}", e.getMessage(), e);
+            }
         }
     }
 
     private void broadcastToBoard(UUID boardId, EventEnvelope event) {
-        Map<String, WebSocketSession> boardSessionMap = boardSessions.get(boardId);
-        if (boardSessionMap != null) {
+        BoardRoom room = rooms.get(boardId);
+        if (room != null) {
+            room.holdForCatchUp(event, false, null, replayMaxHeldEvents);
+            SessionContext[] members = room.members;
+            FanOutEvent fanOutEvent = new FanOutEvent();
+            fanOutEvent.begin();
+            long start = System.nanoTime();
             try {
-                // Create an EVENT_APPEND wrapper that the frontend expects
-                EventEnvelope appendEvent = new EventEnvelope();
-                appendEvent.setType("EVENT_APPEND");
-                appendEvent.setBoardId(boardId.toString());
-                
-                Map<String, Object> appendData = new HashMap<>();
-                appendData.put("event", event);
-                appendEvent.setData(appendData);
-                
-                String eventJson = objectMapper.writeValueAsString(appendEvent);
-                TextMessage message = new TextMessage(eventJson);
+                // Encode the EVENT_APPEND wrapper once and share the bytes with every recipient
+                PreEncodedFrame frame = frameEncoder.encodeAppend(boardId.toString(), event);
+                compressionSampler.sample(boardId, frame.json());
+                Bounds bounds = filterShapeEvents ? Bounds.forEvent(event) : null;
+                boolean clear = "CLEAR_CANVAS".equals(event.getType());
                 
-                log.info("[WS] Broadcasting event {} to {} sessions in board {}", 
-                    event.getType(), boardSessionMap.size(), boardId);
+                if (metrics.sampleDebug(log)) {
+                    log.debug("[WS] Broadcasting event {} to {} sessions in board {}",
+                        event.getType(), members.length, boardId);
+                }
                 
-                boardSessionMap.values().forEach(session -> {
-                    try {
-                        if (session.isOpen()) {
-                            session.sendMessage(message);
+                for (SessionContext member : members) {
+                    SessionInterest interest = member.interest();
+                    boolean binaryClient = member.binaryClient();
+                    if (interest != null) {
+                        if (bounds != null && !interest.sees(bounds) && interest.defer(bounds, frame)) {
+                            continue;
+                        }
+                        if (clear) {
+                            interest.clearDeferred();
+                        } else if (bounds == null || interest.hasDeferred() && !interest.sees(bounds)) {
+                            // Unbounded events may refer to anything, so everything kept back goes first
+                            for (PreEncodedFrame deferred : interest.drainDeferred()) {
+                                outbound.send(member.outbox(), deferred.messageFor(binaryClient));
+                            }
                         }
-                    } catch (IOException e) {
-                        log.error("[WS] Error sending message to session {}: {}", 
-                            session.getId(), e.getMessage());
                     }
-                });
+                    outbound.send(member.outbox(), frame.messageFor(binaryClient));
+                }
+                metrics.fannedOut(boardId, event.getType(), members.length, System.nanoTime() - start);
+                fanOutEvent.finish(boardId, event.getType(), members.length, frame.json().length);
             } catch (Exception e) {
                 log.error("[WS] Error broadcasting event: {}", e.getMessage(), e);
             }
         }
     }
 
-    private void sendEventReplay(WebSocketSession session, UUID boardId) throws IOException {
+    /**
+     * Bring the session up to date. A client that sends {@code since} gets only the events after it,
+     * from the board's ring or else the database; if neither can fill the gap it gets a full replay
+     * flagged {@code reset}, telling it to drop what it has first. A full replay sends the creation events
+     * of the shapes on the board, from the board's state in memory; if that cannot be loaded it starts from
+     * the board's latest snapshot and streams the history after it.
+     * Either way the events go out as EVENT_REPLAY_CHUNK frames, each sent once the previous
+     * ones have mostly drained, and end with REPLAY_COMPLETE.
+     *
+     * @return the sequence number the session is now up to date with
+     */
+    private long sendEventReplay(SessionContext context, Long since) {
+        UUID boardId = context.boardId();
         try {
-            // Get events in chunks for replay
-            var events = eventService.getEventsForBoard(boardId, eventReplayChunkSize);
-            
-            if (!events.isEmpty()) {
-                EventEnvelope replayEvent = new EventEnvelope();
-                replayEvent.setType("EVENT_REPLAY_CHUNK");
-                replayEvent.setBoardId(boardId.toString());
-                
-                Map<String, Object> replayData = new HashMap<>();
-                replayData.put("events", events);
-                replayEvent.setData(replayData);
-                
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(replayEvent)));
+            List<EventEnvelope> events = null;
+            if (since != null) {
+                events = resumeBuffer.tail(boardId, since);
+                if (events != null) {
+                    resumeBuffer.resumed(ResumeBuffer.Source.RING);
+                } else {
+                    events = eventService.getEventsSince(boardId, since, resumeMaxGap).orElse(null);
+                    resumeBuffer.resumed(events != null ? ResumeBuffer.Source.DATABASE : ResumeBuffer.Source.SNAPSHOT);
+                }
             }
-            
-            // Send current cursor positions for all users
-            Map<UUID, CursorPosition> boardCursorMap = boardCursors.get(boardId);
-            if (boardCursorMap != null && !boardCursorMap.isEmpty()) {
-                EventEnvelope cursorsEvent = new EventEnvelope();
-                cursorsEvent.setType("CURSORS_INIT");
-                cursorsEvent.setBoardId(boardId.toString());
-                
-                Map<String, Object> cursorsData = new HashMap<>();
-                cursorsData.put("cursors", boardCursorMap.values());
-                cursorsEvent.setData(cursorsData);
-                
-                // Send cursors init directly without EVENT_APPEND wrapper
-                String cursorsJson = objectMapper.writeValueAsString(cursorsEvent);
-                session.sendMessage(new TextMessage(cursorsJson));
+            ReplaySender sender;
+            if (events != null) {
+                sender = new ReplaySender(context, since, false);
+                for (int from = 0; from < events.size(); from += eventReplayChunkSize) {
+                    sender.accept(events.subList(from, Math.min(events.size(), from + eventReplayChunkSize)));
+                }
+            } else if (replayFrames.get(boardId).orElse(null) instanceof ReplayFrameCache.Replay replay) {
+                // Frames shared with every other session joining the board
+                sender = new ReplaySender(context, 0, true);
+                sender.accept(replay);
+            } else {
+                // The board's shapes from memory, else from its latest snapshot followed by the history after it
+                BoardState state = boardStates.get(boardId).orElse(null);
+                boolean inMemory = state != null;
+                if (!inMemory) {
+                    state = boardSnapshots.getLatestSnapshot(boardId).orElse(null);
+                }
+                sender = new ReplaySender(context, state != null ? state.seq() : 0, true);
+                if (state != null) {
+                    List<EventEnvelope> shapes = state.shapes();
+                    for (int from = 0; from < shapes.size(); from += eventReplayChunkSize) {
+                        sender.accept(shapes.subList(from, Math.min(shapes.size(), from + eventReplayChunkSize)));
+                    }
+                }
+                if (!inMemory) {
+                    eventService.streamEventsForBoard(boardId, state != null ? state.seq() : -1, eventReplayChunkSize, sender);
+                }
+                if (sender.reset && since != null) {
+                    // Nothing left on the board, but the client still has to drop what it holds
+                    sender.accept(List.of());
+                }
             }
-            
+            sender.complete();
+            return sender.upTo;
+
+        } catch (ReplayAbortedException e) {
+            log.debug("[WS] Replay to session {} aborted: {}", context.sessionId(), e.getMessage());
+            outbound.closeNow(context.outbox(), SessionOutbox.RESYNC);
+            return Long.MAX_VALUE;
         } catch (Exception e) {
-            // Log error but don't fail connection
-            log.error("[WS] Error sending event replay: {}", e.getMessage());
+            // The client has part of the board at best; have it reconnect and replay again
+            log.error("[WS] Error sending event replay to session {}: {}", context.sessionId(), e.getMessage(), e);
+            outbound.closeNow(context.outbox(), SessionOutbox.RESYNC);
+            return Long.MAX_VALUE;
         }
     }
 
-    private String extractTokenFromQuery(String query) {
+    /**
+     * Sends one session's replay chunk by chunk. Before each chunk it waits until no more than
+     * {@code replay.max-queued-chunks} frames are queued for the session, so the database cursor is read
+     * only as fast as the client takes the board in, and the server holds a few chunks at most.
+     */
+    private final class ReplaySender implements Consumer<List<EventEnvelope>> {
+        private final SessionContext context;
+        private boolean reset;
+        private long upTo;
+
+        private ReplaySender(SessionContext context, long upTo, boolean reset) {
+            this.context = context;
+            this.upTo = upTo;
+            this.reset = reset;
+        }
+
+        @Override
+        public void accept(List<EventEnvelope> events) {
+            awaitOutboundRoom();
+            for (EventEnvelope event : events) {
+                if (event.getSeq() != null) {
+                    upTo = Math.max(upTo, event.getSeq());
+                }
+            }
+            try {
+                // Only the first chunk is flagged reset: the client drops what it has, then applies every chunk
+                send(frameEncoder.encodeReplayChunk(context.boardId().toString(), events, upTo, reset));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            reset = false;
+        }
+
+        private void accept(ReplayFrameCache.Replay replay) {
+            for (PreEncodedFrame frame : replay.frames()) {
+                awaitOutboundRoom();
+                send(frame);
+            }
+            reset = false;
+            upTo = replay.lastSeq();
+        }
+
+        private void complete() {
+            Map<String, Object> completeData = new HashMap<>();
+            completeData.put("lastSeq", upTo);
+            send("REPLAY_COMPLETE", completeData);
+        }
+
+        private void send(String type, Map<String, Object> data) {
+            EventEnvelope replayEvent = new EventEnvelope();
+            replayEvent.setType(type);
+            replayEvent.setBoardId(context.boardId().toString());
+            replayEvent.setData(data);
+            try {
+                send(frameEncoder.encode(replayEvent));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void send(PreEncodedFrame replayFrame) {
+            compressionSampler.sample(context.boardId(), replayFrame.json());
+            outbound.send(context.outbox(), replayFrame.asText());
+        }
+
+        private void awaitOutboundRoom() {
+            long deadline = System.nanoTime() + replayStallTimeoutMillis * 1_000_000L;
+            for (;;) {
+                if (context.isClosed()) {
+                    throw new ReplayAbortedException("session closed");
+                }
+                if (context.outbox().depth() <= replayMaxQueuedChunks) {
+                    return;
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new ReplayAbortedException("no progress for " + replayStallTimeoutMillis + " ms");
+                }
+                try {
+                    // Replays run on virtual threads, so a short sleep is cheap
+                    Thread.sleep(REPLAY_PACE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ReplayAbortedException("interrupted");
+                }
+            }
+        }
+    }
+
+    private static final class ReplayAbortedException extends RuntimeException {
+        private ReplayAbortedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * What a session that is still receiving its replay has missed of the board's live traffic.
+     * Only the board loop touches it.
+     */
+    private static final class CatchUp {
+        private final UUID userId;
+        private final List<HeldFrame> frames = new ArrayList<>();
+        private boolean overflowed;
+
+        private CatchUp(UUID userId) {
+            this.userId = userId;
+        }
+
+        private void hold(HeldFrame frame, int maxHeld) {
+            if (overflowed) {
+                return;
+            }
+            if (frames.size() == maxHeld) {
+                overflowed = true;
+                frames.clear();
+                return;
+            }
+            frames.add(frame);
+        }
+    }
+
+    private record HeldFrame(EventEnvelope event, boolean control) {
+    }
+
+    /**
+     * Members and cursors of one board. Only the board's loop mutates it.
+     */
+    private static final class BoardRoom {
+        private static final SessionContext[] NO_MEMBERS = new SessionContext[0];
+
+        // Copy-on-write: replaced on join and leave, never modified in place, so broadcasts iterate it directly
+        private volatile SessionContext[] members = NO_MEMBERS;
+        // Sessions whose replay is still being sent, with the live traffic they are due once they join
+        private final Map<SessionContext, CatchUp> catchingUp = new HashMap<>();
+        private final Map<UUID, CursorPosition> cursors = new HashMap<>();
+        private final List<CursorUpdateEvent> pendingPresence = new ArrayList<>();
+        private long cursorFrames;
+
+        private void add(SessionContext context) {
+            SessionContext[] current = members;
+            SessionContext[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = context;
+            members = next;
+        }
+
+        private boolean remove(SessionContext context) {
+            SessionContext[] current = members;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == context) {
+                    SessionContext[] next = new SessionContext[current.length - 1];
+                    System.arraycopy(current, 0, next, 0, i);
+                    System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                    members = next;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean hasCursorOwner(UUID userId) {
+            for (SessionContext member : members) {
+                if (!member.readOnly() && member.userId().equals(userId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isEmpty() {
+            return members.length == 0 && catchingUp.isEmpty();
+        }
+
+        private void holdForCatchUp(EventEnvelope event, boolean control, UUID onlyUser, int maxHeld) {
+            if (catchingUp.isEmpty()) {
+                return;
+            }
+            HeldFrame frame = new HeldFrame(event, control);
+            for (CatchUp catchUp : catchingUp.values()) {
+                if (onlyUser == null || onlyUser.equals(catchUp.userId)) {
+                    catchUp.hold(frame, maxHeld);
+                }
+            }
+        }
+    }
+
+    private Long extractSinceFromQuery(String query) {
         if (query == null || query.isEmpty()) {
             return null;
         }
         
-        String[] params = query.split("&");
-        for (String param : params) {
-            if (param.startsWith("token=")) {
-                return param.substring(6);
+        for (String param : query.split("&")) {
+            if (param.startsWith("since=")) {
+                try {
+                    long since = Long.parseLong(param.substring(6));
+                    return since >= 0 ? since : null;
+                } catch (NumberFormatException e) {
+                    return null;
+                }
             }
         }
         return null;
     }
 
     public int getActiveSessionsCount() {
-        return sessions.size();
+        return activeSessions.get();
     }
 }
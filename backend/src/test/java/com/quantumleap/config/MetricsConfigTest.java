@@ -0,0 +1,40 @@
+package com.quantumleap.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsConfigTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        registry.config().meterFilter(MetricsConfig.boardTagLimitFilter(2));
+    }
+
+    @Test
+    void testBoardTagLimit_OverflowBoardsShareOneSeries() {
+        registry.counter("quantumleap.ws.board.events", "board", "a").increment();
+        registry.counter("quantumleap.ws.board.events", "board", "b").increment();
+        registry.counter("quantumleap.ws.board.events", "board", "c").increment();
+        registry.counter("quantumleap.ws.board.events", "board", "d").increment();
+        registry.counter("quantumleap.ws.board.events", "board", "a").increment();
+
+        assertEquals(2.0, registry.get("quantumleap.ws.board.events").tag("board", "a").counter().count());
+        assertEquals(1.0, registry.get("quantumleap.ws.board.events").tag("board", "b").counter().count());
+        assertEquals(2.0, registry.get("quantumleap.ws.board.events").tag("board", MetricsConfig.OVERFLOW_BOARD).counter().count());
+        assertEquals(3, registry.find("quantumleap.ws.board.events").counters().size());
+    }
+
+    @Test
+    void testBoardTagLimit_OnlyApplicationMetersAreCapped() {
+        registry.counter("quantumleap.ws.board.events", "board", "a").increment();
+        registry.counter("quantumleap.ws.board.events", "board", "b").increment();
+        registry.counter("jvm.something", "board", "c").increment();
+
+        assertEquals(1.0, registry.get("jvm.something").tag("board", "c").counter().count());
+    }
+}
@@ -0,0 +1,90 @@
+package com.quantumleap.service;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardStateTest {
+    private final BoardState state = new BoardState();
+
+    private static EventEnvelope event(long seq, String id, String type, Map<String, Object> data) {
+        EventEnvelope event = new EventEnvelope(id, "board", "user", type, OffsetDateTime.now(), data);
+        event.setSeq(seq);
+        return event;
+    }
+
+    @Test
+    void testApply_CreationsKeptInDrawingOrder() {
+        state.apply(event(1, "a", "SHAPE_ADDED", Map.of("x", 1, "y", 2)));
+        state.apply(event(2, "b", "LINE_DRAWN", Map.of("points", List.of(0, 0, 5, 5))));
+        state.apply(event(3, "c", "TEXT_ADDED", Map.of("text", "hi")));
+
+        assertEquals(3, state.size());
+        assertEquals(3, state.seq());
+        assertEquals(List.of("a", "b", "c"), state.shapes().stream().map(EventEnvelope::getId).toList());
+    }
+
+    @Test
+    void testApply_MoveFoldedIntoCreation() {
+        EventEnvelope created = event(1, "a", "SHAPE_ADDED", Map.of("kind", "rect", "x", 1, "y", 2));
+        state.apply(created);
+        state.apply(event(2, "m", "SHAPE_MOVED", Map.of("id", "a", "x", 10, "y", 20)));
+
+        EventEnvelope shape = state.shapes().get(0);
+        assertEquals("a", shape.getId());
+        assertEquals("SHAPE_ADDED", shape.getType());
+        assertEquals(1L, shape.getSeq());
+        assertEquals(Map.of("kind", "rect", "x", 10, "y", 20), shape.getData());
+        assertEquals(2, state.seq());
+        // The original creation event is left alone
+        assertEquals(Map.of("kind", "rect", "x", 1, "y", 2), created.getData());
+    }
+
+    @Test
+    void testApply_StyleUpdateMerged() {
+        state.apply(event(1, "a", "SHAPE_ADDED", Map.of("style", Map.of("fill", "red", "stroke", "black"))));
+        state.apply(event(2, "u", "SHAPE_UPDATED", Map.of("id", "a", "style", Map.of("fill", "blue"))));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> data = (Map<String, Object>) state.shapes().get(0).getData();
+        assertEquals(Map.of("fill", "blue", "stroke", "black"), data.get("style"));
+    }
+
+    @Test
+    void testApply_DeleteAndClearRemoveShapes() {
+        state.apply(event(1, "a", "SHAPE_ADDED", Map.of()));
+        state.apply(event(2, "b", "SHAPE_ADDED", Map.of()));
+        state.apply(event(3, "d", "SHAPE_DELETED", Map.of("id", "a")));
+
+        assertFalse(state.contains("a"));
+        assertTrue(state.contains("b"));
+
+        state.apply(event(4, "c", "CLEAR_CANVAS", Map.of()));
+        assertEquals(0, state.size());
+        assertEquals(4, state.seq());
+    }
+
+    @Test
+    void testApply_EditsOfUnknownShapesIgnored() {
+        state.apply(event(1, "m", "SHAPE_MOVED", Map.of("id", "missing", "x", 1, "y", 1)));
+        state.apply(event(2, "d", "SHAPE_DELETED", Map.of("id", "missing")));
+
+        assertEquals(0, state.size());
+        assertEquals(2, state.seq());
+    }
+
+    @Test
+    void testConstructor_RestoresSnapshot() {
+        BoardState restored = new BoardState(7, List.of(event(1, "a", "SHAPE_ADDED", Map.of())));
+
+        assertEquals(7, restored.seq());
+        assertTrue(restored.contains("a"));
+        restored.apply(event(8, "d", "SHAPE_DELETED", Map.of("id", "a")));
+        assertEquals(0, restored.size());
+    }
+}
@@ -0,0 +1,125 @@
+package com.quantumleap.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quantumleap.dto.ws.EventEnvelope;
+import com.quantumleap.service.BoardSnapshotService;
+import com.quantumleap.service.BoardState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs against a real Postgres with just the columns compaction reads and writes.
+ */
+@Testcontainers
+class EventLogCompactorIT {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UUID userId = UUID.randomUUID();
+    private JdbcTemplate jdbcTemplate;
+    private EventLogCompactor compactor;
+    private UUID boardId;
+    private BoardState state;
+
+    @BeforeEach
+    void setUp() {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(postgres.getJdbcUrl());
+        dataSource.setUser(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS events");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS whiteboards");
+        jdbcTemplate.execute("CREATE TABLE events (id uuid PRIMARY KEY, whiteboard_id uuid NOT NULL, user_id uuid NOT NULL, "
+                + "event_type varchar(255) NOT NULL, payload text NOT NULL, ts timestamp(6) with time zone NOT NULL, "
+                + "seq bigint NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE whiteboards (id uuid PRIMARY KEY, last_seq bigint NOT NULL DEFAULT 0, "
+                + "cleared_seq bigint NOT NULL DEFAULT 0, compacted_seq bigint NOT NULL DEFAULT 0)");
+        compactor = new EventLogCompactor(dataSource, new DataSourceTransactionManager(dataSource),
+                mock(BoardSnapshotService.class), objectMapper, new SimpleMeterRegistry(), false, 300, 1, 10, 0);
+
+        boardId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO whiteboards (id) VALUES (?)", boardId);
+        state = new BoardState();
+    }
+
+    @AfterEach
+    void tearDown() {
+        compactor.shutdown();
+    }
+
+    private String append(long seq, String type, Map<String, Object> data) throws Exception {
+        String id = UUID.randomUUID().toString();
+        EventEnvelope event = new EventEnvelope(id, boardId.toString(), userId.toString(), type, OffsetDateTime.now(), data);
+        event.setSeq(seq);
+        jdbcTemplate.update(WriteBehindEventWriter.INSERT_EVENT, UUID.fromString(id), boardId, userId, type,
+                objectMapper.writeValueAsString(data), event.getTs(), seq);
+        jdbcTemplate.update("UPDATE whiteboards SET last_seq = ? WHERE id = ?", seq, boardId);
+        state.apply(event);
+        return id;
+    }
+
+    private List<String> types() {
+        return jdbcTemplate.queryForList("SELECT event_type FROM events WHERE whiteboard_id = ? ORDER BY seq", String.class, boardId);
+    }
+
+    @Test
+    void testCompact_FoldsEditsAndDropsDeletedShapes() throws Exception {
+        String kept = append(1, "SHAPE_ADDED", Map.of("kind", "rect", "x", 1, "y", 1));
+        String deleted = append(2, "SHAPE_ADDED", Map.of("kind", "circle", "x", 2, "y", 2));
+        append(3, "SHAPE_MOVED", Map.of("id", kept, "x", 5, "y", 6));
+        append(4, "SHAPE_DELETED", Map.of("id", deleted));
+        BoardState snapshot = new BoardState(state.seq(), state.shapes());
+        // Appended after the snapshot was taken
+        append(5, "SHAPE_MOVED", Map.of("id", kept, "x", 9, "y", 9));
+
+        Optional<EventLogCompactor.Reclaimed> reclaimed = compactor.compact(boardId, snapshot);
+
+        assertTrue(reclaimed.isPresent());
+        assertEquals(3, reclaimed.get().rows());
+        assertTrue(reclaimed.get().bytes() > 0);
+        assertEquals(List.of("SHAPE_ADDED", "SHAPE_MOVED"), types());
+        String payload = jdbcTemplate.queryForObject("SELECT payload FROM events WHERE id = ?", String.class, UUID.fromString(kept));
+        assertEquals(Map.of("kind", "rect", "x", 5, "y", 6), objectMapper.readValue(payload, Map.class));
+        assertEquals(4L, jdbcTemplate.queryForObject("SELECT compacted_seq FROM whiteboards WHERE id = ?", Long.class, boardId));
+    }
+
+    @Test
+    void testCompact_SkipsBoardClearedAfterSnapshot() throws Exception {
+        String shape = append(1, "SHAPE_ADDED", Map.of("x", 1, "y", 1));
+        append(2, "SHAPE_MOVED", Map.of("id", shape, "x", 2, "y", 2));
+        jdbcTemplate.update("UPDATE whiteboards SET cleared_seq = 3 WHERE id = ?", boardId);
+
+        assertTrue(compactor.compact(boardId, state).isEmpty());
+        assertEquals(List.of("SHAPE_ADDED", "SHAPE_MOVED"), types());
+    }
+
+    @Test
+    void testCompact_AlreadyCompactedIsRolledBack() throws Exception {
+        String shape = append(1, "SHAPE_ADDED", Map.of("x", 1, "y", 1));
+        append(2, "SHAPE_MOVED", Map.of("id", shape, "x", 2, "y", 2));
+
+        assertTrue(compactor.compact(boardId, state).isPresent());
+        assertTrue(compactor.compact(boardId, state).isEmpty());
+        assertEquals(List.of("SHAPE_ADDED"), types());
+    }
+}
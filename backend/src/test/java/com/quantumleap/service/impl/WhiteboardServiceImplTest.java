@@ -8,12 +8,15 @@ import com.quantumleap.repository.WhiteboardRepository;
 import com.quantumleap.repository.WhiteboardMemberRepository;
 import com.quantumleap.repository.UserRepository;
 import com.quantumleap.repository.EventRepository;
+import com.quantumleap.repository.BoardSnapshotRepository;
+import com.quantumleap.service.WhiteboardWriteModeChanged;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.OffsetDateTime;
 import java.util.Optional;
@@ -32,6 +35,10 @@ class WhiteboardServiceImplTest {
     private UserRepository userRepository;
     @Mock
     private EventRepository eventRepository;
+    @Mock
+    private BoardSnapshotRepository boardSnapshotRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private WhiteboardServiceImpl whiteboardService;
@@ -71,4 +78,46 @@ class WhiteboardServiceImplTest {
         verify(whiteboardRepository, times(1)).save(any(Whiteboard.class));
         verify(whiteboardMemberRepository, times(1)).save(any(WhiteboardMember.class));
     }
+
+    @Test
+    void testUpdateWriteMode_OwnerPublishesChange() {
+        UUID userId = UUID.randomUUID();
+        User user = new User();
+        user.setId(userId);
+        user.setName("testuser");
+
+        Whiteboard whiteboard = new Whiteboard();
+        whiteboard.setId(UUID.randomUUID());
+        whiteboard.setName("Test Board");
+        whiteboard.setOwner(user);
+        whiteboard.setCreatedAt(OffsetDateTime.now());
+
+        WhiteboardMember membership = new WhiteboardMember();
+        membership.setOwner(true);
+
+        when(whiteboardRepository.findById(whiteboard.getId())).thenReturn(Optional.of(whiteboard));
+        when(whiteboardMemberRepository.findByWhiteboardIdAndUserId(whiteboard.getId(), userId)).thenReturn(Optional.of(membership));
+        when(whiteboardRepository.save(any(Whiteboard.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        WhiteboardResponse response = whiteboardService.updateWriteMode(whiteboard.getId(), userId, true);
+
+        assertTrue(response.isOptimisticWrites());
+        assertTrue(whiteboard.isOptimisticWrites());
+        verify(eventPublisher).publishEvent(new WhiteboardWriteModeChanged(whiteboard.getId(), true));
+    }
+
+    @Test
+    void testUpdateWriteMode_NonOwnerDenied() {
+        UUID boardId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        Whiteboard whiteboard = new Whiteboard();
+        whiteboard.setId(boardId);
+
+        when(whiteboardRepository.findById(boardId)).thenReturn(Optional.of(whiteboard));
+        when(whiteboardMemberRepository.findByWhiteboardIdAndUserId(boardId, userId)).thenReturn(Optional.of(new WhiteboardMember()));
+
+        assertThrows(RuntimeException.class, () -> whiteboardService.updateWriteMode(boardId, userId, true));
+        verify(whiteboardRepository, never()).save(any(Whiteboard.class));
+        verifyNoInteractions(eventPublisher);
+    }
 }
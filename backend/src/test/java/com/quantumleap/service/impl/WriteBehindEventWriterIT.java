@@ -0,0 +1,185 @@
+package com.quantumleap.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a real Postgres; the {@code events} table here has no foreign keys so the
+ * tests exercise the write path only. {@code whiteboards} has just the sequence columns.
+ */
+@Testcontainers
+class WriteBehindEventWriterIT {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static final int LANE_EVENTS = 1_000;
+    private static final int LANE_BOARDS = 20;
+
+    private PGSimpleDataSource dataSource;
+    private DataSourceTransactionManager transactionManager;
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private WriteBehindEventWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(postgres.getJdbcUrl());
+        dataSource.setUser(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+        dataSource.setReWriteBatchedInserts(true);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS events");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS whiteboards");
+        jdbcTemplate.execute("CREATE TABLE events (id uuid PRIMARY KEY, whiteboard_id uuid NOT NULL, user_id uuid NOT NULL, "
+                + "event_type varchar(255) NOT NULL, payload text NOT NULL, ts timestamp(6) with time zone NOT NULL, "
+                + "seq bigint NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE whiteboards (id uuid PRIMARY KEY, last_seq bigint NOT NULL DEFAULT 0, "
+                + "cleared_seq bigint NOT NULL DEFAULT 0)");
+        meterRegistry = new SimpleMeterRegistry();
+        writer = new WriteBehindEventWriter(dataSource, transactionManager, meterRegistry, 8192, 256, 5, 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writer.shutdown();
+    }
+
+    private UUID board() {
+        UUID boardId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO whiteboards (id) VALUES (?)", boardId);
+        return boardId;
+    }
+
+    private long count(UUID boardId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM events WHERE whiteboard_id = ?", Long.class, boardId);
+    }
+
+    @Test
+    void testAppend_CompletesAfterCommit() throws Exception {
+        UUID boardId = board();
+
+        CompletableFuture<Long> done = writer.append(UUID.randomUUID(), boardId, UUID.randomUUID(), "LINE_DRAWN", "{}", OffsetDateTime.now());
+
+        done.get(5, TimeUnit.SECONDS);
+        assertEquals(1, count(boardId));
+    }
+
+    @Test
+    void testClearBoard_AppliesAfterEarlierAppendsOnly() throws Exception {
+        UUID boardId = board();
+        UUID userId = UUID.randomUUID();
+        for (int i = 0; i < 10; i++) {
+            writer.append(UUID.randomUUID(), boardId, userId, "LINE_DRAWN", "{}", OffsetDateTime.now());
+        }
+        CompletableFuture<Long> clear = writer.clearBoard(boardId);
+        CompletableFuture<Long> after = writer.append(UUID.randomUUID(), boardId, userId, "LINE_DRAWN", "{}", OffsetDateTime.now());
+
+        assertEquals(12L, after.get(5, TimeUnit.SECONDS));
+        assertEquals(11L, clear.get(5, TimeUnit.SECONDS));
+        assertEquals(1, count(boardId));
+        assertEquals(11L, jdbcTemplate.queryForObject("SELECT cleared_seq FROM whiteboards WHERE id = ?", Long.class, boardId));
+    }
+
+    @Test
+    void testAppend_SequenceIsGapFreePerBoard() throws Exception {
+        UUID first = board();
+        UUID second = board();
+        UUID userId = UUID.randomUUID();
+        List<CompletableFuture<Long>> firstSeqs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            firstSeqs.add(writer.append(UUID.randomUUID(), first, userId, "LINE_DRAWN", "{}", OffsetDateTime.now()));
+            writer.append(UUID.randomUUID(), second, userId, "LINE_DRAWN", "{}", OffsetDateTime.now());
+        }
+        UUID duplicate = UUID.randomUUID();
+        writer.append(duplicate, first, userId, "LINE_DRAWN", "{}", OffsetDateTime.now()).get(5, TimeUnit.SECONDS);
+        CompletableFuture<Long> bad = writer.append(duplicate, first, userId, "LINE_DRAWN", "{}", OffsetDateTime.now());
+        CompletableFuture<Long> next = writer.append(UUID.randomUUID(), first, userId, "LINE_DRAWN", "{}", OffsetDateTime.now());
+
+        for (int i = 0; i < firstSeqs.size(); i++) {
+            assertEquals(i + 1L, firstSeqs.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertThrows(Exception.class, () -> bad.get(5, TimeUnit.SECONDS));
+        // The failed insert gave its number back
+        assertEquals(22L, next.get(5, TimeUnit.SECONDS));
+        assertEquals(20L, jdbcTemplate.queryForObject("SELECT max(seq) FROM events WHERE whiteboard_id = ?", Long.class, second));
+    }
+
+    @Test
+    void testFlush_BadRowFailsAloneWhenBatchIsRetried() throws Exception {
+        UUID boardId = board();
+        UUID duplicate = UUID.randomUUID();
+        writer.append(duplicate, boardId, UUID.randomUUID(), "LINE_DRAWN", "{}", OffsetDateTime.now()).get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Long> good = writer.append(UUID.randomUUID(), boardId, UUID.randomUUID(), "LINE_DRAWN", "{}", OffsetDateTime.now());
+        CompletableFuture<Long> bad = writer.append(duplicate, boardId, UUID.randomUUID(), "LINE_DRAWN", "{}", OffsetDateTime.now());
+
+        good.get(5, TimeUnit.SECONDS);
+        assertThrows(Exception.class, () -> bad.get(5, TimeUnit.SECONDS));
+        assertEquals(2, count(boardId));
+    }
+
+    /**
+     * Concurrent board lanes share group commits: far fewer transactions than events.
+     */
+    @Test
+    void testAppend_ConcurrentLanesShareCommits() throws Exception {
+        List<UUID> boards = new ArrayList<>();
+        for (int i = 0; i < LANE_BOARDS; i++) {
+            boards.add(board());
+        }
+        UUID userId = UUID.randomUUID();
+        String payload = "{\"points\":[10.5,20.25,30.75,40.0,55.5,60.25],\"color\":\"#000000\",\"strokeWidth\":2}";
+
+        appendFromLanes(boards, (boardId) ->
+                writer.append(UUID.randomUUID(), boardId, userId, "LINE_DRAWN", payload, OffsetDateTime.now()));
+
+        assertEquals((long) LANE_EVENTS, jdbcTemplate.queryForObject("SELECT count(*) FROM events", Long.class));
+        long commits = meterRegistry.summary("quantumleap.persist.batch.size").count();
+        assertTrue(commits * 4 <= LANE_EVENTS, "expected group commits, got " + commits + " for " + LANE_EVENTS + " events");
+    }
+
+    private void appendFromLanes(List<UUID> boards, Append append) throws Exception {
+        int perBoard = LANE_EVENTS / boards.size();
+        try (ExecutorService lanes = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<?>> done = new ArrayList<>();
+            for (UUID boardId : boards) {
+                done.add(CompletableFuture.runAsync(() -> {
+                    // Like an ingestion lane: one board's writes are issued in order, acks are awaited at the end
+                    List<CompletableFuture<?>> acks = new ArrayList<>(perBoard);
+                    for (int i = 0; i < perBoard; i++) {
+                        acks.add(append.apply(boardId));
+                    }
+                    CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).join();
+                }, lanes));
+            }
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Append {
+        CompletableFuture<?> apply(UUID boardId);
+    }
+}
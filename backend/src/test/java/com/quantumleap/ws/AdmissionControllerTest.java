@@ -0,0 +1,58 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest {
+
+    private AdmissionController controller(int perBoard, int readOnly, int perNode, int perUser) {
+        return new AdmissionController(new SimpleMeterRegistry(), perBoard, readOnly, perNode, perUser, 5);
+    }
+
+    @Test
+    void testAdmit_FullBoardFallsBackToReadOnlyThenRejects() {
+        AdmissionController admission = controller(1, 1, 100, 100);
+        UUID boardId = UUID.randomUUID();
+
+        assertEquals(AdmissionController.Mode.FULL, admission.admit(boardId, UUID.randomUUID()).ticket().mode());
+        assertEquals(AdmissionController.Mode.READ_ONLY, admission.admit(boardId, UUID.randomUUID()).ticket().mode());
+
+        AdmissionController.Admission rejected = admission.admit(boardId, UUID.randomUUID());
+        assertFalse(rejected.admitted());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.rejection().status());
+        assertTrue(rejected.rejection().retryAfterSeconds() >= 5 && rejected.rejection().retryAfterSeconds() <= 10);
+    }
+
+    @Test
+    void testAdmit_PerUserCap() {
+        AdmissionController admission = controller(100, 0, 100, 2);
+        UUID userId = UUID.randomUUID();
+
+        assertTrue(admission.admit(UUID.randomUUID(), userId).admitted());
+        AdmissionController.Ticket second = admission.admit(UUID.randomUUID(), userId).ticket();
+        assertNotNull(second);
+
+        AdmissionController.Admission third = admission.admit(UUID.randomUUID(), userId);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, third.rejection().status());
+
+        admission.release(second);
+        assertTrue(admission.admit(UUID.randomUUID(), userId).admitted());
+    }
+
+    @Test
+    void testRelease_FreesBoardAndNodeSlots() {
+        AdmissionController admission = controller(1, 0, 1, 100);
+        UUID boardId = UUID.randomUUID();
+
+        AdmissionController.Ticket ticket = admission.admit(boardId, UUID.randomUUID()).ticket();
+        assertFalse(admission.admit(UUID.randomUUID(), UUID.randomUUID()).admitted());
+
+        admission.release(ticket);
+        assertEquals(AdmissionController.Mode.FULL, admission.admit(boardId, UUID.randomUUID()).ticket().mode());
+    }
+}
@@ -0,0 +1,86 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFrameCodecTest {
+
+    @Test
+    void testDecode_CursorMove() {
+        EventEnvelope envelope = BinaryFrameCodec.decode(ByteBuffer.wrap(BinaryFrameCodec.encodeCursorMove(12.5, -3.0)));
+
+        assertEquals("CURSOR_MOVE", envelope.getType());
+        Map<?, ?> data = (Map<?, ?>) envelope.getData();
+        assertEquals(12.5, data.get("x"));
+        assertEquals(-3.0, data.get("y"));
+    }
+
+    @Test
+    void testDecode_LineDrawnRoundTripsPoints() {
+        List<Double> points = List.of(10.0, 20.5, 11.25, -19.0, 640.0, 480.0);
+        byte[] frame = BinaryFrameCodec.encodeLineDrawn("temp-1", "#ff0000", 2.0, points);
+
+        EventEnvelope envelope = BinaryFrameCodec.decode(ByteBuffer.wrap(frame));
+
+        assertEquals("LINE_DRAWN", envelope.getType());
+        assertEquals("temp-1", envelope.getTempId());
+        Map<?, ?> data = (Map<?, ?>) envelope.getData();
+        assertEquals("#ff0000", data.get("color"));
+        assertEquals(2.0, data.get("strokeWidth"));
+        assertEquals(points, data.get("points"));
+    }
+
+    @Test
+    void testEncodeAppend_JsonEventConvertsToBinary() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("points", List.of(1, 2, 3, 4));
+        data.put("color", "#000000");
+        data.put("strokeWidth", 3);
+        EventEnvelope event = new EventEnvelope(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                UUID.randomUUID().toString(), "LINE_DRAWN", OffsetDateTime.now(), data, "temp-2");
+        event.setSeq(42L);
+
+        byte[] frame = BinaryFrameCodec.encodeAppend(event);
+        assertNotNull(frame);
+
+        EventEnvelope decoded = BinaryFrameCodec.decodeAppend(ByteBuffer.wrap(frame));
+        assertEquals(event.getId(), decoded.getId());
+        assertEquals(event.getUserId(), decoded.getUserId());
+        assertEquals("temp-2", decoded.getTempId());
+        assertEquals(42L, decoded.getSeq());
+        assertEquals(List.of(1.0, 2.0, 3.0, 4.0), ((Map<?, ?>) decoded.getData()).get("points"));
+    }
+
+    @Test
+    void testEncodeAppend_FallsBackToJsonForOtherEvents() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("points", List.of(1, 2));
+        data.put("color", "#000000");
+        data.put("strokeWidth", 3);
+        data.put("dashed", true);
+        EventEnvelope extraField = new EventEnvelope(UUID.randomUUID().toString(), null,
+                UUID.randomUUID().toString(), "LINE_DRAWN", OffsetDateTime.now(), data);
+        EventEnvelope shape = new EventEnvelope(UUID.randomUUID().toString(), null,
+                UUID.randomUUID().toString(), "SHAPE_ADDED", OffsetDateTime.now(), Map.of("x", 1));
+
+        assertNull(BinaryFrameCodec.encodeAppend(extraField));
+        assertNull(BinaryFrameCodec.encodeAppend(shape));
+    }
+
+    @Test
+    void testDecode_RejectsTruncatedFrame() {
+        byte[] frame = BinaryFrameCodec.encodeLineDrawn("temp-3", "#00ff00", 1.0, List.of(1.0, 2.0));
+        byte[] truncated = java.util.Arrays.copyOf(frame, frame.length - 3);
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryFrameCodec.decode(ByteBuffer.wrap(truncated)));
+    }
+}
@@ -0,0 +1,105 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardLoopGroupTest {
+    private final BoardLoopGroup loops = new BoardLoopGroup(new SimpleMeterRegistry(), 4, 8, 60_000, 0.25, 600_000);
+
+    @AfterEach
+    void tearDown() {
+        loops.shutdown();
+    }
+
+    @Test
+    void testExecute_RunsBoardTasksInOrderOnOneThread() throws Exception {
+        UUID boardId = UUID.randomUUID();
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(1);
+
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            loops.execute(boardId, () -> {
+                seen.add(n);
+                threads.add(Thread.currentThread().getName());
+            });
+        }
+        loops.execute(boardId, done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, seen.get(i));
+        }
+        assertEquals(Set.of("board-loop-" + loops.loopFor(boardId)), threads);
+    }
+
+    @Test
+    void testExecute_FailingTaskDoesNotStopBoard() throws Exception {
+        UUID boardId = UUID.randomUUID();
+        CountDownLatch done = new CountDownLatch(1);
+
+        loops.execute(boardId, () -> {
+            throw new IllegalStateException("boom");
+        });
+        loops.execute(boardId, done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testExecute_ErrorInTaskKeepsLoopAlive() throws Exception {
+        UUID boardId = UUID.randomUUID();
+        // Another board on the same loop thread
+        UUID neighbour = UUID.randomUUID();
+        while (loops.loopFor(neighbour) != loops.loopFor(boardId)) {
+            neighbour = UUID.randomUUID();
+        }
+        CountDownLatch done = new CountDownLatch(2);
+
+        loops.execute(boardId, () -> {
+            throw new AssertionError("boom");
+        });
+        loops.execute(boardId, done::countDown);
+        loops.execute(neighbour, done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testPin_SurvivesDrainedMailbox() throws Exception {
+        UUID boardId = UUID.randomUUID();
+        int pinned = (loops.loopFor(boardId) + 1) % 4;
+        loops.pin(boardId, pinned);
+        CountDownLatch first = new CountDownLatch(1);
+        loops.execute(boardId, first::countDown);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        // Let the drained actor retire
+        Thread.sleep(50);
+
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch second = new CountDownLatch(1);
+        loops.execute(boardId, () -> {
+            threads.add(Thread.currentThread().getName());
+            second.countDown();
+        });
+
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        assertEquals(Set.of("board-loop-" + pinned), threads);
+        loops.unpin(boardId);
+        Thread.sleep(50);
+        assertNotEquals(pinned, loops.loopFor(boardId));
+    }
+}
@@ -0,0 +1,144 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import com.quantumleap.entity.Whiteboard;
+import com.quantumleap.service.BoardSnapshotService;
+import com.quantumleap.service.BoardState;
+import com.quantumleap.service.EventService;
+import com.quantumleap.service.WhiteboardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BoardStateCacheTest {
+    @Mock
+    private BoardSnapshotService boardSnapshots;
+    @Mock
+    private EventService eventService;
+    @Mock
+    private WhiteboardService whiteboardService;
+
+    private BoardStateCache cache;
+    private final UUID boardId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cache = new BoardStateCache(boardSnapshots, eventService, whiteboardService, new SimpleMeterRegistry(),
+                true, 1_000_000, 900, 200);
+        when(boardSnapshots.getLatestSnapshot(any())).thenReturn(Optional.empty());
+        when(whiteboardService.getWhiteboardById(any())).thenReturn(Whiteboard.builder().build());
+    }
+
+    private static EventEnvelope event(Long seq, String id, String type, Map<String, Object> data) {
+        EventEnvelope event = new EventEnvelope(id, "board", "user", type, OffsetDateTime.now(), data);
+        event.setSeq(seq);
+        return event;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void history(EventEnvelope... events) {
+        doAnswer(invocation -> {
+            ((Consumer<List<EventEnvelope>>) invocation.getArgument(3)).accept(List.of(events));
+            return null;
+        }).when(eventService).streamEventsForBoard(any(), anyLong(), anyInt(), any());
+    }
+
+    @Test
+    void testGet_LoadsOnceThenServesFromMemory() {
+        history(event(1L, "a", "SHAPE_ADDED", Map.of()), event(2L, "b", "SHAPE_ADDED", Map.of()));
+
+        BoardState first = cache.get(boardId).orElseThrow();
+        BoardState second = cache.get(boardId).orElseThrow();
+
+        assertEquals(2, first.size());
+        assertEquals(2, second.seq());
+        verify(eventService, times(1)).streamEventsForBoard(eq(boardId), eq(-1L), anyInt(), any());
+    }
+
+    @Test
+    void testRecord_AppliesCommittedAndAcknowledgedEvents() {
+        history(event(1L, "a", "SHAPE_ADDED", Map.of()));
+        cache.get(boardId);
+
+        cache.record(boardId, event(2L, "d", "SHAPE_DELETED", Map.of("id", "a")));
+        cache.record(boardId, event(null, "b", "SHAPE_ADDED", Map.of()));
+        assertFalse(cache.get(boardId).orElseThrow().contains("b"));
+
+        cache.acknowledge(boardId, "b", 3);
+        BoardState state = cache.get(boardId).orElseThrow();
+        assertFalse(state.contains("a"));
+        assertTrue(state.contains("b"));
+        assertEquals(3, state.seq());
+    }
+
+    @Test
+    void testRecord_GapDropsBoardForReload() {
+        history(event(1L, "a", "SHAPE_ADDED", Map.of()));
+        cache.get(boardId);
+
+        cache.record(boardId, event(5L, "b", "SHAPE_ADDED", Map.of()));
+        cache.get(boardId);
+
+        verify(eventService, times(2)).streamEventsForBoard(any(), anyLong(), anyInt(), any());
+    }
+
+    @Test
+    void testAdmits_EditsNeedShapeOnBoard() {
+        history(event(1L, "a", "SHAPE_ADDED", Map.of()));
+        cache.get(boardId);
+        cache.record(boardId, event(null, "pending", "SHAPE_ADDED", Map.of()));
+
+        assertTrue(cache.admits(boardId, event(null, "m", "SHAPE_MOVED", Map.of("id", "a", "x", 1, "y", 1))));
+        assertTrue(cache.admits(boardId, event(null, "m", "SHAPE_DELETED", Map.of("id", "pending"))));
+        assertFalse(cache.admits(boardId, event(null, "m", "SHAPE_DELETED", Map.of("id", "gone"))));
+        assertTrue(cache.admits(boardId, event(null, "n", "SHAPE_ADDED", Map.of())));
+    }
+
+    @Test
+    void testAdmits_ClientEditsOfShapeOnBoardAdmitted() {
+        history(event(1L, "a", "SHAPE_ADDED", Map.of("kind", "rect", "x", 0, "y", 0, "style", Map.of("stroke", "#000"))));
+        cache.get(boardId);
+        // As the client sends them: a fresh event ID, the shape in data.id
+        EventEnvelope move = event(null, UUID.randomUUID().toString(), "SHAPE_MOVED", Map.of("id", "a", "x", 5, "y", 6));
+        EventEnvelope restyle = event(null, UUID.randomUUID().toString(), "SHAPE_UPDATED", Map.of("id", "a", "style", Map.of("stroke", "#f00")));
+
+        assertTrue(cache.admits(boardId, move));
+        assertTrue(cache.admits(boardId, restyle));
+        assertFalse(cache.admits(boardId, event(null, "a", "SHAPE_MOVED", Map.of("x", 5, "y", 6))));
+    }
+
+    @Test
+    void testAdmits_UnknownBoardAdmitsEverything() {
+        assertTrue(cache.admits(boardId, event(null, "m", "SHAPE_DELETED", Map.of("id", "gone"))));
+        verifyNoInteractions(eventService);
+    }
+
+    @Test
+    void testBudget_LeastRecentlyUsedBoardDropped() {
+        cache = new BoardStateCache(boardSnapshots, eventService, whiteboardService, new SimpleMeterRegistry(),
+                true, 600, 900, 200);
+        history(event(1L, "a", "SHAPE_ADDED", Map.of("text", "x".repeat(100))));
+        UUID other = UUID.randomUUID();
+
+        cache.get(boardId);
+        cache.get(other);
+        cache.get(boardId);
+
+        // The second board pushed the first out, so it was loaded again
+        verify(eventService, times(2)).streamEventsForBoard(eq(boardId), anyLong(), anyInt(), any());
+    }
+}
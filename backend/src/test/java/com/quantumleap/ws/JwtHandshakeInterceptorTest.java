@@ -0,0 +1,91 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.config.JwtTokenProvider;
+import com.quantumleap.service.WhiteboardService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtHandshakeInterceptorTest {
+    @Mock
+    private JwtTokenProvider jwtTokenProvider;
+    @Mock
+    private WhiteboardService whiteboardService;
+    @Mock
+    private Claims claims;
+
+    private JwtHandshakeInterceptor interceptor;
+    private final UUID boardId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+    private final MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        interceptor = new JwtHandshakeInterceptor(jwtTokenProvider, whiteboardService);
+        when(jwtTokenProvider.getUserId(claims)).thenReturn(userId);
+        when(jwtTokenProvider.getUsername(claims)).thenReturn("alice");
+    }
+
+    private boolean handshake(String query) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/v1/ws/whiteboard/" + boardId);
+        servletRequest.setQueryString(query);
+        return interceptor.beforeHandshake(new ServletServerHttpRequest(servletRequest),
+                new ServletServerHttpResponse(servletResponse), null, attributes);
+    }
+
+    @Test
+    void testBeforeHandshake_ValidTokenParsedOnceAndStored() {
+        when(jwtTokenProvider.parseClaims("good")).thenReturn(claims);
+        when(whiteboardService.hasAccessToWhiteboard(boardId, userId)).thenReturn(true);
+
+        assertTrue(handshake("token=good"));
+
+        JwtHandshakeInterceptor.Identity identity = (JwtHandshakeInterceptor.Identity) attributes.get(JwtHandshakeInterceptor.IDENTITY_ATTRIBUTE);
+        assertEquals(userId, identity.userId());
+        assertEquals("alice", identity.userName());
+        assertEquals(boardId, identity.boardId());
+        verify(jwtTokenProvider, times(1)).parseClaims("good");
+        verify(jwtTokenProvider, never()).validateToken(any());
+    }
+
+    @Test
+    void testBeforeHandshake_MissingTokenIsUnauthorized() {
+        assertFalse(handshake(null));
+        assertEquals(401, servletResponse.getStatus());
+        assertTrue(attributes.isEmpty());
+    }
+
+    @Test
+    void testBeforeHandshake_InvalidTokenIsUnauthorized() {
+        when(jwtTokenProvider.parseClaims("forged")).thenThrow(new JwtException("bad signature"));
+
+        assertFalse(handshake("token=forged"));
+        assertEquals(401, servletResponse.getStatus());
+        verifyNoInteractions(whiteboardService);
+    }
+
+    @Test
+    void testBeforeHandshake_NoBoardAccessIsForbidden() {
+        when(jwtTokenProvider.parseClaims("good")).thenReturn(claims);
+        when(whiteboardService.hasAccessToWhiteboard(boardId, userId)).thenReturn(false);
+
+        assertFalse(handshake("token=good"));
+        assertEquals(403, servletResponse.getStatus());
+    }
+}
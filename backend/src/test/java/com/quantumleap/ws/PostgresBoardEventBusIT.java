@@ -0,0 +1,182 @@
+package com.quantumleap.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quantumleap.dto.ws.EventEnvelope;
+import com.quantumleap.service.EventService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Testcontainers
+class PostgresBoardEventBusIT {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final EventService eventService = mock(EventService.class);
+    private final List<PostgresBoardEventBus> buses = new ArrayList<>();
+    private SimpleMeterRegistry registryA;
+    private PostgresBoardEventBus nodeA;
+    private PostgresBoardEventBus nodeB;
+    private final List<EventEnvelope> receivedA = new CopyOnWriteArrayList<>();
+    private final List<EventEnvelope> receivedB = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        registryA = new SimpleMeterRegistry();
+        nodeA = bus(registryA, 0);
+        nodeB = bus(new SimpleMeterRegistry(), 0);
+        nodeA.subscribe((boardId, event) -> receivedA.add(event));
+        nodeB.subscribe((boardId, event) -> receivedB.add(event));
+        await(() -> nodeA.isListening() && nodeB.isListening());
+    }
+
+    @AfterEach
+    void tearDown() {
+        buses.forEach(PostgresBoardEventBus::shutdown);
+    }
+
+    static BackplaneConnectionFactory connections(PostgreSQLContainer<?> postgres, NodeIdentity node) {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(postgres.getJdbcUrl());
+        properties.setUsername(postgres.getUsername());
+        properties.setPassword(postgres.getPassword());
+        return new BackplaneConnectionFactory(properties, node);
+    }
+
+    private PostgresBoardEventBus bus(SimpleMeterRegistry registry, long batchWindowMillis) {
+        NodeIdentity node = new NodeIdentity("");
+        PostgresBoardEventBus bus = new PostgresBoardEventBus(connections(postgres, node), node, objectMapper, eventService,
+                registry, "board_events_it", batchWindowMillis, PostgresBoardEventBus.MAX_NOTIFY_BYTES, 100);
+        buses.add(bus);
+        return bus;
+    }
+
+    private static EventEnvelope event(UUID boardId, int n, Object data) {
+        return new EventEnvelope(UUID.randomUUID().toString(), boardId.toString(), UUID.randomUUID().toString(),
+                "LINE_DRAWN", OffsetDateTime.now(), data, "temp-" + n);
+    }
+
+    static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10s");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    @Test
+    void testPublish_ReachesOtherNodeAndLocalSubscribersOnce() throws Exception {
+        UUID boardId = UUID.randomUUID();
+        EventEnvelope sent = event(boardId, 1, Map.of("color", "#000000"));
+
+        nodeA.publish(boardId, sent);
+
+        await(() -> receivedB.size() == 1);
+        EventEnvelope received = receivedB.get(0);
+        assertEquals(sent.getId(), received.getId());
+        assertEquals(sent.getTempId(), received.getTempId());
+        assertEquals("#000000", ((Map<?, ?>) received.getData()).get("color"));
+
+        // The local copy is delivered on publish; the echo coming back through Postgres is dropped
+        await(() -> registryA.counter("quantumleap.bus.echoes.dropped").count() == 1);
+        assertEquals(1, receivedA.size());
+        assertSame(sent, receivedA.get(0));
+    }
+
+    @Test
+    void testPublish_BurstIsBatchedAndKeepsOrder() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PostgresBoardEventBus batching = bus(registry, 20);
+        await(batching::isListening);
+        UUID boardId = UUID.randomUUID();
+
+        for (int i = 0; i < 100; i++) {
+            batching.publish(boardId, event(boardId, i, Map.of("n", i)));
+        }
+
+        await(() -> receivedB.size() == 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("temp-" + i, receivedB.get(i).getTempId());
+        }
+        double notifications = registry.counter("quantumleap.bus.notifications.sent").count();
+        assertTrue(notifications < 100, "expected batching, got " + notifications + " notifications");
+    }
+
+    @Test
+    void testPublish_OversizedEventTravelsByReference() {
+        UUID boardId = UUID.randomUUID();
+        EventEnvelope large = event(boardId, 1, Map.of("points", Collections.nCopies(4000, 123.45)));
+        large.setSeq(7L);
+        EventEnvelope stored = event(boardId, 1, Map.of("points", List.of()));
+        stored.setId(large.getId());
+        when(eventService.getEventById(UUID.fromString(large.getId()))).thenReturn(stored);
+
+        nodeA.publish(boardId, large);
+
+        await(() -> receivedB.size() == 1);
+        assertSame(stored, receivedB.get(0));
+        verify(eventService).getEventById(UUID.fromString(large.getId()));
+    }
+
+    @Test
+    void testPublish_OversizedOptimisticEventIsStagedNotLoaded() {
+        UUID boardId = UUID.randomUUID();
+        // Published before its persist commits, so it has no sequence number and is not in the event store
+        EventEnvelope large = event(boardId, 1, Map.of("points", Collections.nCopies(4000, 123.45)));
+
+        nodeA.publish(boardId, large);
+
+        await(() -> receivedB.size() == 1);
+        assertEquals(large.getId(), receivedB.get(0).getId());
+        assertEquals(4000, ((List<?>) ((Map<?, ?>) receivedB.get(0).getData()).get("points")).size());
+        verify(eventService, never()).getEventById(any());
+    }
+
+    @Test
+    void testForward_OnlyTargetNodeReceivesWriteIncludingStagedOnes() {
+        NodeIdentity ownerNode = new NodeIdentity("owner-node");
+        PostgresBoardEventBus owner = new PostgresBoardEventBus(connections(postgres, ownerNode), ownerNode, objectMapper,
+                eventService, new SimpleMeterRegistry(), "board_events_it", 0, PostgresBoardEventBus.MAX_NOTIFY_BYTES, 100);
+        buses.add(owner);
+        List<EventEnvelope> writes = new CopyOnWriteArrayList<>();
+        List<EventEnvelope> misrouted = new CopyOnWriteArrayList<>();
+        owner.onForwardedWrite((boardId, userId, write) -> writes.add(write));
+        nodeB.onForwardedWrite((boardId, userId, write) -> misrouted.add(write));
+        await(owner::isListening);
+        UUID boardId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+
+        nodeA.forward("owner-node", boardId, userId, event(boardId, 1, Map.of("color", "#ffffff")));
+        nodeA.forward("owner-node", boardId, userId, event(boardId, 2, Map.of("points", Collections.nCopies(4000, 123.45))));
+
+        await(() -> writes.size() == 2);
+        assertEquals("temp-1", writes.get(0).getTempId());
+        assertEquals(4000, ((List<?>) ((Map<?, ?>) writes.get(1).getData()).get("points")).size());
+        assertTrue(misrouted.isEmpty());
+        assertTrue(receivedB.isEmpty());
+    }
+}
@@ -0,0 +1,79 @@
+package com.quantumleap.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class PostgresBoardLeasesIT {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private final List<PostgresBoardLeases> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(PostgresBoardLeases::shutdown);
+    }
+
+    private PostgresBoardLeases node(String id, long idleReleaseMillis) {
+        NodeIdentity node = new NodeIdentity(id);
+        PostgresBoardLeases leases = new PostgresBoardLeases(PostgresBoardEventBusIT.connections(postgres, node), node,
+                new SimpleMeterRegistry(), 0, 60_000, idleReleaseMillis);
+        nodes.add(leases);
+        return leases;
+    }
+
+    @Test
+    void testAcquireOrLocate_SingleOwnerPerBoard() {
+        PostgresBoardLeases a = node("node-a", 60_000);
+        PostgresBoardLeases b = node("node-b", 60_000);
+        UUID boardId = UUID.randomUUID();
+
+        assertEquals("node-a", a.acquireOrLocate(boardId));
+        assertTrue(a.isOwner(boardId));
+        assertEquals("node-a", b.acquireOrLocate(boardId));
+        assertFalse(b.isOwner(boardId));
+
+        UUID other = UUID.randomUUID();
+        assertEquals("node-b", b.acquireOrLocate(other));
+        assertEquals("node-b", a.acquireOrLocate(other));
+    }
+
+    @Test
+    void testAcquireOrLocate_TakesOverWhenOwnerDies() {
+        PostgresBoardLeases a = node("node-a", 60_000);
+        PostgresBoardLeases b = node("node-b", 60_000);
+        UUID boardId = UUID.randomUUID();
+        a.acquireOrLocate(boardId);
+
+        a.shutdown();
+
+        PostgresBoardEventBusIT.await(() -> "node-b".equals(b.acquireOrLocate(boardId)));
+        assertTrue(b.isOwner(boardId));
+    }
+
+    @Test
+    void testMaintain_ReleasesIdleLeases() throws Exception {
+        PostgresBoardLeases a = node("node-a", 10);
+        PostgresBoardLeases b = node("node-b", 60_000);
+        UUID boardId = UUID.randomUUID();
+        a.acquireOrLocate(boardId);
+
+        Thread.sleep(20);
+        a.maintain();
+
+        assertFalse(a.isOwner(boardId));
+        assertEquals("node-b", b.acquireOrLocate(boardId));
+    }
+}
@@ -0,0 +1,116 @@
+package com.quantumleap.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quantumleap.dto.ws.EventEnvelope;
+import com.quantumleap.service.BoardState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplayFrameCacheTest {
+    @Mock
+    private BoardStateCache boardStates;
+
+    private ReplayFrameCache cache;
+    private BiConsumer<UUID, EventEnvelope> applied;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final UUID boardId = UUID.randomUUID();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cache = new ReplayFrameCache(boardStates, new FrameEncoder(objectMapper), new SimpleMeterRegistry(), 2, 16, 100);
+        ArgumentCaptor<BiConsumer<UUID, EventEnvelope>> listener = ArgumentCaptor.forClass(BiConsumer.class);
+        verify(boardStates).onApplied(listener.capture());
+        applied = listener.getValue();
+    }
+
+    private static EventEnvelope event(long seq, String id, String type) {
+        EventEnvelope event = new EventEnvelope(id, "board", "user", type, null, Map.of("id", id));
+        event.setSeq(seq);
+        return event;
+    }
+
+    private Map<?, ?> data(PreEncodedFrame frame) throws Exception {
+        return (Map<?, ?>) objectMapper.readValue(new String(frame.json(), StandardCharsets.UTF_8), Map.class).get("data");
+    }
+
+    @Test
+    void testGet_BuildsOnceAndSharesFrames() throws Exception {
+        when(boardStates.get(boardId)).thenReturn(Optional.of(new BoardState(3, List.of(
+                event(1, "a", "SHAPE_ADDED"), event(2, "b", "SHAPE_ADDED"), event(3, "c", "SHAPE_ADDED")))));
+
+        ReplayFrameCache.Replay first = cache.get(boardId).orElseThrow();
+        ReplayFrameCache.Replay second = cache.get(boardId).orElseThrow();
+
+        assertEquals(2, first.frames().size());
+        assertEquals(3, first.lastSeq());
+        assertEquals(Boolean.TRUE, data(first.frames().get(0)).get("reset"));
+        assertNull(data(first.frames().get(1)).get("reset"));
+        assertSame(first.frames().get(0), second.frames().get(0));
+        verify(boardStates, times(1)).get(boardId);
+    }
+
+    @Test
+    void testGet_EmptyBoardStillResetsClient() throws Exception {
+        when(boardStates.get(boardId)).thenReturn(Optional.of(new BoardState()));
+
+        ReplayFrameCache.Replay replay = cache.get(boardId).orElseThrow();
+
+        assertEquals(1, replay.frames().size());
+        assertEquals(Boolean.TRUE, data(replay.frames().get(0)).get("reset"));
+    }
+
+    @Test
+    void testApplied_EventsAppendedAsChunks() throws Exception {
+        when(boardStates.get(boardId)).thenReturn(Optional.of(new BoardState(1, List.of(event(1, "a", "SHAPE_ADDED")))));
+        cache.get(boardId);
+
+        applied.accept(boardId, event(2, "b", "SHAPE_ADDED"));
+        ReplayFrameCache.Replay partial = cache.get(boardId).orElseThrow();
+        applied.accept(boardId, event(3, "m", "SHAPE_MOVED"));
+        applied.accept(boardId, event(4, "c", "SHAPE_ADDED"));
+        ReplayFrameCache.Replay replay = cache.get(boardId).orElseThrow();
+
+        assertEquals(2, partial.frames().size());
+        assertEquals(3, replay.frames().size());
+        assertEquals(4, replay.lastSeq());
+        assertEquals(3, data(replay.frames().get(1)).get("lastSeq"));
+        assertEquals(1, ((List<?>) data(replay.frames().get(2)).get("events")).size());
+        verify(boardStates, times(1)).get(boardId);
+    }
+
+    @Test
+    void testApplied_ClearInvalidates() {
+        when(boardStates.get(boardId)).thenReturn(Optional.of(new BoardState()));
+        cache.get(boardId);
+
+        applied.accept(boardId, event(1, "x", "CLEAR_CANVAS"));
+        cache.get(boardId);
+
+        verify(boardStates, times(2)).get(boardId);
+    }
+
+    @Test
+    void testGet_UnavailableStateIsNotCached() {
+        when(boardStates.get(boardId)).thenReturn(Optional.empty());
+
+        assertTrue(cache.get(boardId).isEmpty());
+        assertTrue(cache.get(boardId).isEmpty());
+        verify(boardStates, times(2)).get(boardId);
+    }
+}
@@ -0,0 +1,78 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResumeBufferTest {
+    private final UUID boardId = UUID.randomUUID();
+    private final ResumeBuffer buffer = new ResumeBuffer(new SimpleMeterRegistry(), 4, 2);
+
+    private static EventEnvelope event(long seq) {
+        EventEnvelope event = new EventEnvelope();
+        event.setId(UUID.randomUUID().toString());
+        event.setType("LINE_DRAWN");
+        event.setSeq(seq);
+        return event;
+    }
+
+    private static List<Long> seqs(List<EventEnvelope> events) {
+        return events.stream().map(EventEnvelope::getSeq).toList();
+    }
+
+    @Test
+    void testTail_ReturnsEventsAfterSeq() {
+        buffer.open(boardId);
+        for (long seq = 5; seq <= 7; seq++) {
+            buffer.record(boardId, event(seq));
+        }
+
+        assertEquals(List.of(6L, 7L), seqs(buffer.tail(boardId, 5)));
+        assertEquals(List.of(5L, 6L, 7L), seqs(buffer.tail(boardId, 4)));
+        assertEquals(List.of(), buffer.tail(boardId, 7));
+    }
+
+    @Test
+    void testTail_NullWhenRingDoesNotReachBack() {
+        buffer.open(boardId);
+        for (long seq = 1; seq <= 6; seq++) {
+            buffer.record(boardId, event(seq));
+        }
+
+        // Capacity 4 keeps 3..6
+        assertNull(buffer.tail(boardId, 1));
+        assertEquals(List.of(3L, 4L, 5L, 6L), seqs(buffer.tail(boardId, 2)));
+        assertNull(buffer.tail(boardId, 9));
+        assertNull(buffer.tail(UUID.randomUUID(), 0));
+    }
+
+    @Test
+    void testRecord_GapRestartsRing() {
+        buffer.open(boardId);
+        buffer.record(boardId, event(1));
+        buffer.record(boardId, event(2));
+        buffer.record(boardId, event(5));
+
+        assertNull(buffer.tail(boardId, 2));
+        assertEquals(List.of(5L), seqs(buffer.tail(boardId, 4)));
+    }
+
+    @Test
+    void testAcknowledge_RecordsHeldOptimisticEvent() {
+        buffer.open(boardId);
+        buffer.record(boardId, event(1));
+        EventEnvelope optimistic = event(1);
+        optimistic.setSeq(null);
+        buffer.record(boardId, optimistic);
+
+        assertEquals(List.of(), buffer.tail(boardId, 1));
+        buffer.acknowledge(boardId, optimistic.getId(), 2);
+
+        assertEquals(List.of(2L), seqs(buffer.tail(boardId, 1)));
+    }
+}
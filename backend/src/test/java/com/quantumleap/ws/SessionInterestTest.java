@@ -0,0 +1,77 @@
+package com.quantumleap.ws;
+
+import com.quantumleap.dto.ws.EventEnvelope;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionInterestTest {
+
+    private static PreEncodedFrame frame(String json) {
+        return new PreEncodedFrame(json.getBytes());
+    }
+
+    @Test
+    void testSees_EverythingUntilViewportReported() {
+        SessionInterest interest = new SessionInterest(10, 10);
+
+        assertTrue(interest.sees(new Bounds(5000, 5000, 5100, 5100)));
+        assertTrue(interest.sees(-5000, 5000));
+    }
+
+    @Test
+    void testSees_ViewportPlusMargin() {
+        SessionInterest interest = new SessionInterest(10, 10);
+        interest.moveTo(Bounds.of(0, 0, 100, 100));
+
+        assertTrue(interest.sees(105, 50));
+        assertFalse(interest.sees(111, 50));
+        assertTrue(interest.sees(new Bounds(108, 108, 200, 200)));
+        assertFalse(interest.sees(new Bounds(150, 0, 200, 50)));
+        assertTrue(interest.sees((Bounds) null));
+    }
+
+    @Test
+    void testMoveTo_ReleasesOnlyFramesNowInView() {
+        SessionInterest interest = new SessionInterest(0, 10);
+        interest.moveTo(Bounds.of(0, 0, 100, 100));
+        PreEncodedFrame right = frame("right");
+        PreEncodedFrame far = frame("far");
+        assertTrue(interest.defer(new Bounds(150, 0, 160, 10), right));
+        assertTrue(interest.defer(new Bounds(1000, 1000, 1010, 1010), far));
+
+        assertEquals(List.of(right), interest.moveTo(Bounds.of(100, 0, 100, 100)));
+        assertEquals(List.of(far), interest.drainDeferred());
+        assertFalse(interest.hasDeferred());
+    }
+
+    @Test
+    void testDefer_RefusesBeyondLimit() {
+        SessionInterest interest = new SessionInterest(0, 1);
+        interest.moveTo(Bounds.of(0, 0, 10, 10));
+
+        assertTrue(interest.defer(new Bounds(50, 50, 60, 60), frame("a")));
+        assertFalse(interest.defer(new Bounds(50, 50, 60, 60), frame("b")));
+    }
+
+    @Test
+    void testForEvent_LineIncludesStrokeWidth() {
+        EventEnvelope event = new EventEnvelope();
+        event.setType("LINE_DRAWN");
+        event.setData(Map.of("points", List.of(10, 20, 30, 5), "strokeWidth", 4));
+
+        assertEquals(new Bounds(8, 3, 32, 22), Bounds.forEvent(event));
+    }
+
+    @Test
+    void testForEvent_DeleteIsUnbounded() {
+        EventEnvelope event = new EventEnvelope();
+        event.setType("SHAPE_DELETED");
+        event.setData(Map.of("id", "abc"));
+
+        assertNull(Bounds.forEvent(event));
+    }
+}
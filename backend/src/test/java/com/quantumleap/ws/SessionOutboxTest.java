@@ -0,0 +1,111 @@
+package com.quantumleap.ws;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SessionOutboxTest {
+    @Mock
+    private WebSocketSession session;
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    @Test
+    void testOffer_DeliversInOrder() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(session, tasks::add, 4, SlowConsumerPolicy.COALESCE, 64);
+        TextMessage first = new TextMessage("a");
+        TextMessage second = new TextMessage("b");
+
+        assertEquals(SessionOutbox.Offer.QUEUED, outbox.offer(first));
+        assertEquals(SessionOutbox.Offer.QUEUED, outbox.offer(second));
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        var inOrder = inOrder(session);
+        inOrder.verify(session).sendMessage(first);
+        inOrder.verify(session).sendMessage(second);
+        assertEquals(0, outbox.depth());
+    }
+
+    @Test
+    void testDrain_YieldsAfterMaxFramesPerPass() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(session, tasks::add, 8, SlowConsumerPolicy.COALESCE, 2);
+        for (int i = 0; i < 5; i++) {
+            outbox.offer(new TextMessage("event-" + i));
+        }
+
+        tasks.remove(0).run();
+        verify(session, times(2)).sendMessage(any());
+        assertEquals(3, outbox.depth());
+        assertEquals(1, tasks.size());
+
+        runTasks();
+        verify(session, times(5)).sendMessage(any());
+        assertEquals(0, outbox.depth());
+    }
+
+    @Test
+    void testOfferCursor_CoalescesPendingFrameForSameUser() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(session, tasks::add, 4, SlowConsumerPolicy.COALESCE, 64);
+        TextMessage stale = new TextMessage("stale");
+        TextMessage latest = new TextMessage("latest");
+
+        outbox.offerCursor("user-1", stale);
+        assertEquals(SessionOutbox.Offer.COALESCED, outbox.offerCursor("user-1", latest));
+        assertEquals(1, outbox.depth());
+        runTasks();
+
+        verify(session, never()).sendMessage(stale);
+        verify(session).sendMessage(latest);
+    }
+
+    @Test
+    void testOffer_FullQueueEvictsCursorForEvent() {
+        SessionOutbox outbox = new SessionOutbox(session, tasks::add, 2, SlowConsumerPolicy.DROP_CURSORS, 64);
+
+        outbox.offerCursor("user-1", new TextMessage("cursor"));
+        outbox.offer(new TextMessage("event-1"));
+
+        assertEquals(SessionOutbox.Offer.DROPPED, outbox.offerCursor("user-2", new TextMessage("cursor-2")));
+        assertEquals(SessionOutbox.Offer.EVICTED, outbox.offer(new TextMessage("event-2")));
+        assertEquals(SessionOutbox.Offer.OVERFLOW, outbox.offer(new TextMessage("event-3")));
+        assertEquals(2, outbox.depth());
+    }
+
+    @Test
+    void testOffer_DisconnectPolicyOverflowsImmediately() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(session, tasks::add, 1, SlowConsumerPolicy.DISCONNECT, 64);
+
+        outbox.offerCursor("user-1", new TextMessage("cursor"));
+        assertEquals(SessionOutbox.Offer.OVERFLOW, outbox.offerCursor("user-2", new TextMessage("cursor-2")));
+
+        outbox.closeNow(SessionOutbox.RESYNC);
+        runTasks();
+
+        verify(session).close(SessionOutbox.RESYNC);
+        verify(session, never()).sendMessage(any());
+        assertEquals(SessionOutbox.Offer.CLOSED, outbox.offer(new TextMessage("late")));
+    }
+}
@@ -0,0 +1,65 @@
+package com.quantumleap.ws;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void testAdvance_ExpiresEachTimerOnItsDeadlineAcrossLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(3, 1000);
+        Random random = new Random(42);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long id = 0; id < 2000; id++) {
+            long delay = 1 + random.nextInt(100_000);
+            deadlines.put(id, 1000 + delay);
+            wheel.schedule(id, delay);
+        }
+
+        Map<Long, Long> fired = new HashMap<>();
+        for (long tick = 1000; tick <= 101_000; tick += 1 + random.nextInt(40)) {
+            wheel.advance(tick, id -> fired.put(id, wheel.currentTick()));
+        }
+        wheel.advance(101_000, id -> fired.put(id, wheel.currentTick()));
+
+        assertEquals(deadlines, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancelAndReschedule() {
+        TimingWheel<String> wheel = new TimingWheel<>(2, 0);
+        TimingWheel.Timer<String> cancelled = wheel.schedule("cancelled", 5);
+        TimingWheel.Timer<String> moved = wheel.schedule("moved", 5);
+        wheel.cancel(cancelled);
+        wheel.reschedule(moved, 200);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(199, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(200, fired::add);
+        assertEquals(List.of("moved"), fired);
+        assertFalse(moved.isScheduled());
+    }
+
+    @Test
+    void testAdvance_ItemsCanRescheduleThemselves() {
+        TimingWheel<String> wheel = new TimingWheel<>(2, 0);
+        TimingWheel.Timer<String> timer = wheel.schedule("tick", 10);
+        List<Long> fired = new ArrayList<>();
+
+        wheel.advance(35, item -> {
+            fired.add(wheel.currentTick());
+            wheel.reschedule(timer, 10);
+        });
+
+        assertEquals(List.of(10L, 20L, 30L), fired);
+    }
+}
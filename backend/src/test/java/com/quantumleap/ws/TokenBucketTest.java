@@ -0,0 +1,42 @@
+package com.quantumleap.ws;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void testTryConsume_AllowsBurstThenRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(2, 3, 0);
+
+        assertTrue(bucket.tryConsume(0));
+        assertTrue(bucket.tryConsume(0));
+        assertTrue(bucket.tryConsume(0));
+        assertFalse(bucket.tryConsume(0));
+
+        assertEquals(SECOND / 2, bucket.nanosUntilAvailable(0));
+        assertTrue(bucket.tryConsume(SECOND / 2));
+        assertFalse(bucket.tryConsume(SECOND / 2));
+    }
+
+    @Test
+    void testRefund_ReturnsTokenWithoutExceedingCapacity() {
+        TokenBucket bucket = new TokenBucket(1, 1, 0);
+
+        assertTrue(bucket.tryConsume(0));
+        bucket.refund();
+        bucket.refund();
+        assertTrue(bucket.tryConsume(0));
+        assertFalse(bucket.tryConsume(0));
+    }
+
+    @Test
+    void testEventClass_DestructiveOpsHaveOwnClass() {
+        assertEquals(EventClass.DESTRUCTIVE, EventClass.of("CLEAR_CANVAS"));
+        assertEquals(EventClass.DRAW, EventClass.of("SHAPE_DELETED"));
+        assertEquals(EventClass.CURSOR, EventClass.of("CURSOR_MOVE"));
+        assertEquals(EventClass.DRAW, EventClass.of("SHAPE_MOVED"));
+    }
+}
@@ -17,12 +17,15 @@ interface CursorPosition {
   isActive: boolean;
 }
 
+// Viewport reports sent while panning, zooming or resizing are at least this far apart
+const VIEWPORT_THROTTLE_MS = 100;
+
 const Whiteboard: React.FC = () => {
   const { boardId } = useParams<{ boardId: string }>();
   const navigate = useNavigate();
   const { token, user, isBackendAvailable, checkBackendAvailability } = useAuthStore();
   const { shapes, clearEvents } = useEventsStore();
-  const { status, connect, disconnect, sendEvent, setCursorCallbacks } = useWebSocketStore();
+  const { status, readOnly, editsThrottled, connect, disconnect, sendEvent, setCursorCallbacks } = useWebSocketStore();
   
   const [tool, setTool] = useState<'pen' | 'rect' | 'circle' | 'text' | 'eraser'>('pen');
   const [color, setColor] = useState('#000000');
@@ -124,7 +127,7 @@ const Whiteboard: React.FC = () => {
               userColor: cursorData.userColor,
               x: cursorData.x,
               y: cursorData.y,
-              isActive: true
+              isActive: cursorData.eventType !== 'IDLE'
             });
             console.log('[Cursor] User cursor updated:', cursorData.userId, 'at', cursorData.x, cursorData.y);
           }
@@ -155,6 +158,53 @@ const Whiteboard: React.FC = () => {
     );
   }, [setCursorCallbacks, user?.id]);
 
+  // Report what is on screen so the server can hold back cursors and shapes outside it
+  const sendViewport = () => {
+    const stage = stageRef.current;
+    if (status !== 'connected' || !boardId || !user || !stage) return;
+    const scale = stage.scaleX() || 1;
+    sendEvent({
+      id: `viewport-${Date.now()}`,
+      boardId: boardId,
+      userId: user.id,
+      type: 'VIEWPORT',
+      ts: new Date().toISOString(),
+      data: {
+        x: -stage.x() / scale,
+        y: -stage.y() / scale,
+        width: stage.width() / scale,
+        height: stage.height() / scale,
+      },
+    });
+  };
+
+  // Pans, zooms and resizes report the viewport again, at most every VIEWPORT_THROTTLE_MS
+  const sendViewportRef = useRef(sendViewport);
+  sendViewportRef.current = sendViewport;
+  const viewportTimeoutRef = useRef<NodeJS.Timeout | null>(null);
+  const reportViewport = () => {
+    if (viewportTimeoutRef.current) return;
+    viewportTimeoutRef.current = setTimeout(() => {
+      viewportTimeoutRef.current = null;
+      sendViewportRef.current();
+    }, VIEWPORT_THROTTLE_MS);
+  };
+
+  useEffect(() => {
+    sendViewportRef.current();
+  }, [status, boardId, user, sendEvent]);
+
+  useEffect(() => {
+    window.addEventListener('resize', reportViewport);
+    return () => {
+      window.removeEventListener('resize', reportViewport);
+      if (viewportTimeoutRef.current) {
+        clearTimeout(viewportTimeoutRef.current);
+        viewportTimeoutRef.current = null;
+      }
+    };
+  }, []);
+
   // Throttled cursor position update - reduce throttling for more responsive movement
   const updateCursorPosition = (x: number, y: number) => {
     setMousePosition({ x, y });
@@ -469,7 +519,10 @@ const Whiteboard: React.FC = () => {
             style={{ backgroundColor: getConnectionStatusColor() }}
           />
           <span className="status-text">
-            {status === 'connected' && 'Connected'}
+            {status === 'connected' && (readOnly ? 'Connected (read-only, board is full)' : 'Connected')}
+            {status === 'connected' && editsThrottled && (editsThrottled === 'DESTRUCTIVE'
+              ? ' (clearing too often, the board was not cleared)'
+              : ' (editing too fast, some changes were not saved)')}
             {status === 'connecting' && 'Connecting...'}
             {status === 'reconnecting' && 'Reconnecting...'}
             {status === 'disconnected' && 'Disconnected'}
@@ -565,6 +618,9 @@ const Whiteboard: React.FC = () => {
             onMouseMove={handleMouseMove}
             onMouseUp={handleMouseUp}
             onClick={handleShapeAdd}
+            onDragMove={reportViewport}
+            onDragEnd={reportViewport}
+            onWheel={reportViewport}
             className="konva-stage"
             style={{ cursor: tool === 'eraser' ? 'url("data:image/svg+xml;utf8,<svg xmlns=\'http://www.w3.org/2000/svg\' width=\'32\' height=\'32\' viewBox=\'0 0 32 32\'><rect x=\'6\' y=\'20\' width=\'20\' height=\'8\' rx=\'2\' fill=\'%23e0e0e0\' stroke=\'%23999\' stroke-width=\'2\'/><rect x=\'8\' y=\'8\' width=\'16\' height=\'16\' rx=\'4\' fill=\'%23fff\' stroke=\'%23999\' stroke-width=\'2\'/></svg>\') 8 24, pointer' : 'default' }}
           >
@@ -643,6 +699,7 @@ const Whiteboard: React.FC = () => {
                 <React.Fragment key={cursor.userId}>
                   {/* Cursor pointer */}
                   <Circle
+                    opacity={cursor.isActive ? 1 : 0.4}
                     x={cursor.x}
                     y={cursor.y}
                     radius={8}
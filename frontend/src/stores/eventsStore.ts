@@ -8,6 +8,7 @@ export interface EventEnvelope {
   ts: string;
   data: any;
   tempId?: string;
+  seq?: number;
 }
 
 export interface CanvasShape {
@@ -107,20 +108,21 @@ export const useEventsStore = create<EventsState & EventsActions>((set, get) =>
           newShapes.set(event.id, shape);
           break;
 
+        // Edits name their shape in data.id, as SHAPE_DELETED does; the event's own ID is the edit's
         case 'SHAPE_MOVED':
-          const existingShape = newShapes.get(event.id);
+          const existingShape = event.data?.id ? newShapes.get(event.data.id) : undefined;
           if (existingShape) {
             existingShape.x = event.data.x;
             existingShape.y = event.data.y;
-            newShapes.set(event.id, existingShape);
+            newShapes.set(event.data.id, existingShape);
           }
           break;
 
         case 'SHAPE_UPDATED':
-          const shapeToUpdate = newShapes.get(event.id);
+          const shapeToUpdate = event.data?.id ? newShapes.get(event.data.id) : undefined;
           if (shapeToUpdate) {
             Object.assign(shapeToUpdate.style, event.data.style);
-            newShapes.set(event.id, shapeToUpdate);
+            newShapes.set(event.data.id, shapeToUpdate);
           }
           break;
 
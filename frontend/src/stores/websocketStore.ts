@@ -10,6 +10,14 @@ interface WebSocketState {
     boardId: string | null;
     token: string | null;
     socketError: string | null;
+    readOnly: boolean;
+    cursorThrottledUntil: number;
+    // Class of edits the server is dropping for sending too fast, until its retry delay passes
+    editsThrottled: string | null;
+    // Sequence number up to which every event of this board has been received; sent as ?since= when
+    // reconnecting. Events the server held back while out of view arrive late, so this is not simply the
+    // highest number seen.
+    lastSeq: number;
     onCursorUpdate?: (cursorData: any) => void;
     onCursorsInit?: (cursorsData: any) => void;
 }
@@ -24,6 +32,8 @@ interface WebSocketActions {
 }
 
 const MAX_RECONNECT_ATTEMPTS = 5;
+// Out-of-order sequence numbers remembered; beyond this, resuming may replay more than needed
+const MAX_SEQS_AHEAD = 10000;
 const RECONNECT_DELAY = 1000;
 
 export const useWebSocketStore = create<WebSocketState & WebSocketActions>((set, get) => ({
@@ -33,15 +43,53 @@ export const useWebSocketStore = create<WebSocketState & WebSocketActions>((set,
     boardId: null,
     token: null,
     socketError: null,
+    readOnly: false,
+    cursorThrottledUntil: 0,
+    editsThrottled: null,
+    lastSeq: 0,
 
     connect: (boardId: string, token: string) => {
         const wsBaseUrl = import.meta.env.VITE_WS_BASE_URL || 'ws://localhost:8080';
         // Connect to the WebSocket endpoint with the full path including context
         // Backend context path: /api/v1
         // Backend handler registered at: /api/v1/ws/whiteboard/{boardId}
-        const wsUrl = `${wsBaseUrl}/api/v1/ws/whiteboard/${boardId}?token=${token}`;
+        // Reconnects to the same board only ask for what was missed
+        const lastSeq = get().boardId === boardId ? get().lastSeq : 0;
+        const since = lastSeq > 0 ? `&since=${lastSeq}` : '';
+        const wsUrl = `${wsBaseUrl}/api/v1/ws/whiteboard/${boardId}?token=${token}${since}`;
 
-        set({ status: 'connecting', boardId, token, socketError: null });
+        set({ status: 'connecting', boardId, token, socketError: null, lastSeq });
+        // Sequence numbers received beyond a gap, for this connection only
+        const ahead = new Set<number>();
+        const advance = (upTo: number) => {
+            let next = upTo;
+            while (ahead.delete(next + 1)) {
+                next++;
+            }
+            ahead.forEach((seq) => {
+                if (seq <= next) {
+                    ahead.delete(seq);
+                }
+            });
+            set({ lastSeq: next });
+        };
+        // One event received
+        const noteSeq = (seq?: number) => {
+            if (typeof seq !== 'number' || seq <= get().lastSeq) {
+                return;
+            }
+            if (seq === get().lastSeq + 1) {
+                advance(seq);
+            } else if (ahead.size < MAX_SEQS_AHEAD) {
+                ahead.add(seq);
+            }
+        };
+        // Everything up to seq received, e.g. by a replay, or made obsolete by a clear
+        const coverSeq = (seq?: number) => {
+            if (typeof seq === 'number' && seq > get().lastSeq) {
+                advance(seq);
+            }
+        };
         console.log('[WebSocket] Connecting to', wsUrl);
 
         const ws = new WebSocket(wsUrl);
@@ -60,27 +108,88 @@ export const useWebSocketStore = create<WebSocketState & WebSocketActions>((set,
 
                 if (data.type === 'EVENT_REPLAY_CHUNK' && data.data?.events) {
                     console.log('[WebSocket] Processing event replay chunk with', data.data.events.length, 'events');
+                    if (data.data.reset) {
+                        // The server could not fill the gap since lastSeq; this is the whole board
+                        useEventsStore.getState().clearEvents();
+                        ahead.clear();
+                        set({ lastSeq: 0 });
+                    }
                     data.data.events.forEach((event: any) => {
                         console.log('[WebSocket] Adding event from replay:', event.type, event.id);
                         addEvent(event);
                     });
+                    coverSeq(data.data.lastSeq);
+                } else if (data.type === 'REPLAY_COMPLETE') {
+                    // Large boards arrive in several chunks; this marks the last one
+                    console.log('[WebSocket] Replay complete up to seq', data.data?.lastSeq);
+                    coverSeq(data.data?.lastSeq);
                 } else if (data.type === 'EVENT_APPEND' && data.data?.event) {
                     console.log('[WebSocket] Processing new event:', data.data.event.type, data.data.event.id);
                     addEvent(data.data.event);
+                    if (data.data.event.type === 'CLEAR_CANVAS') {
+                        // Events still held back before the clear are dropped by the server, and not needed
+                        coverSeq(data.data.event.seq);
+                    } else {
+                        noteSeq(data.data.event.seq);
+                    }
                 } else if (data.type === 'CONNECTION_ESTABLISHED') {
                     console.log('[WebSocket] Connection established:', data.data?.message);
+                    // Boards over their session limit admit extra viewers read-only
+                    set({ readOnly: data.data?.mode === 'READ_ONLY' });
                 } else if (data.type === 'CURSOR_UPDATE' && data.data?.cursor) {
                     console.log('[WebSocket] Processing cursor update:', data.data.cursor);
                     const { onCursorUpdate } = get();
                     if (onCursorUpdate) {
                         onCursorUpdate(data.data.cursor);
                     }
+                } else if (data.type === 'CURSORS_FRAME' && data.data?.cursors) {
+                    // One frame per server tick with only the cursors that moved
+                    const { onCursorUpdate } = get();
+                    if (onCursorUpdate) {
+                        data.data.cursors.forEach((cursor: any) => onCursorUpdate(cursor));
+                    }
+                } else if (data.type === 'PRESENCE_BATCH' && data.data?.cursors) {
+                    // LEAVE and IDLE transitions collected by the server in one batch
+                    const { onCursorUpdate } = get();
+                    if (onCursorUpdate) {
+                        data.data.cursors.forEach((cursor: any) => onCursorUpdate(cursor));
+                    }
                 } else if (data.type === 'CURSORS_INIT' && data.data?.cursors) {
                     console.log('[WebSocket] Processing cursors init:', data.data.cursors);
                     const { onCursorsInit } = get();
                     if (onCursorsInit) {
                         onCursorsInit(data.data.cursors);
                     }
+                } else if (data.type === 'SLOW_DOWN') {
+                    // The server is dropping our frames of this class; stop sending cursor moves for a while,
+                    // and tell the user that edits were dropped rather than let them vanish on reload
+                    console.warn('[WebSocket] Slow down:', data.data?.eventClass, data.data?.retryAfterMs, 'ms');
+                    const retryAfterMs = data.data?.retryAfterMs > 0 ? data.data.retryAfterMs : 1000;
+                    if (data.data?.eventClass === 'CURSOR') {
+                        set({ cursorThrottledUntil: Date.now() + retryAfterMs });
+                    } else if (data.data?.eventClass) {
+                        const eventClass = data.data.eventClass;
+                        set({ editsThrottled: eventClass });
+                        setTimeout(() => {
+                            if (get().editsThrottled === eventClass) {
+                                set({ editsThrottled: null });
+                            }
+                        }, retryAfterMs);
+                    }
+                } else if (data.type === 'EVENT_ACK') {
+                    // Optimistic boards: the event is now durable under this sequence number; the writer
+                    // recognizes its own write by tempId
+                    console.log('[WebSocket] Event acknowledged:', data.tempId, data.data?.id);
+                    noteSeq(data.data?.seq);
+                } else if (data.type === 'EVENT_REJECTED') {
+                    // Optimistic boards: our write was shown but could not be saved; shapes it created are
+                    // taken back by a SHAPE_DELETED broadcast, edits are only reported here
+                    console.warn('[WebSocket] Event rejected:', data.tempId, data.data?.reason);
+                    if (data.data?.id) {
+                        useEventsStore.getState().removeEvent(data.data.id);
+                    }
+                } else if (data.type === 'WRITE_MODE_CHANGED') {
+                    console.log('[WebSocket] Board write mode changed, optimistic:', data.data?.optimistic);
                 } else if (data.type === 'ERROR') {
                     console.error('[WebSocket] Backend error:', data.data?.message);
                     set({ socketError: data.data?.message, status: 'disconnected', connection: null });
@@ -98,12 +207,14 @@ export const useWebSocketStore = create<WebSocketState & WebSocketActions>((set,
             console.warn('[WebSocket] Closed', event);
             if (!socketError && reconnectAttempts < MAX_RECONNECT_ATTEMPTS) {
                 set({ status: 'reconnecting', connection: null, reconnectAttempts: reconnectAttempts + 1 });
+                // Jittered so that clients dropped together (e.g. by a full board) do not come back together
+                const backoff = RECONNECT_DELAY * Math.pow(2, reconnectAttempts);
                 setTimeout(() => {
                     const { boardId, token } = get();
                     if (boardId && token) {
                         get().connect(boardId, token);
                     }
-                }, RECONNECT_DELAY * Math.pow(2, reconnectAttempts));
+                }, backoff + Math.random() * backoff);
             } else {
                 set({ status: 'disconnected', connection: null, reconnectAttempts: 0 });
             }
@@ -120,11 +231,17 @@ export const useWebSocketStore = create<WebSocketState & WebSocketActions>((set,
         if (connection) {
             connection.close();
         }
-        set({ status: 'disconnected', connection: null, boardId: null, token: null, reconnectAttempts: 0, socketError: null });
+        set({ status: 'disconnected', connection: null, boardId: null, token: null, reconnectAttempts: 0, socketError: null, readOnly: false, lastSeq: 0 });
     },
 
     sendEvent: (event: any) => {
-        const { connection, status } = get();
+        const { connection, status, readOnly } = get();
+        if (readOnly && event.type !== 'VIEWPORT') {
+            return;
+        }
+        if (event.type === 'CURSOR_MOVE' && Date.now() < get().cursorThrottledUntil) {
+            return;
+        }
         console.log('[WebSocket] Attempting to send event:', event.type, event.id, 'Status:', status, 'Connection:', !!connection);
         
         if (connection && status === 'connected') {